@@ -1,27 +1,47 @@
 package com.example.fuzzer;
 
+import com.example.fuzzer.execution.BreakpointBlocks;
+import com.example.fuzzer.execution.BreakpointExecutor;
+import com.example.fuzzer.execution.CmpLogMap;
 import com.example.fuzzer.execution.ExecutionResult;
 import com.example.fuzzer.execution.Executor;
 import com.example.fuzzer.execution.ExecutorConfig;
+import com.example.fuzzer.execution.MapSizeDetector;
 import com.example.fuzzer.execution.ProcessExecutor;
+import com.example.fuzzer.execution.remote.RemoteExecutor;
 import com.example.fuzzer.monitor.AFLMonitor;
+import com.example.fuzzer.monitor.Monitor;
+import com.example.fuzzer.mutation.AFLMutator;
+import com.example.fuzzer.mutation.AutoDictionary;
+import com.example.fuzzer.mutation.DeterministicStage;
+import com.example.fuzzer.mutation.InputToStateStage;
+import com.example.fuzzer.mutation.MutationBuffer;
 import com.example.fuzzer.mutation.Mutator;
 import com.example.fuzzer.mutation.MutatorFactory;
+import com.example.fuzzer.mutation.TokenDictionary;
 import com.example.fuzzer.schedule.AFLSeedGenerator;
 import com.example.fuzzer.schedule.core.AFLScheduler;
 import com.example.fuzzer.schedule.core.SeedScheduler;
 import com.example.fuzzer.schedule.energy.EnergyScheduler;
 import com.example.fuzzer.schedule.model.Seed;
 import com.example.fuzzer.schedule.sort.SeedSorter;
-import com.example.fuzzer.schedule.sort.SeedSorterFactory;
 import com.example.fuzzer.sharedmemory.SharedMemoryManager;
+import com.example.fuzzer.tools.ShowMap;
 import org.apache.commons.cli.*;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -38,7 +58,8 @@ public class Fuzzer {
     private static final Mutator.MutatorType DEFAULT_MUTATOR_TYPE = Mutator.MutatorType.AFL;
     private static final EnergyScheduler.Type DEFAULT_ENERGY_SCHEDULER_TYPE = EnergyScheduler.Type.COVERAGE_BASED;
     private static final SeedSorter.Type DEFAULT_SEED_SORTER_TYPE = SeedSorter.Type.HEURISTIC;
-    private static final int MAP_SIZE = 65536;
+    // 每次选中种子时最多推进的确定性变异次数，避免长输入长时间占住一个工作线程
+    private static final int DETERMINISTIC_SLICE = 1024;
 
     private final String targetProgramPath;
     private final String aflSeedDir;
@@ -49,18 +70,34 @@ public class Fuzzer {
     private final SharedMemoryManager shmManager;
     private final Executor executor;
     private final SeedScheduler scheduler;
-    private final SeedSorter seedSorter;
-    private final Mutator mutator;
     private final int numThreads;
+    private final int mapSize;
     private final AtomicLong totalExecutions;
     private final AtomicInteger crashCount;
     private ExecutorService executorService;
-    private List<Executor> executors = new ArrayList<>();
+    private final List<Executor> executors = new ArrayList<>();
+    private final List<SharedMemoryManager> workerShmManagers = new ArrayList<>();
     private volatile boolean isRunning;
     private volatile long endTimeMillis;  // 结束时间（毫秒）
     private String[] programArgs = new String[0];
     private String outputDir;
     private int timeout = 1;
+    private String[] remoteAgents = new String[0];
+    private int remoteBatchSize = 16;
+    private final AtomicInteger workerCounter = new AtomicInteger(0);
+    private BreakpointBlocks breakpointBlocks;
+    private String tracerPath;
+    private String rssLauncher;
+    private long randomSeed = ThreadLocalRandom.current().nextLong();
+    private boolean deterministic;
+    private TokenDictionary dictionary = TokenDictionary.EMPTY;
+    private int autoDictionarySize = AutoDictionary.DEFAULT_MAX_TOKENS;
+    private int minInputSize = 1;
+    private int maxInputSize = AFLMutator.DEFAULT_MAX_INPUT_SIZE;
+    // 用 trace-cmp 插桩的程序，为 null 时不做输入到状态阶段
+    private String cmpLogBinary;
+    private int cmpLogMapSize;
+    private final CompletableFuture<List<byte[]>> autoDictionaryTask;
 
     public Fuzzer(String targetProgramPath, String aflSeedDir) throws IOException {
         this(targetProgramPath, aflSeedDir, DEFAULT_MUTATOR_TYPE, DEFAULT_ENERGY_SCHEDULER_TYPE, DEFAULT_SEED_SORTER_TYPE);
@@ -73,15 +110,27 @@ public class Fuzzer {
 
     public Fuzzer(String targetProgramPath, String aflSeedDir, Mutator.MutatorType mutatorType,
                   EnergyScheduler.Type energySchedulerType, SeedSorter.Type seedSorterType, int numThreads) throws IOException {
+        this(targetProgramPath, aflSeedDir, mutatorType, energySchedulerType, seedSorterType, numThreads, 0);
+    }
+
+    /**
+     * @param mapSize 覆盖率表大小，为 0 时从目标程序自动检测
+     */
+    public Fuzzer(String targetProgramPath, String aflSeedDir, Mutator.MutatorType mutatorType,
+                  EnergyScheduler.Type energySchedulerType, SeedSorter.Type seedSorterType, int numThreads,
+                  int mapSize) throws IOException {
         this.targetProgramPath = targetProgramPath;
         this.aflSeedDir = aflSeedDir;
         this.mutatorType = mutatorType;
         this.energySchedulerType = energySchedulerType;
         this.seedSorterType = seedSorterType;
         this.numThreads = numThreads;
+        this.deterministic = mutatorType == Mutator.MutatorType.AFL || mutatorType == Mutator.MutatorType.MOPT;
+        this.mapSize = mapSize > 0
+                ? MapSizeDetector.align(mapSize)
+                : MapSizeDetector.detect(Paths.get(targetProgramPath));
         this.isRunning = true;
         initializeExecutors();
-        this.executors = new ArrayList<>();
         this.totalExecutions = new AtomicLong(0);
         this.crashCount = new AtomicInteger(0);
 
@@ -90,11 +139,11 @@ public class Fuzzer {
         this.outputDir = outputPath;
 
         // 初始化监控器
-        this.monitor = new AFLMonitor(MAP_SIZE, outputPath);
+        this.monitor = new AFLMonitor(this.mapSize, outputPath);
         this.monitor.setTargetInfo(targetProgramPath, programArgs);
 
         // 初始化共享内存管理器
-        this.shmManager = new SharedMemoryManager(MAP_SIZE);
+        this.shmManager = new SharedMemoryManager(this.mapSize);
 
         // 初始化执行器
         ExecutorConfig config = new ExecutorConfig.Builder()
@@ -102,15 +151,18 @@ public class Fuzzer {
                 .build();
         this.executor = new ProcessExecutor(targetProgramPath, shmManager, config);
 
-        // 初始化种子排序器
-        this.seedSorter = SeedSorterFactory.createSeedSorter(seedSorterType);
-
-        // 初始化变异器
-        this.mutator = MutatorFactory.createMutator(mutatorType);
-
         // 初始化调度器
         List<Seed> initialSeeds = new ArrayList<>();  // 初始为空，稍后通过loadSeeds添加
-        this.scheduler = new AFLScheduler(initialSeeds, energySchedulerType);
+        this.scheduler = new AFLScheduler(initialSeeds, energySchedulerType, seedSorterType);
+
+        // 自动字典的提取和种子加载并行进行，在开始测试前才等待结果
+        this.autoDictionaryTask = CompletableFuture.supplyAsync(() -> {
+            try {
+                return AutoDictionary.extract(Paths.get(targetProgramPath));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
 
         // 加载种子
         loadSeeds();
@@ -123,6 +175,12 @@ public class Fuzzer {
     }
 
     public static void main(String[] args) {
+        // 子命令：批量计算覆盖率、对位图做集合运算
+        if (args.length > 0 && "showmap".equals(args[0])) {
+            ShowMap.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         Options options = new Options();
 
         // 添加命令行选项
@@ -156,7 +214,7 @@ public class Fuzzer {
 
         options.addOption(Option.builder("m")
                 .longOpt("mutator")
-                .desc("变异策略 (AFL, RANDOM)")
+                .desc("变异策略 (AFL, MOPT, RANDOM)")
                 .hasArg()
                 .build());
 
@@ -185,6 +243,102 @@ public class Fuzzer {
                 .hasArg()
                 .build());
 
+        options.addOption(Option.builder("r")
+                .longOpt("remote")
+                .desc("远程执行代理地址列表，以逗号分隔，例如：'host1:7391,host2:7391'")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("rb")
+                .longOpt("remote-batch")
+                .desc("每次发送给远程代理的输入数量，默认为16")
+                .hasArg()
+                .type(Number.class)
+                .build());
+
+        options.addOption(Option.builder("Q")
+                .longOpt("binary-only")
+                .desc("二进制模式：通过ptrace断点收集未插桩程序的覆盖率")
+                .build());
+
+        options.addOption(Option.builder("tr")
+                .longOpt("tracer")
+                .desc("二进制模式使用的追踪器路径，默认为cgf-untracer")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("bl")
+                .longOpt("block-list")
+                .desc("二进制模式的基本块地址列表文件（每行一个十六进制地址），默认使用符号表中的函数入口")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("ms")
+                .longOpt("map-size")
+                .desc("覆盖率表大小（字节），默认从目标程序的__afl_final_loc或AFL_DUMP_MAP_SIZE自动检测，失败时为65536")
+                .hasArg()
+                .type(Number.class)
+                .build());
+
+        options.addOption(Option.builder("fb")
+                .longOpt("feedback")
+                .desc("反馈类型 (COVERAGE, PERF, MEMORY)，PERF 额外保留抬高某条边最大命中次数的输入，"
+                        + "MEMORY 额外保留抬高某条边峰值内存的输入，默认为COVERAGE")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("x")
+                .longOpt("dict")
+                .desc("AFL/libFuzzer 格式的字典文件或目录，可以多次指定")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("ads")
+                .longOpt("auto-dict-size")
+                .desc("从目标程序提取的自动字典的最大 token 数，0 表示不使用，默认为" + AutoDictionary.DEFAULT_MAX_TOKENS)
+                .hasArg()
+                .type(Number.class)
+                .build());
+
+        options.addOption(Option.builder("d")
+                .longOpt("skip-deterministic")
+                .desc("跳过确定性变异阶段，只做随机变异")
+                .build());
+
+        options.addOption(Option.builder("rs")
+                .longOpt("seed")
+                .desc("随机数种子，各工作线程的随机数流都由它派生，指定相同的值可以复现变异序列")
+                .hasArg()
+                .type(Number.class)
+                .build());
+
+        options.addOption(Option.builder("mi")
+                .longOpt("min-input-size")
+                .desc("删除类变异不会把输入缩短到这个长度以下，默认为1")
+                .hasArg()
+                .type(Number.class)
+                .build());
+
+        options.addOption(Option.builder("mx")
+                .longOpt("max-input-size")
+                .desc("插入类变异不会把输入加长到这个长度以上，默认为" + AFLMutator.DEFAULT_MAX_INPUT_SIZE)
+                .hasArg()
+                .type(Number.class)
+                .build());
+
+        options.addOption(Option.builder("cl")
+                .longOpt("cmplog")
+                .desc("开启 CmpLog 输入到状态阶段，可选参数为用 trace-cmp 插桩的目标程序，省略时使用目标程序本身")
+                .hasArg()
+                .optionalArg(true)
+                .build());
+
+        options.addOption(Option.builder("rl")
+                .longOpt("rss-launcher")
+                .desc("MEMORY 反馈使用的峰值内存启动器路径，默认为cgf-rss")
+                .hasArg()
+                .build());
+
         CommandLineParser parser = new DefaultParser();
         HelpFormatter formatter = new HelpFormatter();
 
@@ -212,11 +366,52 @@ public class Fuzzer {
                     : Runtime.getRuntime().availableProcessors();
 
             String targetCmdline = cmd.getOptionValue("target-cmdline", "");
-            String[] programArgs = targetCmdline.split("\\s+");  // 按空格分割命令行
+            // 按空格分割命令行，未指定时不向目标程序传递参数
+            String[] programArgs = targetCmdline.trim().isEmpty()
+                    ? new String[0]
+                    : targetCmdline.trim().split("\\s+");
+
+            int mapSize = cmd.hasOption("map-size")
+                    ? ((Number) cmd.getParsedOptionValue("map-size")).intValue()
+                    : 0;
 
-            Fuzzer fuzzer = new Fuzzer(targetProgram, seedDir, mutatorType, energyType, sorterType, threads);
+            Fuzzer fuzzer = new Fuzzer(targetProgram, seedDir, mutatorType, energyType, sorterType, threads, mapSize);
             fuzzer.setProgramArgs(programArgs);
 
+            if (cmd.hasOption("dict")) {
+                List<Path> dictPaths = new ArrayList<>();
+                for (String dict : cmd.getOptionValues("dict")) {
+                    dictPaths.add(Paths.get(dict));
+                }
+                fuzzer.setDictionary(TokenDictionary.load(dictPaths));
+            }
+
+            if (cmd.hasOption("auto-dict-size")) {
+                fuzzer.setAutoDictionarySize(((Number) cmd.getParsedOptionValue("auto-dict-size")).intValue());
+            }
+
+            if (cmd.hasOption("skip-deterministic")) {
+                fuzzer.setDeterministic(false);
+            }
+
+            if (cmd.hasOption("seed")) {
+                fuzzer.setRandomSeed(((Number) cmd.getParsedOptionValue("seed")).longValue());
+            }
+
+            if (cmd.hasOption("min-input-size") || cmd.hasOption("max-input-size")) {
+                int minSize = cmd.hasOption("min-input-size")
+                        ? ((Number) cmd.getParsedOptionValue("min-input-size")).intValue()
+                        : 1;
+                int maxSize = cmd.hasOption("max-input-size")
+                        ? ((Number) cmd.getParsedOptionValue("max-input-size")).intValue()
+                        : AFLMutator.DEFAULT_MAX_INPUT_SIZE;
+                fuzzer.setInputSizeLimits(minSize, maxSize);
+            }
+
+            if (cmd.hasOption("cmplog")) {
+                fuzzer.setCmpLog(cmd.getOptionValue("cmplog"));
+            }
+
             if (cmd.hasOption("time")) {
                 int minutes = ((Number) cmd.getParsedOptionValue("time")).intValue();
                 fuzzer.setDurationMinutes(minutes);
@@ -228,6 +423,24 @@ public class Fuzzer {
                 fuzzer.setTimeout(timeout);
             }
 
+            if (cmd.hasOption("feedback")) {
+                fuzzer.setFeedback(Monitor.Feedback.valueOf(cmd.getOptionValue("feedback").toUpperCase()),
+                        cmd.getOptionValue("rss-launcher", "cgf-rss"));
+            }
+
+            // 设置二进制模式
+            if (cmd.hasOption("binary-only")) {
+                fuzzer.setBinaryOnly(cmd.getOptionValue("tracer", "cgf-untracer"), cmd.getOptionValue("block-list"));
+            }
+
+            // 设置远程执行代理
+            if (cmd.hasOption("remote")) {
+                fuzzer.setRemoteAgents(cmd.getOptionValue("remote").split(","));
+            }
+            if (cmd.hasOption("remote-batch")) {
+                fuzzer.setRemoteBatchSize(((Number) cmd.getParsedOptionValue("remote-batch")).intValue());
+            }
+
             fuzzer.run();
 
         } catch (ParseException e) {
@@ -276,7 +489,125 @@ public class Fuzzer {
         this.timeout = timeout;
     }
 
-    private Executor createExecutor() {
+    /**
+     * 是否对每个种子执行一遍确定性变异阶段，AFL 变异器下默认开启
+     */
+    public void setDeterministic(boolean deterministic) {
+        this.deterministic = deterministic;
+    }
+
+    /**
+     * 设置 havoc 和确定性阶段使用的 token 字典
+     */
+    public void setDictionary(TokenDictionary dictionary) {
+        this.dictionary = dictionary != null ? dictionary : TokenDictionary.EMPTY;
+    }
+
+    /**
+     * 设置自动字典的最大 token 数，按排名取前若干个，0 表示不使用自动字典
+     */
+    public void setAutoDictionarySize(int size) {
+        this.autoDictionarySize = Math.max(0, size);
+    }
+
+    /**
+     * 开启 CmpLog 输入到状态阶段，每个新种子先用插桩了比较指令的程序执行一次
+     *
+     * @param binary 用 trace-cmp 和 sancov_rt 编译的目标程序，为 null 时目标程序本身带有 trace-cmp 插桩
+     */
+    public void setCmpLog(String binary) {
+        if (binary == null || binary.equals(targetProgramPath)) {
+            this.cmpLogBinary = targetProgramPath;
+            this.cmpLogMapSize = mapSize;
+        } else {
+            this.cmpLogBinary = binary;
+            // 单独编译的程序边下标和主程序不同，覆盖写进独立的表，表大小按它自己的边数检测
+            this.cmpLogMapSize = MapSizeDetector.detect(Paths.get(binary));
+        }
+    }
+
+    /**
+     * 设置变长变异允许的输入长度范围，删除不会低于 minSize，插入不会超过 maxSize
+     */
+    public void setInputSizeLimits(int minSize, int maxSize) {
+        if (minSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException("输入长度范围无效: [" + minSize + ", " + maxSize + "]");
+        }
+        this.minInputSize = minSize;
+        this.maxInputSize = maxSize;
+    }
+
+    /**
+     * 设置随机数根种子，启动时按工作线程编号依次 split 出各自的随机数流
+     */
+    public void setRandomSeed(long seed) {
+        this.randomSeed = seed;
+    }
+
+    public void setFeedback(Monitor.Feedback feedback) {
+        setFeedback(feedback, "cgf-rss");
+    }
+
+    /**
+     * @param rssLauncher MEMORY 反馈时用来启动目标程序并记录峰值内存的启动器
+     */
+    public void setFeedback(Monitor.Feedback feedback, String rssLauncher) {
+        monitor.setFeedback(feedback);
+        this.rssLauncher = feedback == Monitor.Feedback.MEMORY ? rssLauncher : null;
+    }
+
+    /**
+     * 设置远程执行代理，工作线程按轮询方式分配到各个代理
+     *
+     * @param agents 代理地址（host:port）
+     */
+    public void setRemoteAgents(String[] agents) {
+        this.remoteAgents = agents != null ? agents : new String[0];
+    }
+
+    public void setRemoteBatchSize(int batchSize) {
+        this.remoteBatchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * 启用二进制模式，使用断点追踪器收集覆盖率
+     *
+     * @param tracerPath 追踪器可执行文件路径
+     * @param blockList  基本块列表文件，为 null 时从符号表读取函数入口
+     */
+    public void setBinaryOnly(String tracerPath, String blockList) throws IOException {
+        this.tracerPath = tracerPath;
+        this.breakpointBlocks = BreakpointBlocks.load(Paths.get(targetProgramPath),
+                blockList != null ? Paths.get(blockList) : null, mapSize);
+        monitor.setSparseTraces(true);
+    }
+
+    private Executor createExecutor() throws IOException {
+        if (remoteAgents.length > 0) {
+            String agent = remoteAgents[workerCounter.getAndIncrement() % remoteAgents.length];
+            return RemoteExecutor.fromAddress(agent, mapSize, timeout);
+        }
+        // 每个工作线程使用独立的共享内存，在执行器的生命周期内保持连接
+        SharedMemoryManager shmManager = new SharedMemoryManager(mapSize);
+        synchronized (workerShmManagers) {
+            workerShmManagers.add(shmManager);
+        }
+        // 二进制模式下目标由追踪器启动，不经过内存启动器
+        SharedMemoryManager rssShm = null;
+        if (rssLauncher != null && breakpointBlocks == null) {
+            rssShm = new SharedMemoryManager(Long.BYTES);
+            synchronized (workerShmManagers) {
+                workerShmManagers.add(rssShm);
+            }
+        }
+        // PERF 反馈需要不回绕的命中次数，由 sancov_rt 写入每条边 4 字节的独立共享内存
+        SharedMemoryManager hitCountShm = null;
+        if (monitor.getFeedback() == Monitor.Feedback.PERF && breakpointBlocks == null) {
+            hitCountShm = new SharedMemoryManager(mapSize * Integer.BYTES);
+            synchronized (workerShmManagers) {
+                workerShmManagers.add(hitCountShm);
+            }
+        }
         ExecutorConfig config = new ExecutorConfig.Builder()
                 .timeout(timeout)
                 .maxRetries(3)
@@ -284,8 +615,32 @@ public class Fuzzer {
                 .outputDir(outputDir)
                 .commandArgs(programArgs)
                 .multipleInputs(hasMultipleInputs())
+                .rssLauncher(rssShm != null ? rssLauncher : null)
+                .build();
+        if (breakpointBlocks != null) {
+            return new BreakpointExecutor(targetProgramPath, tracerPath, breakpointBlocks, shmManager, config);
+        }
+        return new ProcessExecutor(targetProgramPath, shmManager, rssShm, null, hitCountShm, config);
+    }
+
+    /**
+     * CmpLog 执行器只用来收集比较操作数，覆盖率写进不参与评估的独立共享内存
+     */
+    private ProcessExecutor createCmpLogExecutor() throws IOException {
+        SharedMemoryManager traceShm = new SharedMemoryManager(cmpLogMapSize);
+        SharedMemoryManager cmpLogShm = new SharedMemoryManager(CmpLogMap.SIZE);
+        synchronized (workerShmManagers) {
+            workerShmManagers.add(traceShm);
+            workerShmManagers.add(cmpLogShm);
+        }
+        ExecutorConfig config = new ExecutorConfig.Builder()
+                .timeout(timeout)
+                .maxRetries(3)
+                .redirectOutput(true)
+                .outputDir(outputDir)
+                .commandArgs(programArgs)
                 .build();
-        return new ProcessExecutor(targetProgramPath, shmManager, config);
+        return new ProcessExecutor(cmpLogBinary, traceShm, null, cmpLogShm, config);
     }
 
     private boolean hasMultipleInputs() {
@@ -309,12 +664,23 @@ public class Fuzzer {
     }
 
     public void run() {
+        if (cmpLogBinary != null && (remoteAgents.length > 0 || breakpointBlocks != null)) {
+            System.err.println("警告：CmpLog 只支持本地插桩执行，已关闭");
+            cmpLogBinary = null;
+        }
+        loadAutoDictionary();
         printInitialInfo();
         System.out.println("使用 " + numThreads + " 个线程进行模糊测试");
 
-        // 启动多个工作线程
+        // 启动多个工作线程，每个线程使用独立的变异器和随机数流
+        // 随机数流在主线程里按顺序 split，同一个种子总是得到同一组流
+        SplittableRandom rootRandom = new SplittableRandom(randomSeed);
         for (int i = 0; i < numThreads; i++) {
-            executorService.submit(this::fuzzingWorker);
+            Mutator mutator = MutatorFactory.createMutator(mutatorType, rootRandom.split());
+            mutator.setDictionary(dictionary);
+            mutator.setInputSizeLimits(minInputSize, maxInputSize);
+            mutator.setSpliceSource(scheduler::selectSplicePartner);
+            executorService.submit(() -> fuzzingWorker(mutator));
         }
 
         // 等待所有线程完成
@@ -331,9 +697,50 @@ public class Fuzzer {
         }
     }
 
-    private void fuzzingWorker() {
-        Executor threadExecutor = createExecutor();
-        executors.add(threadExecutor);  // Add to list for cleanup
+    /**
+     * 等待自动字典提取完成，把排名靠前的 token 追加到手写字典之后
+     */
+    private void loadAutoDictionary() {
+        if (autoDictionarySize == 0) {
+            autoDictionaryTask.cancel(false);
+            return;
+        }
+        try {
+            List<byte[]> tokens = autoDictionaryTask.join();
+            TokenDictionary auto = TokenDictionary.of(tokens.subList(0, Math.min(autoDictionarySize, tokens.size())));
+            dictionary = dictionary.merge(auto);
+            System.out.println("从目标程序提取自动字典: " + auto.size() + " 个 token");
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+            System.err.println("警告：无法提取自动字典: " + cause.getMessage());
+        }
+    }
+
+    private void fuzzingWorker(Mutator mutator) {
+        Executor threadExecutor;
+        try {
+            threadExecutor = createExecutor();
+        } catch (IOException e) {
+            System.err.println("创建执行器失败: " + e.getMessage());
+            return;
+        }
+        // 每个工作线程都会注册自己的执行器，和 workerShmManagers 一样加锁
+        synchronized (executors) {
+            executors.add(threadExecutor);  // Add to list for cleanup
+        }
+        ProcessExecutor cmpLogExecutor = null;
+        if (cmpLogBinary != null && !hasMultipleInputs()) {
+            try {
+                cmpLogExecutor = createCmpLogExecutor();
+                synchronized (executors) {
+                    executors.add(cmpLogExecutor);
+                }
+            } catch (IOException e) {
+                System.err.println("创建 CmpLog 执行器失败: " + e.getMessage());
+            }
+        }
+        // 本线程复用的变异缓冲区，变异体只在被保留时才复制出来
+        MutationBuffer mutationBuffer = new MutationBuffer();
 
         while (isRunning) {
             // 检查是否达到指定运行时长
@@ -349,12 +756,31 @@ public class Fuzzer {
                     break;
                 }
 
+                // 新种子先按 CmpLog 记录的比较操作数做一遍输入到状态替换
+                InputToStateStage inputToState = currentSeed.getInputToStateStage();
+                if (cmpLogExecutor != null && inputToState != null && inputToState.tryClaim()) {
+                    runInputToState(threadExecutor, cmpLogExecutor, inputToState, currentSeed, mutationBuffer);
+                    continue;
+                }
+
+                // 种子的确定性阶段还没做完时优先推进，已被其它线程持有则照常随机变异
+                DeterministicStage stage = currentSeed.getDeterministicStage();
+                if (deterministic && stage != null && !hasMultipleInputs() && stage.tryAcquire()) {
+                    try {
+                        runDeterministic(threadExecutor, stage, currentSeed, mutationBuffer);
+                    } finally {
+                        stage.release();
+                    }
+                    continue;
+                }
+
                 // 执行变异和测试
-                byte[] mutatedInput = mutator.mutate(currentSeed.getData());
+                int length = mutator.mutate(currentSeed.getData(), mutationBuffer);
+                byte[] mutatedInput = mutationBuffer.array();
+                Mutator.MutationStrategy strategy = mutator.getCurrentStrategy();
+                long operators = mutator.getLastOperators();
 
-                // 创建新的执行结果对象
-                ExecutionResult result = new ExecutionResult();
-                result.setInput(mutatedInput);
+                ExecutionResult result;
 
                 if (hasMultipleInputs()) {
                     // 如果是多输入模式，为每个 @@ 创建一个变异后的输入
@@ -368,39 +794,52 @@ public class Fuzzer {
                     for (int i = 0; i < inputCount; i++) {
                         inputs[i] = mutator.mutate(currentSeed.getData());
                     }
-                    ExecutionResult multiResult = threadExecutor.executeMultipleInputs(inputs);
-                    // 复制执行结果
-                    result.setCoverageData(multiResult.getCoverageData());
-                    result.setExitCode(multiResult.getExitCode());
-                    result.setErrorMessage(multiResult.getErrorMessage());
-                    result.setExecutionTime(multiResult.getExecutionTime());
-                    result.setTimeout(multiResult.isTimeout());
+                    result = threadExecutor.executeMultipleInputs(inputs);
+                } else if (threadExecutor instanceof RemoteExecutor && remoteBatchSize > 1) {
+                    // 远程模式下一次发送一批变异输入，减少网络往返
+                    // 每个变异体来自独立的 mutate 调用，逐个记录各自的变异策略
+                    List<byte[]> batch = new ArrayList<>(remoteBatchSize);
+                    Mutator.MutationStrategy[] strategies = new Mutator.MutationStrategy[remoteBatchSize];
+                    long[] batchOperators = new long[remoteBatchSize];
+                    batch.add(mutationBuffer.toByteArray());
+                    strategies[0] = strategy;
+                    for (int i = 1; i < remoteBatchSize; i++) {
+                        batch.add(mutator.mutate(currentSeed.getData()));
+                        strategies[i] = mutator.getCurrentStrategy();
+                        batchOperators[i] = mutator.getLastOperators();
+                    }
+                    List<ExecutionResult> results = threadExecutor.executeBatch(batch);
+                    for (int i = 1; i < results.size(); i++) {
+                        ExecutionResult item = results.get(i);
+                        item.setParentQueueId(currentSeed.getQueueId());
+                        item.setMutationStrategy(strategies[i]);
+                        boolean interesting = processResult(item, currentSeed);
+                        if (!item.isTransportError()) {
+                            mutator.recordFeedback(batchOperators[i], interesting);
+                        }
+                    }
+                    result = results.get(0);
                 } else {
-                    ExecutionResult execResult = threadExecutor.execute(mutatedInput);
-                    // 复制执行结果
-                    result.setCoverageData(execResult.getCoverageData());
-                    result.setExitCode(execResult.getExitCode());
-                    result.setErrorMessage(execResult.getErrorMessage());
-                    result.setExecutionTime(execResult.getExecutionTime());
-                    result.setTimeout(execResult.isTimeout());
+                    // 结果直接引用执行器的共享内存，不再复制覆盖率数据
+                    result = threadExecutor.execute(mutatedInput, length);
                 }
-
-                totalExecutions.incrementAndGet();
-
-                // 处理执行结果
-                if (result.getExitCode() != 0) {
-                    // handleCrash(result);
-                    crashCount.incrementAndGet();
-                } else if (!result.isTimeout()) {
-                    handleNewCoverage(result, mutatedInput);
+                result.setInput(mutatedInput, length);
+                result.setParentQueueId(currentSeed.getQueueId());
+                result.setMutationStrategy(strategy);
+
+                // 每个结果按产生它的那次 mutate 用到的操作反馈；多输入模式下一次执行对应多个变异体，无法归因，不反馈
+                boolean interesting = processResult(result, currentSeed);
+                if (!hasMultipleInputs() && !result.isTransportError()) {
+                    mutator.recordFeedback(operators, interesting);
                 }
 
-                // 更新监控信息
-                monitor.updateStats(result);
-
                 // Periodically clean up stray files (every 1000 executions)
-                if (totalExecutions.get() % 1000 == 0 && threadExecutor instanceof ProcessExecutor) {
-                    ((ProcessExecutor) threadExecutor).cleanupStrayFiles();
+                if (totalExecutions.get() % 1000 == 0) {
+                    if (threadExecutor instanceof ProcessExecutor) {
+                        ((ProcessExecutor) threadExecutor).cleanupStrayFiles();
+                    } else if (threadExecutor instanceof BreakpointExecutor) {
+                        ((BreakpointExecutor) threadExecutor).cleanupStrayFiles();
+                    }
                 }
             } catch (Exception e) {
                 e.printStackTrace();
@@ -408,22 +847,98 @@ public class Fuzzer {
         }
     }
 
-    private void handleNewCoverage(ExecutionResult result, byte[] mutatedInput) {
+    /**
+     * 用 CmpLog 程序执行种子一次，再逐个执行把比较操作数替换到种子中得到的候选
+     */
+    private void runInputToState(Executor threadExecutor, ProcessExecutor cmpLogExecutor, InputToStateStage stage,
+                                 Seed seed, MutationBuffer mutationBuffer) {
+        ExecutionResult traced = cmpLogExecutor.execute(seed.getData());
+        if (traced.isTimeout()) {
+            return;
+        }
+        stage.begin(CmpLogMap.read(cmpLogExecutor.getCmpLogMap()));
+        while (isRunning && System.currentTimeMillis() < endTimeMillis) {
+            int length = stage.next(mutationBuffer);
+            if (length < 0) {
+                break;
+            }
+            byte[] input = mutationBuffer.array();
+            ExecutionResult result = threadExecutor.execute(input, length);
+            result.setInput(input, length);
+            result.setParentQueueId(seed.getQueueId());
+            result.setMutationStrategy(Mutator.MutationStrategy.INPUT_TO_STATE);
+            processResult(result, seed);
+        }
+    }
+
+    /**
+     * 推进种子的确定性阶段，每个变异体执行后把路径哈希反馈给阶段以建立 effector 表
+     */
+    private void runDeterministic(Executor threadExecutor, DeterministicStage stage, Seed seed,
+                                  MutationBuffer mutationBuffer) {
+        stage.begin(mutationBuffer, dictionary);
+        for (int i = 0; i < DETERMINISTIC_SLICE && isRunning && System.currentTimeMillis() < endTimeMillis; i++) {
+            int length = stage.next(mutationBuffer);
+            if (length < 0) {
+                break;
+            }
+            byte[] input = mutationBuffer.array();
+            ExecutionResult result = threadExecutor.execute(input, length);
+            result.setInput(input, length);
+            result.setParentQueueId(seed.getQueueId());
+            result.setMutationStrategy(stage.getStrategy());
+            processResult(result, seed);
+            stage.report(result.getTraceHash());
+        }
+    }
+
+    /**
+     * @param parent 产生本次输入的种子，发现新覆盖时按发现的数量给它记功
+     * @return 输入是否作为新种子加入了调度队列
+     */
+    private boolean processResult(ExecutionResult result, Seed parent) {
+        // 远程代理不可达时输入没有真正执行，不计入执行次数和崩溃
+        if (result.isTransportError()) {
+            return false;
+        }
+        totalExecutions.incrementAndGet();
+
+        // 每次执行只评估一次覆盖率，分类结果记录在 result 中
         monitor.recordResult(result);
 
-        if (monitor.hasNewCoverage(result.getCoverageData())) {
-            Seed newSeed = new Seed(mutatedInput);
+        // 处理执行结果，超时也会带有非零退出码，不计入崩溃
+        if (result.isTimeout()) {
+            return false;
+        }
+        if (result.getExitCode() != 0) {
+            // handleCrash(result);
+            crashCount.incrementAndGet();
+            return false;
+        }
+        return handleNewCoverage(result, parent);
+    }
+
+    private boolean handleNewCoverage(ExecutionResult result, Seed parent) {
+        // PERF/MEMORY 反馈下抬高了最大命中次数或峰值内存的输入同样进入调度队列
+        if (result.hasNewCoverage() || result.getRaisedMaxCounts() > 0 || result.getRaisedRssPeaks() > 0) {
+            Seed newSeed = new Seed(result.getInput());
+            newSeed.setQueueId(result.getQueueId());
+            newSeed.setEdges(monitor.getCorpusCoverage().get(result.getQueueId()));
             int energy = calculateNewSeedEnergy(result);
             newSeed.setEnergy(energy);
             scheduler.addSeed(newSeed);
 
-            // Update seed performance metrics
-            scheduler.updatePerformance(mutatedInput, result.getExecutionTime(), 1);
-            seedSorter.updateSeedPerformance(mutatedInput, result.getExecutionTime(), 1);
-        } else {
-            scheduler.updatePerformance(mutatedInput, result.getExecutionTime(), 0);
-            seedSorter.updateSeedPerformance(mutatedInput, result.getExecutionTime(), 0);
+            // 新种子和产生它的父种子都按实际发现的新边和新命中次数桶数量更新，
+            // 排序器和能量调度器据此把能量分给真正推动发现的种子
+            int newEdges = result.getNewEdges();
+            int newBuckets = result.getNewBuckets();
+            scheduler.updatePerformance(newSeed.getData(), result.getExecutionTime(), newEdges, newBuckets);
+            if (parent != null && (newEdges > 0 || newBuckets > 0)) {
+                scheduler.updatePerformance(parent.getData(), result.getExecutionTime(), newEdges, newBuckets);
+            }
+            return true;
         }
+        return false;
     }
 
     private void shutdown() {
@@ -442,13 +957,29 @@ public class Fuzzer {
         }
 
         // 清理所有执行器
-        for (Executor executor : executors) {
-            if (executor instanceof ProcessExecutor) {
-                ((ProcessExecutor) executor).cleanupStrayFiles();
+        synchronized (executors) {
+            for (Executor executor : executors) {
+                if (executor instanceof ProcessExecutor) {
+                    ((ProcessExecutor) executor).cleanupStrayFiles();
+                } else if (executor instanceof BreakpointExecutor) {
+                    ((BreakpointExecutor) executor).cleanupStrayFiles();
+                } else if (executor instanceof RemoteExecutor) {
+                    ((RemoteExecutor) executor).close();
+                }
             }
         }
 
         // 清理共享内存
+        synchronized (workerShmManagers) {
+            for (SharedMemoryManager workerShm : workerShmManagers) {
+                try {
+                    workerShm.destroySharedMemory();
+                } catch (Exception e) {
+                    System.err.println("清理共享内存时出错: " + e.getMessage());
+                }
+            }
+            workerShmManagers.clear();
+        }
         if (shmManager != null) {
             try {
                 shmManager.destroySharedMemory();
@@ -484,14 +1015,14 @@ public class Fuzzer {
         final double ENERGY_LIMIT_FACTOR = 3.0;  // 能量上限因子
 
         // 计算覆盖率分数 - 基于是否有新的覆盖
-        double coverageScore = result.getCoverageData() != null && monitor.hasNewCoverage(result.getCoverageData()) ?
-                COVERAGE_WEIGHT : 0;
+        double coverageScore = result.hasNewCoverage() ? COVERAGE_WEIGHT : 0;
 
         // 计算时间效率分数 - 执行时间越短，分数越高
         double timeScore = 1.0 / Math.max(1, Math.sqrt(result.getExecutionTime())) * TIME_WEIGHT;
 
-        // 如果发现了新的覆盖，给予额外奖励
-        double newCoverageBonus = monitor.hasNewCoverage(result.getCoverageData()) ? 2.0 : 1.0;
+        // 发现新边时给予额外奖励，仅命中次数变化时奖励减半
+        double newCoverageBonus = result.getCoverageStatus() == ExecutionResult.CoverageStatus.NEW_EDGE ? 2.0
+                : result.hasNewCoverage() ? 1.5 : 1.0;
 
         // 综合评分计算新的能量值
         int energy = (int) (INITIAL_ENERGY * (coverageScore + timeScore) * newCoverageBonus);
@@ -501,9 +1032,24 @@ public class Fuzzer {
     }
 
     private void printInitialInfo() {
-        System.out.println("- 共享内存大小: " + MAP_SIZE + " bytes");
+        System.out.println("- 共享内存大小: " + mapSize + " bytes");
         System.out.println("- 目标程序路径: " + targetProgramPath);
         System.out.println("- 使用变异器类型: " + mutatorType);
+        if (!dictionary.isEmpty()) {
+            System.out.println("- 字典: " + dictionary.size() + " 个 token");
+        }
+        System.out.println("- 输入长度范围: [" + minInputSize + ", " + maxInputSize + "]");
+        if (cmpLogBinary != null) {
+            System.out.println("- CmpLog: " + cmpLogBinary);
+        }
+        System.out.println("- 确定性变异阶段: " + (deterministic ? "开启" : "关闭"));
+        System.out.println("- 随机数种子: " + randomSeed + " (使用 --seed " + randomSeed + " 复现)");
         System.out.println("- 输出目录: " + outputDir);
+        if (remoteAgents.length > 0) {
+            System.out.println("- 远程执行代理: " + String.join(", ", remoteAgents));
+        }
+        if (breakpointBlocks != null) {
+            System.out.println("- 二进制模式: " + breakpointBlocks.getTotalCount() + " 个基本块断点 (追踪器: " + tracerPath + ")");
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,509 @@
+package com.example.fuzzer.elf;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 最小化的 ELF 文件解析器，只读取模糊测试需要的信息：
+ * 节区表、程序头、符号表以及按节区或虚拟地址读取原始数据
+ * 支持 32/64 位、大小端格式
+ */
+public class ElfFile {
+    public static final int ET_EXEC = 2;
+    public static final int ET_DYN = 3;
+
+    public static final int SHT_SYMTAB = 2;
+    public static final int SHT_NOBITS = 8;
+    public static final int SHT_DYNSYM = 11;
+
+    public static final long SHF_ALLOC = 0x2;
+    public static final long SHF_EXECINSTR = 0x4;
+
+    public static final int PT_LOAD = 1;
+
+    public static final int STT_OBJECT = 1;
+    public static final int STT_FUNC = 2;
+
+    private static final int EI_CLASS = 4;
+    private static final int EI_DATA = 5;
+    private static final int ELFCLASS64 = 2;
+    private static final int ELFDATA2MSB = 2;
+
+    private final ByteBuffer data;
+    private final boolean is64;
+    private final int type;
+    private final int machine;
+    private final long entry;
+    private final List<Section> sections;
+    private final List<Segment> segments;
+    private List<Symbol> symbols;
+
+    private ElfFile(byte[] bytes) throws IOException {
+        if (bytes.length < 16 || bytes[0] != 0x7F || bytes[1] != 'E' || bytes[2] != 'L' || bytes[3] != 'F') {
+            throw new IOException("不是ELF文件");
+        }
+        this.is64 = bytes[EI_CLASS] == ELFCLASS64;
+        this.data = ByteBuffer.wrap(bytes)
+                .order(bytes[EI_DATA] == ELFDATA2MSB ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+
+        try {
+            this.type = u16(16);
+            this.machine = u16(18);
+            this.entry = word(24);
+            long phoff = is64 ? data.getLong(32) : u32(28);
+            long shoff = is64 ? data.getLong(40) : u32(32);
+            int phentsize = u16(is64 ? 54 : 42);
+            int phnum = u16(is64 ? 56 : 44);
+            int shentsize = u16(is64 ? 58 : 46);
+            int shnum = u16(is64 ? 60 : 48);
+            int shstrndx = u16(is64 ? 62 : 50);
+
+            this.segments = readSegments(phoff, phentsize, phnum);
+            this.sections = readSections(shoff, shentsize, shnum, shstrndx);
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException("ELF文件已损坏: " + e.getMessage(), e);
+        }
+    }
+
+    public static ElfFile read(Path path) throws IOException {
+        return new ElfFile(Files.readAllBytes(path));
+    }
+
+    private List<Segment> readSegments(long phoff, int phentsize, int phnum) {
+        List<Segment> result = new ArrayList<>(phnum);
+        for (int i = 0; i < phnum; i++) {
+            int base = (int) (phoff + (long) i * phentsize);
+            if (is64) {
+                result.add(new Segment((int) u32(base), (int) u32(base + 4), data.getLong(base + 8),
+                        data.getLong(base + 16), data.getLong(base + 32), data.getLong(base + 40)));
+            } else {
+                result.add(new Segment((int) u32(base), (int) u32(base + 24), u32(base + 4),
+                        u32(base + 8), u32(base + 16), u32(base + 20)));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private List<Section> readSections(long shoff, int shentsize, int shnum, int shstrndx) {
+        List<Section> result = new ArrayList<>(shnum);
+        long[][] raw = new long[shnum][];
+        for (int i = 0; i < shnum; i++) {
+            int base = (int) (shoff + (long) i * shentsize);
+            if (is64) {
+                raw[i] = new long[]{u32(base), u32(base + 4), data.getLong(base + 8), data.getLong(base + 16),
+                        data.getLong(base + 24), data.getLong(base + 32), u32(base + 40), data.getLong(base + 56)};
+            } else {
+                raw[i] = new long[]{u32(base), u32(base + 4), u32(base + 8), u32(base + 12),
+                        u32(base + 16), u32(base + 20), u32(base + 24), u32(base + 36)};
+            }
+        }
+
+        long strOffset = shstrndx < shnum ? raw[shstrndx][4] : -1;
+        for (int i = 0; i < shnum; i++) {
+            long[] r = raw[i];
+            String name = strOffset >= 0 ? readString(strOffset + r[0]) : "";
+            result.add(new Section(i, name, (int) r[1], r[2], r[3], r[4], r[5], (int) r[6], r[7]));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * 符号表在第一次使用时才解析，构造时的损坏检查覆盖不到这里：
+     * 超出文件的表项到此为止，名称偏移越界的符号直接跳过
+     */
+    private List<Symbol> readSymbols(Section table) {
+        int minEntrySize = is64 ? 24 : 16;
+        if (table.getLink() < 0 || table.getLink() >= sections.size() || table.getEntrySize() < minEntrySize
+                || table.getOffset() < 0 || table.getOffset() >= data.limit()) {
+            return Collections.emptyList();
+        }
+        Section strtab = sections.get(table.getLink());
+        long tableEnd = Math.min(data.limit(), table.getOffset() + Math.max(0, table.getSize()));
+        long strtabEnd = Math.min(data.limit(), strtab.getOffset() + Math.max(0, strtab.getSize()));
+        if (strtab.getOffset() < 0 || tableEnd < table.getOffset() || strtabEnd < strtab.getOffset()) {
+            return Collections.emptyList();
+        }
+        int count = (int) ((tableEnd - table.getOffset()) / table.getEntrySize());
+        List<Symbol> result = new ArrayList<>(count);
+        for (int i = 1; i < count; i++) {
+            int base = (int) (table.getOffset() + i * table.getEntrySize());
+            long nameOffset = u32(base);
+            String name = readString(strtab.getOffset() + nameOffset, strtabEnd);
+            if (name == null) {
+                continue;
+            }
+            int info;
+            int shndx;
+            long value;
+            long size;
+            if (is64) {
+                info = data.get(base + 4) & 0xFF;
+                shndx = u16(base + 6);
+                value = data.getLong(base + 8);
+                size = data.getLong(base + 16);
+            } else {
+                value = u32(base + 4);
+                size = u32(base + 8);
+                info = data.get(base + 12) & 0xFF;
+                shndx = u16(base + 14);
+            }
+            result.add(new Symbol(name, value, size, info & 0xF, info >> 4, shndx));
+        }
+        return result;
+    }
+
+    private String readString(long offset) {
+        String result = readString(offset, data.limit());
+        if (result == null) {
+            throw new IndexOutOfBoundsException("字符串偏移越界: " + offset);
+        }
+        return result;
+    }
+
+    /**
+     * 读取以 0 结尾的字符串，最多读到 end 为止
+     *
+     * @return 偏移不在 [0, end) 之内时返回 null
+     */
+    private String readString(long offset, long end) {
+        if (offset < 0 || offset >= end) {
+            return null;
+        }
+        int start = (int) offset;
+        int stop = start;
+        while (stop < end && data.get(stop) != 0) {
+            stop++;
+        }
+        return new String(data.array(), start, stop - start, StandardCharsets.ISO_8859_1);
+    }
+
+    private int u16(int offset) {
+        return data.getShort(offset) & 0xFFFF;
+    }
+
+    private long u32(int offset) {
+        return data.getInt(offset) & 0xFFFFFFFFL;
+    }
+
+    private long word(int offset) {
+        return is64 ? data.getLong(offset) : u32(offset);
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public int getMachine() {
+        return machine;
+    }
+
+    public long getEntry() {
+        return entry;
+    }
+
+    public boolean is64Bit() {
+        return is64;
+    }
+
+    public boolean isLittleEndian() {
+        return data.order() == ByteOrder.LITTLE_ENDIAN;
+    }
+
+    /**
+     * 位置无关可执行文件（PIE）在运行时会被加载到随机基址
+     */
+    public boolean isPositionIndependent() {
+        return type == ET_DYN;
+    }
+
+    /**
+     * 第一个 PT_LOAD 段的虚拟地址，用于把虚拟地址换算成相对加载基址的偏移
+     */
+    public long getLoadBase() {
+        long base = Long.MAX_VALUE;
+        for (Segment segment : segments) {
+            if (segment.getType() == PT_LOAD) {
+                base = Math.min(base, segment.getVirtualAddress() - segment.getOffset());
+            }
+        }
+        return base == Long.MAX_VALUE ? 0 : base;
+    }
+
+    public List<Section> getSections() {
+        return sections;
+    }
+
+    public List<Segment> getSegments() {
+        return segments;
+    }
+
+    public Section findSection(String name) {
+        for (Section section : sections) {
+            if (section.getName().equals(name)) {
+                return section;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 读取节区在文件中的原始内容，NOBITS 节区（如 .bss）返回空数组
+     */
+    public byte[] readSection(Section section) {
+        if (section.getType() == SHT_NOBITS) {
+            return new byte[0];
+        }
+        int start = (int) Math.min(section.getOffset(), data.limit());
+        int length = (int) Math.min(section.getSize(), data.limit() - start);
+        byte[] result = new byte[length];
+        System.arraycopy(data.array(), start, result, 0, length);
+        return result;
+    }
+
+    /**
+     * 按虚拟地址读取文件中已初始化的数据
+     *
+     * @return 读取到的数据，地址不在任何文件映射的段内时返回 null
+     */
+    public byte[] readVirtual(long address, int length) {
+        for (Segment segment : segments) {
+            if (segment.getType() != PT_LOAD) {
+                continue;
+            }
+            long start = segment.getVirtualAddress();
+            if (address >= start && address + length <= start + segment.getFileSize()) {
+                int fileOffset = (int) (segment.getOffset() + (address - start));
+                if (fileOffset + length > data.limit()) {
+                    return null;
+                }
+                byte[] result = new byte[length];
+                System.arraycopy(data.array(), fileOffset, result, 0, length);
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 读取虚拟地址处的整数（按文件的字节序）
+     */
+    public Long readVirtualWord(long address, int width) {
+        byte[] bytes = readVirtual(address, width);
+        if (bytes == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(data.order());
+        switch (width) {
+            case 1:
+                return (long) (buffer.get() & 0xFF);
+            case 2:
+                return (long) (buffer.getShort() & 0xFFFF);
+            case 4:
+                return buffer.getInt() & 0xFFFFFFFFL;
+            case 8:
+                return buffer.getLong();
+            default:
+                throw new IllegalArgumentException("不支持的宽度: " + width);
+        }
+    }
+
+    /**
+     * 获取符号表，优先使用 .symtab，被 strip 的文件退回到 .dynsym
+     */
+    public synchronized List<Symbol> getSymbols() {
+        if (symbols == null) {
+            List<Symbol> result = new ArrayList<>();
+            for (Section section : sections) {
+                if (section.getType() == SHT_SYMTAB) {
+                    result.addAll(readSymbols(section));
+                }
+            }
+            if (result.isEmpty()) {
+                for (Section section : sections) {
+                    if (section.getType() == SHT_DYNSYM) {
+                        result.addAll(readSymbols(section));
+                    }
+                }
+            }
+            symbols = Collections.unmodifiableList(result);
+        }
+        return symbols;
+    }
+
+    public Symbol findSymbol(String name) {
+        for (Symbol symbol : getSymbols()) {
+            if (symbol.getName().equals(name)) {
+                return symbol;
+            }
+        }
+        return null;
+    }
+
+    public static class Section {
+        private final int index;
+        private final String name;
+        private final int type;
+        private final long flags;
+        private final long address;
+        private final long offset;
+        private final long size;
+        private final int link;
+        private final long entrySize;
+
+        Section(int index, String name, int type, long flags, long address, long offset, long size,
+                int link, long entrySize) {
+            this.index = index;
+            this.name = name;
+            this.type = type;
+            this.flags = flags;
+            this.address = address;
+            this.offset = offset;
+            this.size = size;
+            this.link = link;
+            this.entrySize = entrySize;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getType() {
+            return type;
+        }
+
+        public long getFlags() {
+            return flags;
+        }
+
+        public boolean isExecutable() {
+            return (flags & SHF_EXECINSTR) != 0;
+        }
+
+        public long getAddress() {
+            return address;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public int getLink() {
+            return link;
+        }
+
+        public long getEntrySize() {
+            return entrySize;
+        }
+    }
+
+    public static class Segment {
+        private final int type;
+        private final int flags;
+        private final long offset;
+        private final long virtualAddress;
+        private final long fileSize;
+        private final long memorySize;
+
+        Segment(int type, int flags, long offset, long virtualAddress, long fileSize, long memorySize) {
+            this.type = type;
+            this.flags = flags;
+            this.offset = offset;
+            this.virtualAddress = virtualAddress;
+            this.fileSize = fileSize;
+            this.memorySize = memorySize;
+        }
+
+        public int getType() {
+            return type;
+        }
+
+        public int getFlags() {
+            return flags;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getVirtualAddress() {
+            return virtualAddress;
+        }
+
+        public long getFileSize() {
+            return fileSize;
+        }
+
+        public long getMemorySize() {
+            return memorySize;
+        }
+    }
+
+    public static class Symbol {
+        private final String name;
+        private final long value;
+        private final long size;
+        private final int type;
+        private final int bind;
+        private final int sectionIndex;
+
+        Symbol(String name, long value, long size, int type, int bind, int sectionIndex) {
+            this.name = name;
+            this.value = value;
+            this.size = size;
+            this.type = type;
+            this.bind = bind;
+            this.sectionIndex = sectionIndex;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public int getType() {
+            return type;
+        }
+
+        public int getBind() {
+            return bind;
+        }
+
+        public int getSectionIndex() {
+            return sectionIndex;
+        }
+
+        public boolean isFunction() {
+            return type == STT_FUNC;
+        }
+
+        /**
+         * 是否定义在本文件中（而不是从共享库导入）
+         */
+        public boolean isDefined() {
+            return sectionIndex != 0 && sectionIndex < 0xff00;
+        }
+    }
+}
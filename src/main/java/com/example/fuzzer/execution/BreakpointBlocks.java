@@ -0,0 +1,134 @@
+package com.example.fuzzer.execution;
+
+import com.example.fuzzer.elf.ElfFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 二进制插桩模式下所有工作线程共享的基本块断点集合
+ * 每个基本块在覆盖率表中有固定的下标；一旦被任意执行命中，就从剩余断点中永久移除
+ */
+public class BreakpointBlocks {
+    private final long[] addresses;
+    private final int[] indices;
+    private final boolean positionIndependent;
+    private final long loadBase;
+    private final Set<Long> remaining;
+    private final AtomicLong version = new AtomicLong(0);
+
+    private BreakpointBlocks(long[] addresses, int mapSize, boolean positionIndependent, long loadBase) {
+        this.addresses = addresses;
+        this.indices = new int[addresses.length];
+        this.positionIndependent = positionIndependent;
+        this.loadBase = loadBase;
+        this.remaining = ConcurrentHashMap.newKeySet(addresses.length);
+        for (int i = 0; i < addresses.length; i++) {
+            // 按顺序分配下标，块数量不超过表大小时不会冲突
+            indices[i] = i % mapSize;
+            remaining.add(addresses[i]);
+        }
+    }
+
+    /**
+     * 从目标程序的 ELF 文件中加载基本块地址
+     *
+     * @param targetProgram 目标程序路径
+     * @param blockList     可选的基本块地址列表文件（每行一个十六进制地址），为 null 时使用符号表中的函数入口
+     * @param mapSize       覆盖率表大小
+     */
+    public static BreakpointBlocks load(Path targetProgram, Path blockList, int mapSize) throws IOException {
+        ElfFile elf = ElfFile.read(targetProgram);
+        long[] addresses = blockList != null ? readBlockList(blockList) : readFunctionEntries(elf);
+        if (addresses.length == 0) {
+            throw new IOException("没有找到可放置断点的基本块: " + targetProgram
+                    + (blockList == null ? "（程序可能已被strip，请使用 --block-list 提供基本块列表）" : ""));
+        }
+        if (addresses.length > mapSize) {
+            System.err.println("警告：基本块数量 (" + addresses.length + ") 超过覆盖率表大小 (" + mapSize + ")，下标将发生冲突");
+        }
+        return new BreakpointBlocks(addresses, mapSize, elf.isPositionIndependent(), elf.getLoadBase());
+    }
+
+    private static long[] readFunctionEntries(ElfFile elf) {
+        List<ElfFile.Section> sections = elf.getSections();
+        List<Long> entries = new ArrayList<>();
+        for (ElfFile.Symbol symbol : elf.getSymbols()) {
+            if (!symbol.isFunction() || !symbol.isDefined() || symbol.getValue() == 0
+                    || symbol.getSectionIndex() >= sections.size()) {
+                continue;
+            }
+            if (sections.get(symbol.getSectionIndex()).isExecutable()) {
+                entries.add(symbol.getValue());
+            }
+        }
+        return entries.stream().mapToLong(Long::longValue).distinct().sorted().toArray();
+    }
+
+    private static long[] readBlockList(Path blockList) throws IOException {
+        List<Long> entries = new ArrayList<>();
+        for (String line : Files.readAllLines(blockList)) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            if (trimmed.startsWith("0x") || trimmed.startsWith("0X")) {
+                trimmed = trimmed.substring(2);
+            }
+            entries.add(Long.parseUnsignedLong(trimmed.split("\\s+")[0], 16));
+        }
+        return entries.stream().mapToLong(Long::longValue).distinct().sorted().toArray();
+    }
+
+    /**
+     * 把仍然需要断点的基本块写入追踪器读取的文件
+     */
+    public void writeRemaining(Path file) throws IOException {
+        StringBuilder content = new StringBuilder(remaining.size() * 16 + 64);
+        content.append("pie ").append(positionIndependent ? 1 : 0).append('\n');
+        content.append("base ").append(Long.toHexString(loadBase)).append('\n');
+        for (int i = 0; i < addresses.length; i++) {
+            if (remaining.contains(addresses[i])) {
+                content.append(Long.toHexString(addresses[i])).append(' ').append(indices[i]).append('\n');
+            }
+        }
+        Files.write(file, content.toString().getBytes());
+    }
+
+    /**
+     * 记录一次执行中命中的基本块
+     *
+     * @return 是否有块被首次移除
+     */
+    public boolean markHit(long address) {
+        if (remaining.remove(address)) {
+            version.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    public int indexOf(long address) {
+        int pos = Arrays.binarySearch(addresses, address);
+        return pos >= 0 ? indices[pos] : -1;
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public int getRemainingCount() {
+        return remaining.size();
+    }
+
+    public int getTotalCount() {
+        return addresses.length;
+    }
+}
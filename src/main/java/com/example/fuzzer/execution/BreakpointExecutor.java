@@ -0,0 +1,106 @@
+package com.example.fuzzer.execution;
+
+import com.example.fuzzer.sharedmemory.SharedMemoryManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 针对无法重新编译的二进制程序的执行器
+ * 通过 cgf-untracer 在尚未覆盖的基本块上放置 int3 断点，断点首次命中后永久移除，
+ * 覆盖率写入与插桩模式相同格式的共享内存表。所有块都被覆盖后直接运行目标程序，不再经过追踪器
+ */
+public class BreakpointExecutor implements Executor {
+    private final BreakpointBlocks blocks;
+    private final ProcessExecutor tracedExecutor;
+    private final ProcessExecutor directExecutor;
+    private final Path blocksFile;
+    private final Path hitsFile;
+    private long writtenVersion = -1;
+
+    public BreakpointExecutor(String targetProgramPath, String tracerPath, BreakpointBlocks blocks,
+                              SharedMemoryManager shmManager, ExecutorConfig config) throws IOException {
+        this.blocks = blocks;
+
+        File workDir = new File(config.getOutputDir());
+        workDir.mkdirs();
+        this.blocksFile = File.createTempFile(".untracer_blocks_", "", workDir).toPath();
+        this.hitsFile = File.createTempFile(".untracer_hits_", "", workDir).toPath();
+        blocksFile.toFile().deleteOnExit();
+        hitsFile.toFile().deleteOnExit();
+
+        // 追踪器的命令行：<blocks> <hits> -- <target> [args...]，@@ 占位符仍由 ProcessExecutor 替换
+        String[] targetArgs = config.getCommandArgs();
+        String[] tracerArgs = new String[targetArgs.length + 4];
+        tracerArgs[0] = blocksFile.toString();
+        tracerArgs[1] = hitsFile.toString();
+        tracerArgs[2] = "--";
+        tracerArgs[3] = new File(targetProgramPath).getAbsolutePath();
+        System.arraycopy(targetArgs, 0, tracerArgs, 4, targetArgs.length);
+
+        ExecutorConfig tracerConfig = new ExecutorConfig.Builder()
+                .timeout(config.getTimeoutSeconds())
+                .deleteInputFile(config.isDeleteInputFile())
+                .tempFilePrefix(config.getTempFilePrefix())
+                .tempFileSuffix(config.getTempFileSuffix())
+                .maxRetries(config.getMaxRetries())
+                .redirectOutput(config.isRedirectOutput())
+                .outputDir(config.getOutputDir())
+                .commandArgs(tracerArgs)
+                .multipleInputs(config.isMultipleInputs())
+                .build();
+
+        this.tracedExecutor = new ProcessExecutor(tracerPath, shmManager, tracerConfig);
+        this.directExecutor = new ProcessExecutor(targetProgramPath, shmManager, config);
+    }
+
+    @Override
+    public ExecutionResult execute(byte[] input) {
+        return executeMultipleInputs(new byte[][]{input});
+    }
+
+    @Override
+    public ExecutionResult executeMultipleInputs(byte[][] inputs) {
+        if (blocks.getRemainingCount() == 0) {
+            return directExecutor.executeMultipleInputs(inputs);
+        }
+
+        try {
+            long version = blocks.getVersion();
+            if (version != writtenVersion) {
+                blocks.writeRemaining(blocksFile);
+                writtenVersion = version;
+            }
+            Files.write(hitsFile, new byte[0]);
+        } catch (IOException e) {
+            ExecutionResult result = new ExecutionResult();
+            result.setErrorMessage("无法写入断点列表: " + e.getMessage());
+            result.setExitCode(-1);
+            return result;
+        }
+
+        ExecutionResult result = tracedExecutor.executeMultipleInputs(inputs);
+        collectHits();
+        return result;
+    }
+
+    private void collectHits() {
+        try {
+            List<String> lines = Files.readAllLines(hitsFile);
+            for (String line : lines) {
+                if (!line.isEmpty()) {
+                    blocks.markHit(Long.parseUnsignedLong(line.trim(), 16));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // 追踪器被超时终止时命中文件可能不完整，忽略即可，下次执行会再次命中
+        }
+    }
+
+    public void cleanupStrayFiles() {
+        tracedExecutor.cleanupStrayFiles();
+    }
+}
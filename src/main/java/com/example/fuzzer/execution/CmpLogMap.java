@@ -0,0 +1,131 @@
+package com.example.fuzzer.execution;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * CmpLog 共享内存的布局，和 sancov_rt.c 中的 cmplog_map_t 一致
+ * <pre>
+ * 0   uint32 count      已写入的条目数
+ * 4   uint32 reserved
+ * 8   entry[MAX_ENTRIES]，每个 72 字节：
+ *     uint8 type, uint8 size, uint8 len0, uint8 len1, uint32 site, uint8 v0[32], uint8 v1[32]
+ * </pre>
+ * 整数比较的操作数按本机字节序保存在 v0/v1 的前 8 字节，读取时统一转成 size 字节的小端序。
+ */
+public final class CmpLogMap {
+    public static final int MAX_ENTRIES = 4096;
+    private static final int HEADER_SIZE = 8;
+    private static final int ENTRY_SIZE = 72;
+    private static final int OPERAND_SIZE = 32;
+    public static final int SIZE = HEADER_SIZE + MAX_ENTRIES * ENTRY_SIZE;
+
+    private static final int TYPE_INS = 0;
+    private static final int TYPE_RTN = 1;
+
+    private CmpLogMap() {
+    }
+
+    /**
+     * 每次执行前只需清零条目计数，旧条目会被覆盖
+     */
+    public static void reset(ByteBuffer map) {
+        map.putInt(0, 0);
+    }
+
+    /**
+     * 读出所有比较，两边操作数完全相同的条目只保留一个
+     */
+    public static List<Comparison> read(ByteBuffer map) {
+        ByteBuffer view = map.order() == ByteOrder.nativeOrder()
+                ? map
+                : map.duplicate().order(ByteOrder.nativeOrder());
+        int count = Math.min(view.getInt(0), MAX_ENTRIES);
+        Set<Comparison> comparisons = new LinkedHashSet<>();
+        for (int i = 0; i < count; i++) {
+            int offset = HEADER_SIZE + i * ENTRY_SIZE;
+            int type = view.get(offset) & 0xFF;
+            int size = view.get(offset + 1) & 0xFF;
+            if (type == TYPE_INS && (size == 1 || size == 2 || size == 4 || size == 8)) {
+                comparisons.add(new Comparison(true,
+                        toLittleEndian(view.getLong(offset + 8), size),
+                        toLittleEndian(view.getLong(offset + 8 + OPERAND_SIZE), size)));
+            } else if (type == TYPE_RTN) {
+                int len0 = Math.min(view.get(offset + 2) & 0xFF, OPERAND_SIZE);
+                int len1 = Math.min(view.get(offset + 3) & 0xFF, OPERAND_SIZE);
+                comparisons.add(new Comparison(false,
+                        readBytes(view, offset + 8, len0),
+                        readBytes(view, offset + 8 + OPERAND_SIZE, len1)));
+            }
+        }
+        return new ArrayList<>(comparisons);
+    }
+
+    private static byte[] toLittleEndian(long value, int size) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) (value >>> (8 * i));
+        }
+        return bytes;
+    }
+
+    private static byte[] readBytes(ByteBuffer view, int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = view.get(offset + i);
+        }
+        return bytes;
+    }
+
+    /**
+     * 一次比较的两个操作数
+     */
+    public static final class Comparison {
+        private final boolean integer;
+        private final byte[] left;
+        private final byte[] right;
+
+        public Comparison(boolean integer, byte[] left, byte[] right) {
+            this.integer = integer;
+            this.left = left;
+            this.right = right;
+        }
+
+        /**
+         * 整数比较的两个操作数等宽、小端序；否则是 memcmp/strcmp 的前若干字节，长度可能不同
+         */
+        public boolean isInteger() {
+            return integer;
+        }
+
+        public byte[] getLeft() {
+            return left;
+        }
+
+        public byte[] getRight() {
+            return right;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Comparison)) {
+                return false;
+            }
+            Comparison other = (Comparison) o;
+            return integer == other.integer && Arrays.equals(left, other.left) && Arrays.equals(right, other.right);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Boolean.hashCode(integer) + Arrays.hashCode(left)) + Arrays.hashCode(right);
+        }
+    }
+}
@@ -1,13 +1,45 @@
 package com.example.fuzzer.execution;
 
+import com.example.fuzzer.mutation.Mutator.MutationStrategy;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
 public class ExecutionResult {
+    /**
+     * 一次执行相对于全局 virgin 表的覆盖率分类，每次执行只评估一次
+     */
+    public enum CoverageStatus {
+        NONE,           // 没有新覆盖
+        NEW_HIT_COUNT,  // 已知边出现了新的命中次数桶
+        NEW_EDGE        // 出现了从未命中过的边
+    }
+
     private int exitCode;
     private byte[] coverageData;
+    private ByteBuffer coverageMap;
     private byte[] input;
+    private int inputLength;
     private long executionTime;
     private boolean timeout;
     private String errorMessage;
     private long executionCount = 0;
+    private CoverageStatus coverageStatus = CoverageStatus.NONE;
+    private int[] newCoverage;
+    private int newEdges;
+    private int newBuckets;
+    private boolean traceCleared;
+    private long traceHash;
+    private int pathFrequency;
+    private int queueId;
+    private int parentQueueId;
+    private MutationStrategy mutationStrategy;
+    private int raisedMaxCounts;
+    private long peakRssKb;
+    private int raisedRssPeaks;
+    private boolean transportError;
+    private ByteBuffer hitCounts;
 
     public ExecutionResult() {
         this.executionTime = 0;
@@ -24,20 +56,65 @@ public class ExecutionResult {
         this.exitCode = exitCode;
     }
 
+    /**
+     * 获取覆盖率数据的堆内副本
+     * 如果结果直接引用共享内存，首次调用时才复制，之后返回同一份副本
+     */
     public byte[] getCoverageData() {
+        if (coverageData == null && coverageMap != null && !coverageMap.hasArray()) {
+            byte[] copy = new byte[coverageMap.capacity()];
+            coverageMap.duplicate().clear().get(copy);
+            coverageData = copy;
+        }
         return coverageData;
     }
 
     public void setCoverageData(byte[] coverageData) {
         this.coverageData = coverageData;
+        this.coverageMap = null;
+    }
+
+    /**
+     * 获取覆盖率表的缓冲区视图，本地执行时直接映射共享内存，不产生复制
+     * 共享内存会在同一执行器的下一次执行前被清零，因此只能在处理本次结果期间使用
+     */
+    public ByteBuffer getCoverageMap() {
+        if (coverageMap == null && coverageData != null) {
+            coverageMap = ByteBuffer.wrap(coverageData).order(ByteOrder.nativeOrder());
+        }
+        return coverageMap;
+    }
+
+    public void setCoverageMap(ByteBuffer coverageMap) {
+        this.coverageMap = coverageMap;
+        this.coverageData = null;
     }
 
+    /**
+     * 输入内容，长度恰好为输入长度；引用的是工作线程的变异缓冲区时，
+     * 首次调用才截取一份副本（只有需要保存的输入才会走到这里）
+     */
     public byte[] getInput() {
+        if (input != null && inputLength != input.length) {
+            input = Arrays.copyOf(input, inputLength);
+        }
         return input;
     }
 
+    public int getInputLength() {
+        return inputLength;
+    }
+
     public void setInput(byte[] input) {
+        setInput(input, input != null ? input.length : 0);
+    }
+
+    /**
+     * 引用 input 的前 length 个字节而不复制，input 在本结果处理完之前不能被改写
+     */
+    public void setInput(byte[] input, int length) {
         this.input = input;
+        this.inputLength = length;
     }
 
     public long getExecutionTime() {
@@ -71,4 +148,173 @@ public class ExecutionResult {
     public void setExecutionCount(long executionCount) {
         this.executionCount = executionCount;
     }
+
+    public CoverageStatus getCoverageStatus() {
+        return coverageStatus;
+    }
+
+    public void setCoverageStatus(CoverageStatus coverageStatus) {
+        this.coverageStatus = coverageStatus;
+    }
+
+    public boolean hasNewCoverage() {
+        return coverageStatus != CoverageStatus.NONE;
+    }
+
+    /**
+     * 本次执行新发现的覆盖条目，只有存在新覆盖时才非空
+     * 条目格式见 {@code VirginMap.Diff}
+     */
+    public int[] getNewCoverage() {
+        return newCoverage;
+    }
+
+    public void setNewCoverage(int[] newCoverage) {
+        this.newCoverage = newCoverage;
+    }
+
+    /**
+     * 本次执行新发现的边数（相对于全局 virgin 表）
+     */
+    public int getNewEdges() {
+        return newEdges;
+    }
+
+    public void setNewEdges(int newEdges) {
+        this.newEdges = newEdges;
+    }
+
+    /**
+     * 本次执行在已知边上新出现的命中次数桶数
+     */
+    public int getNewBuckets() {
+        return newBuckets;
+    }
+
+    public void setNewBuckets(int newBuckets) {
+        this.newBuckets = newBuckets;
+    }
+
+    /**
+     * 覆盖率评估时共享内存中的覆盖率表已被清零，执行器下次执行前无需再清零
+     * 此时 {@link #getCoverageMap()} 读到的全是 0
+     */
+    public boolean isTraceCleared() {
+        return traceCleared;
+    }
+
+    public void setTraceCleared(boolean traceCleared) {
+        this.traceCleared = traceCleared;
+    }
+
+    /**
+     * 分桶后覆盖率表的 64 位路径哈希，相同的哈希表示相同的执行路径
+     */
+    public long getTraceHash() {
+        return traceHash;
+    }
+
+    public void setTraceHash(long traceHash) {
+        this.traceHash = traceHash;
+    }
+
+    /**
+     * 包括本次在内，该路径累计被执行的次数
+     */
+    public int getPathFrequency() {
+        return pathFrequency;
+    }
+
+    public void setPathFrequency(int pathFrequency) {
+        this.pathFrequency = pathFrequency;
+    }
+
+    /**
+     * 进入队列时分配的编号，没有进入队列时为 0
+     */
+    public int getQueueId() {
+        return queueId;
+    }
+
+    public void setQueueId(int queueId) {
+        this.queueId = queueId;
+    }
+
+    /**
+     * 产生本次输入的种子的队列编号，初始种子为 0
+     */
+    public int getParentQueueId() {
+        return parentQueueId;
+    }
+
+    public void setParentQueueId(int parentQueueId) {
+        this.parentQueueId = parentQueueId;
+    }
+
+    /**
+     * 产生本次输入的变异策略，未知时为 null
+     */
+    public MutationStrategy getMutationStrategy() {
+        return mutationStrategy;
+    }
+
+    public void setMutationStrategy(MutationStrategy mutationStrategy) {
+        this.mutationStrategy = mutationStrategy;
+    }
+
+    /**
+     * PERF 反馈模式下本次执行抬高了最大命中次数的边数
+     */
+    public int getRaisedMaxCounts() {
+        return raisedMaxCounts;
+    }
+
+    public void setRaisedMaxCounts(int raisedMaxCounts) {
+        this.raisedMaxCounts = raisedMaxCounts;
+    }
+
+    /**
+     * 目标进程的峰值 RSS（KB），没有通过 cgf-rss 启动时为 0
+     */
+    public long getPeakRssKb() {
+        return peakRssKb;
+    }
+
+    public void setPeakRssKb(long peakRssKb) {
+        this.peakRssKb = peakRssKb;
+    }
+
+    /**
+     * MEMORY 反馈模式下本次执行抬高了峰值内存高水位的边数
+     */
+    public int getRaisedRssPeaks() {
+        return raisedRssPeaks;
+    }
+
+    public void setRaisedRssPeaks(int raisedRssPeaks) {
+        this.raisedRssPeaks = raisedRssPeaks;
+    }
+
+    /**
+     * PERF 反馈时 sancov_rt 记录的每条边 32 位饱和命中次数（本机字节序），直接引用共享内存；
+     * 没有这张表时为 null，只能使用覆盖率表中会回绕的 8 位计数
+     */
+    public ByteBuffer getHitCounts() {
+        return hitCounts;
+    }
+
+    public void setHitCounts(ByteBuffer hitCounts) {
+        this.hitCounts = hitCounts;
+    }
+
+    /**
+     * 远程执行因连接失败或响应超时没有得到结果，输入并没有被执行
+     */
+    public boolean isTransportError() {
+        return transportError;
+    }
+
+    public void setTransportError(boolean transportError) {
+        this.transportError = transportError;
+    }
 }
@@ -1,7 +1,31 @@
 package com.example.fuzzer.execution;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 public interface Executor {
     ExecutionResult execute(byte[] input);
 
+    /**
+     * 执行 input 的前 length 个字节，供复用变异缓冲区的调用方使用
+     * 默认截取一份副本后调用 {@link #execute(byte[])}，执行器可以覆盖以避免复制
+     */
+    default ExecutionResult execute(byte[] input, int length) {
+        return execute(length == input.length ? input : Arrays.copyOf(input, length));
+    }
+
     ExecutionResult executeMultipleInputs(byte[][] inputs);
+
+    /**
+     * 批量执行多个输入，默认逐个调用 {@link #execute(byte[])}
+     * 远程执行器会覆盖此方法，把整批输入放进一次网络往返
+     */
+    default List<ExecutionResult> executeBatch(List<byte[]> inputs) {
+        List<ExecutionResult> results = new ArrayList<>(inputs.size());
+        for (byte[] input : inputs) {
+            results.add(execute(input));
+        }
+        return results;
+    }
 }
@@ -10,6 +10,7 @@ public class ExecutorConfig {
     private String outputDir = "output";
     private String[] commandArgs = new String[0];  // 命令行参数数组
     private boolean multipleInputs = false;  // 新增：是否使用多输入模式
+    private String rssLauncher;  // 记录峰值内存的启动器，为 null 时直接启动目标程序
 
     // getter 和 setter 方法
     public int getTimeoutSeconds() {
@@ -96,6 +97,14 @@ public class ExecutorConfig {
         this.multipleInputs = multipleInputs;
     }
 
+    public String getRssLauncher() {
+        return rssLauncher;
+    }
+
+    public void setRssLauncher(String rssLauncher) {
+        this.rssLauncher = rssLauncher;
+    }
+
     // Builder 模式
     public static class Builder {
         private ExecutorConfig config = new ExecutorConfig();
@@ -145,6 +154,11 @@ public class ExecutorConfig {
             return this;
         }
 
+        public Builder rssLauncher(String launcher) {
+            config.setRssLauncher(launcher);
+            return this;
+        }
+
         public ExecutorConfig build() {
             return config;
         }
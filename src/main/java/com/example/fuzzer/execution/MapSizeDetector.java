@@ -0,0 +1,112 @@
+package com.example.fuzzer.execution;
+
+import com.example.fuzzer.elf.ElfFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 确定目标程序需要的覆盖率表大小
+ * 按顺序尝试：
+ * <ol>
+ *     <li>读取 ELF 中的 {@code __afl_final_loc}（AFL++ LTO 模式在链接时写入的最大边下标）</li>
+ *     <li>以 {@code AFL_DUMP_MAP_SIZE=1} 运行目标程序，AFL++ 插桩和 sancov_rt 会打印表大小后退出</li>
+ * </ol>
+ * 都失败时使用默认的 65536。结果按 64 字节向上取整。
+ */
+public final class MapSizeDetector {
+    public static final int DEFAULT_MAP_SIZE = 65536;
+    // 新覆盖条目把下标左移 9 位打包进 int，表不能超过这个大小
+    public static final int MAX_MAP_SIZE = 1 << 22;
+    private static final int MAP_SIZE_ALIGNMENT = 64;
+    private static final long DUMP_TIMEOUT_SECONDS = 5;
+
+    private MapSizeDetector() {
+    }
+
+    /**
+     * 把表大小按 64 字节向上取整，并检查上限
+     */
+    public static int align(long size) {
+        if (size <= 0 || size > MAX_MAP_SIZE) {
+            throw new IllegalArgumentException("覆盖率表大小必须在 1 到 " + MAX_MAP_SIZE + " 之间: " + size);
+        }
+        return (int) ((size + MAP_SIZE_ALIGNMENT - 1) / MAP_SIZE_ALIGNMENT * MAP_SIZE_ALIGNMENT);
+    }
+
+    public static int detect(Path targetProgram) {
+        Long size = readFinalLoc(targetProgram);
+        String source = "__afl_final_loc";
+        if (size == null) {
+            size = dumpMapSize(targetProgram);
+            source = "AFL_DUMP_MAP_SIZE";
+        }
+        if (size == null || size <= 0) {
+            return DEFAULT_MAP_SIZE;
+        }
+        if (size > MAX_MAP_SIZE) {
+            System.err.println("警告：目标程序需要的覆盖率表大小 (" + size + ") 超过上限，使用 " + MAX_MAP_SIZE);
+            return MAX_MAP_SIZE;
+        }
+        int aligned = align(size);
+        System.out.println("从 " + source + " 检测到覆盖率表大小: " + aligned);
+        return aligned;
+    }
+
+    private static Long readFinalLoc(Path targetProgram) {
+        try {
+            ElfFile elf = ElfFile.read(targetProgram);
+            ElfFile.Symbol symbol = elf.findSymbol("__afl_final_loc");
+            if (symbol == null || !symbol.isDefined()) {
+                return null;
+            }
+            Long finalLoc = elf.readVirtualWord(symbol.getValue(), 4);
+            // 0 表示不是 LTO 构建，下标在运行时才分配
+            return finalLoc == null || finalLoc == 0 ? null : finalLoc + 1;
+        } catch (IOException | RuntimeException e) {
+            // 符号表损坏但仍能运行的程序继续尝试 AFL_DUMP_MAP_SIZE
+            return null;
+        }
+    }
+
+    private static Long dumpMapSize(Path targetProgram) {
+        Process process = null;
+        try {
+            ProcessBuilder pb = new ProcessBuilder(targetProgram.toString());
+            pb.environment().put("AFL_DUMP_MAP_SIZE", "1");
+            pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+            pb.redirectInput(ProcessBuilder.Redirect.PIPE);
+            process = pb.start();
+            process.getOutputStream().close();
+
+            // 先等待退出再读取输出，未插桩且不退出的程序不会阻塞检测
+            if (!process.waitFor(DUMP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                return null;
+            }
+            String firstLine;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                firstLine = reader.readLine();
+            }
+            if (firstLine == null) {
+                return null;
+            }
+            // 未插桩的程序会照常运行，只有输出恰好是一个数字时才采信
+            String trimmed = firstLine.trim();
+            return trimmed.matches("\\d{1,10}") ? Long.parseLong(trimmed) : null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            if (process != null && process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+}
@@ -13,24 +13,81 @@ public class ProcessExecutor implements Executor {
     private final String targetProgramPath;
     private final SharedMemoryManager shmManager;
     private final ExecutorConfig config;
+    private final SharedMemoryManager rssShm;
+    private final SharedMemoryManager cmpLogShm;
+    private final SharedMemoryManager hitCountShm;
+    private ExecutionResult lastResult;
 
     public ProcessExecutor(String targetProgramPath, SharedMemoryManager shmManager) {
         this(targetProgramPath, shmManager, new ExecutorConfig());
     }
 
     public ProcessExecutor(String targetProgramPath, SharedMemoryManager shmManager, ExecutorConfig config) {
+        this(targetProgramPath, shmManager, null, config);
+    }
+
+    /**
+     * @param rssShm 接收 cgf-rss 写入的峰值 RSS 的共享内存（至少 8 字节），
+     *               为 null 时即使配置了启动器也不记录内存
+     */
+    public ProcessExecutor(String targetProgramPath, SharedMemoryManager shmManager, SharedMemoryManager rssShm,
+                           ExecutorConfig config) {
+        this(targetProgramPath, shmManager, rssShm, null, config);
+    }
+
+    /**
+     * @param cmpLogShm 接收 trace-cmp 插桩记录的比较操作数的共享内存（{@link CmpLogMap#SIZE} 字节），
+     *                  为 null 时不记录
+     */
+    public ProcessExecutor(String targetProgramPath, SharedMemoryManager shmManager, SharedMemoryManager rssShm,
+                           SharedMemoryManager cmpLogShm, ExecutorConfig config) {
+        this(targetProgramPath, shmManager, rssShm, cmpLogShm, null, config);
+    }
+
+    /**
+     * @param hitCountShm 接收 sancov_rt 记录的 32 位饱和命中次数的共享内存（每条边 4 字节），
+     *                    PERF 反馈使用，为 null 时不记录
+     */
+    public ProcessExecutor(String targetProgramPath, SharedMemoryManager shmManager, SharedMemoryManager rssShm,
+                           SharedMemoryManager cmpLogShm, SharedMemoryManager hitCountShm, ExecutorConfig config) {
         this.targetProgramPath = targetProgramPath;
         this.shmManager = shmManager;
+        this.rssShm = config.getRssLauncher() != null ? rssShm : null;
+        this.cmpLogShm = cmpLogShm;
+        this.hitCountShm = hitCountShm;
         this.config = config;
     }
 
+    /**
+     * 最近一次执行记录的比较操作数，按 {@link CmpLogMap} 的布局读取；没有配置 CmpLog 时返回 null
+     */
+    public ByteBuffer getCmpLogMap() {
+        return cmpLogShm != null ? cmpLogShm.getCoverageMap() : null;
+    }
+
     @Override
     public ExecutionResult execute(byte[] input) {
-        return executeMultipleInputs(new byte[][]{input});
+        return execute(input, input.length);
+    }
+
+    /**
+     * 直接把缓冲区的前 length 个字节写给目标，结果引用同一个数组而不复制
+     */
+    @Override
+    public ExecutionResult execute(byte[] input, int length) {
+        return executeInputs(new byte[][]{input}, new int[]{length});
     }
 
     @Override
     public ExecutionResult executeMultipleInputs(byte[][] inputs) {
+        int[] lengths = new int[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            lengths[i] = inputs[i].length;
+        }
+        return executeInputs(inputs, lengths);
+    }
+
+    private ExecutionResult executeInputs(byte[][] inputs, int[] lengths) {
         ExecutionResult result = new ExecutionResult();
         List<File> inputFiles = new ArrayList<>();
         long startTime = System.currentTimeMillis();
@@ -54,7 +111,7 @@ public class ProcessExecutor implements Executor {
             if (inputFileCount > 0) {
                 // Create files for each input when we have @@ arguments
                 for (int i = 0; i < inputs.length; i++) {
-                    File inputFile = writeInputToFile(inputs[i]);
+                    File inputFile = writeInputToFile(inputs[i], lengths[i]);
                     if (inputFile == null) {
                         throw new IOException("Failed to create input file " + (i + 1));
                     }
@@ -62,14 +119,14 @@ public class ProcessExecutor implements Executor {
                 }
             } else if (inputs.length > 0) {
                 // If no @@ but we have input, create one file for stdin
-                File inputFile = writeInputToFile(inputs[0]);
+                File inputFile = writeInputToFile(inputs[0], lengths[0]);
                 if (inputFile == null) {
                     throw new IOException("Failed to create input file");
                 }
                 inputFiles.add(inputFile);
             }
 
-            result = executeProcess(inputFiles, inputs);
+            result = executeProcess(inputFiles, inputs, lengths);
 
         } catch (Exception e) {
             result.setErrorMessage(e.getMessage());
@@ -84,23 +141,33 @@ public class ProcessExecutor implements Executor {
             result.setExecutionTime(System.currentTimeMillis() - startTime);
         }
 
+        lastResult = result;
         return result;
     }
 
-    private ExecutionResult executeProcess(List<File> inputFiles, byte[][] inputs) throws IOException, InterruptedException {
+    private ExecutionResult executeProcess(List<File> inputFiles, byte[][] inputs, int[] lengths)
+            throws IOException, InterruptedException {
         ExecutionResult result = new ExecutionResult();
-        // 使用ByteBuffer优化内存使用
-        int totalLength = 0;
-        for (byte[] input : inputs) {
-            totalLength += input.length;
-        }
-        ByteBuffer buffer = ByteBuffer.allocate(totalLength);
-        for (byte[] input : inputs) {
-            buffer.put(input);
+        if (inputs.length == 1) {
+            // 单输入直接引用调用方的数组
+            result.setInput(inputs[0], lengths[0]);
+        } else {
+            // 使用ByteBuffer优化内存使用
+            int totalLength = 0;
+            for (int length : lengths) {
+                totalLength += length;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(totalLength);
+            for (int i = 0; i < inputs.length; i++) {
+                buffer.put(inputs[i], 0, lengths[i]);
+            }
+            result.setInput(buffer.array());
         }
-        result.setInput(buffer.array());
 
         List<String> command = new ArrayList<>();
+        if (rssShm != null) {
+            command.add(config.getRssLauncher());
+        }
         command.add(targetProgramPath);
 
         boolean hasInputFileArg = false;
@@ -120,6 +187,17 @@ public class ProcessExecutor implements Executor {
         ProcessBuilder pb = new ProcessBuilder(command);
         Map<String, String> env = pb.environment();
         env.put("__AFL_SHM_ID", String.valueOf(shmManager.getShmId()));
+        // 告知插桩运行时实际的表大小，避免边下标越界或被截断
+        env.put("AFL_MAP_SIZE", String.valueOf(shmManager.getSize()));
+        if (rssShm != null) {
+            env.put("__CGF_RSS_SHM_ID", String.valueOf(rssShm.getShmId()));
+        }
+        if (cmpLogShm != null) {
+            env.put("__AFL_CMPLOG_SHM_ID", String.valueOf(cmpLogShm.getShmId()));
+        }
+        if (hitCountShm != null) {
+            env.put("__CGF_HITCOUNT_SHM_ID", String.valueOf(hitCountShm.getShmId()));
+        }
 
         if (config.isRedirectOutput()) {
             File outputDir = new File(config.getOutputDir());
@@ -128,8 +206,23 @@ public class ProcessExecutor implements Executor {
             }
         }
 
+        // 上一次的覆盖率表已在评估时被清零的话，首次尝试前不必再清零
+        boolean needsReset = lastResult == null || !lastResult.isTraceCleared();
         int retryCount = 0;
         while (retryCount <= config.getMaxRetries()) {
+            // 每次执行前原地清零覆盖率表
+            if (needsReset || retryCount > 0) {
+                shmManager.reset();
+            }
+            if (rssShm != null) {
+                rssShm.getCoverageMap().putLong(0, 0);
+            }
+            if (cmpLogShm != null) {
+                CmpLogMap.reset(cmpLogShm.getCoverageMap());
+            }
+            if (hitCountShm != null) {
+                hitCountShm.reset();
+            }
             Process process = pb.start();
             Future<Boolean> timeoutFuture = null;
             ExecutorService timeoutExecutor = null;
@@ -139,7 +232,7 @@ public class ProcessExecutor implements Executor {
                 // 如果没有通过命令行参数指定输入文件，则通过标准输入传入第一个输入
                 if (!hasInputFileArg && inputs.length > 0) {
                     try (OutputStream stdin = process.getOutputStream()) {
-                        stdin.write(inputs[0]);
+                        stdin.write(inputs[0], 0, lengths[0]);
                         stdin.flush();
                     }
                 }
@@ -161,21 +254,22 @@ public class ProcessExecutor implements Executor {
 
                     if (!finished) {
                         handleTimeout(process, result);
+                        // 进程在返回前（finally 中）被终止，保留它被终止前写下的覆盖，用于超时去重
+                        result.setCoverageMap(shmManager.getCoverageMap());
                         return result; // Return immediately after timeout
                     }
 
                     result.setExitCode(process.exitValue());
                     handleProcessOutput(process, result);
-
-                    // 获取覆盖率数据
-                    byte[] coverageData = shmManager.readSharedMemory();
-                    if (coverageData == null) {
-                        result.setErrorMessage("无法读取覆盖率数据");
-                        retryCount++;
-                        continue;
+                    if (rssShm != null) {
+                        result.setPeakRssKb(rssShm.getCoverageMap().getLong(0));
+                    }
+                    if (hitCountShm != null) {
+                        result.setHitCounts(hitCountShm.getCoverageMap());
                     }
 
-                    result.setCoverageData(coverageData);
+                    // 直接引用映射的共享内存，不再复制覆盖率数据
+                    result.setCoverageMap(shmManager.getCoverageMap());
                     return result;
 
                 } catch (ExecutionException e) {
@@ -242,7 +336,7 @@ public class ProcessExecutor implements Executor {
         }
     }
 
-    private File writeInputToFile(byte[] input) {
+    private File writeInputToFile(byte[] input, int length) {
         File tempFile = null;
         FileOutputStream fos = null;
 
@@ -253,7 +347,7 @@ public class ProcessExecutor implements Executor {
                     new File(config.getOutputDir())  // Store temp files in output directory for better management
             );
             fos = new FileOutputStream(tempFile);
-            fos.write(input);
+            fos.write(input, 0, length);
             return tempFile;
         } catch (IOException e) {
             if (tempFile != null) {
@@ -0,0 +1,246 @@
+package com.example.fuzzer.execution.remote;
+
+import com.example.fuzzer.execution.ExecutionResult;
+import com.example.fuzzer.execution.ExecutorConfig;
+import com.example.fuzzer.execution.MapSizeDetector;
+import com.example.fuzzer.execution.ProcessExecutor;
+import com.example.fuzzer.sharedmemory.SharedMemoryManager;
+import org.apache.commons.cli.*;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 远程执行代理：在执行机上运行目标程序，把执行结果回传给中心 Fuzzer
+ * 每个连接使用独立的共享内存和 {@link ProcessExecutor}，一个代理可以同时服务多个工作线程
+ * <p>
+ * 用法：java -cp fuzzer.jar com.example.fuzzer.execution.remote.ExecutionAgent -p ./target -l 7391
+ */
+public class ExecutionAgent implements AutoCloseable {
+    private final int port;
+    private final String targetProgramPath;
+    private final String[] programArgs;
+    private final int timeout;
+    private final Path workDir;
+    private final AtomicInteger connectionCount = new AtomicInteger(0);
+    private final ExecutorService connectionPool;
+    private volatile boolean isRunning = true;
+    private ServerSocket serverSocket;
+
+    public ExecutionAgent(int port, String targetProgramPath, String[] programArgs, int timeout, String workDir) {
+        this.port = port;
+        this.targetProgramPath = targetProgramPath;
+        this.programArgs = programArgs != null ? programArgs : new String[0];
+        this.timeout = timeout;
+        this.workDir = Paths.get(workDir);
+        this.connectionPool = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "Agent-Connection-" + connectionCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options();
+
+        options.addOption(Option.builder("p")
+                .longOpt("program")
+                .desc("目标程序路径")
+                .hasArg()
+                .required()
+                .build());
+
+        options.addOption(Option.builder("l")
+                .longOpt("port")
+                .desc("监听端口，默认为" + RemoteProtocol.DEFAULT_PORT)
+                .hasArg()
+                .type(Number.class)
+                .build());
+
+        options.addOption(Option.builder("to")
+                .longOpt("timeout")
+                .desc("单个测试用例的超时时间(秒)，默认为1秒")
+                .hasArg()
+                .type(Number.class)
+                .build());
+
+        options.addOption(Option.builder("c")
+                .longOpt("target-cmdline")
+                .desc("目标程序的完整命令行，使用@@作为输入文件占位符")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("w")
+                .longOpt("work-dir")
+                .desc("存放临时输入文件的目录，默认为agent_work")
+                .hasArg()
+                .build());
+
+        CommandLineParser parser = new DefaultParser();
+        HelpFormatter formatter = new HelpFormatter();
+
+        try {
+            CommandLine cmd = parser.parse(options, args);
+
+            int port = cmd.hasOption("port")
+                    ? ((Number) cmd.getParsedOptionValue("port")).intValue()
+                    : RemoteProtocol.DEFAULT_PORT;
+            int timeout = cmd.hasOption("timeout")
+                    ? ((Number) cmd.getParsedOptionValue("timeout")).intValue()
+                    : 1;
+            String targetCmdline = cmd.getOptionValue("target-cmdline", "").trim();
+            String[] programArgs = targetCmdline.isEmpty() ? new String[0] : targetCmdline.split("\\s+");
+
+            try (ExecutionAgent agent = new ExecutionAgent(port, cmd.getOptionValue("program"), programArgs,
+                    timeout, cmd.getOptionValue("work-dir", "agent_work"))) {
+                agent.serve();
+            }
+        } catch (ParseException e) {
+            System.out.println(e.getMessage());
+            formatter.printHelp("ExecutionAgent", options);
+            System.exit(1);
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 开始监听并阻塞直到代理被关闭
+     */
+    public void serve() throws IOException {
+        Files.createDirectories(workDir);
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port));
+        System.out.println("执行代理已启动，监听端口 " + serverSocket.getLocalPort() + "，目标程序: " + targetProgramPath);
+
+        while (isRunning) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!isRunning) {
+                    break;
+                }
+                throw e;
+            }
+            connectionPool.submit(() -> handleConnection(socket));
+        }
+    }
+
+    private void handleConnection(Socket socket) {
+        String peer = String.valueOf(socket.getRemoteSocketAddress());
+        SharedMemoryManager shmManager = null;
+        try (Socket s = socket) {
+            s.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), 64 * 1024));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream(), 64 * 1024));
+
+            // 握手：协商协议版本和覆盖率表大小
+            int magic = in.readInt();
+            short version = in.readShort();
+            int mapSize = in.readInt();
+            boolean accepted = magic == RemoteProtocol.MAGIC && version == RemoteProtocol.VERSION && mapSize > 0
+                    && mapSize <= MapSizeDetector.MAX_MAP_SIZE;
+            out.writeInt(RemoteProtocol.MAGIC);
+            out.writeShort(RemoteProtocol.VERSION);
+            out.writeByte(accepted ? RemoteProtocol.STATUS_OK : RemoteProtocol.STATUS_REJECTED);
+            out.writeInt(mapSize);
+            out.flush();
+            if (!accepted) {
+                System.err.println("拒绝来自 " + peer + " 的连接: 协议不匹配");
+                return;
+            }
+
+            shmManager = new SharedMemoryManager(mapSize);
+            ProcessExecutor executor = createExecutor(shmManager);
+            System.out.println("接受来自 " + peer + " 的连接 (map size: " + mapSize + ")");
+
+            while (isRunning) {
+                byte type = in.readByte();
+                if (type == RemoteProtocol.MSG_CLOSE) {
+                    break;
+                }
+                if (type != RemoteProtocol.MSG_EXEC) {
+                    throw new IOException("未知的消息类型: " + type);
+                }
+
+                int count = in.readInt();
+                if (count < 0 || count > RemoteProtocol.MAX_BATCH_SIZE) {
+                    throw new IOException("非法的批大小: " + count);
+                }
+                byte[][][] batch = new byte[count][][];
+                for (int i = 0; i < count; i++) {
+                    int inputCount = in.readInt();
+                    if (inputCount < 0 || inputCount > RemoteProtocol.MAX_BATCH_SIZE) {
+                        throw new IOException("非法的输入数量: " + inputCount);
+                    }
+                    batch[i] = new byte[inputCount][];
+                    for (int j = 0; j < inputCount; j++) {
+                        byte[] input = new byte[RemoteProtocol.checkLength(in.readInt())];
+                        in.readFully(input);
+                        batch[i][j] = input;
+                    }
+                }
+
+                out.writeByte(RemoteProtocol.MSG_RESULT);
+                out.writeInt(count);
+                for (byte[][] inputs : batch) {
+                    ExecutionResult result = executor.executeMultipleInputs(inputs);
+                    RemoteProtocol.writeResult(out, result, mapSize);
+                }
+                out.flush();
+            }
+        } catch (EOFException e) {
+            // 客户端断开连接
+        } catch (IOException e) {
+            System.err.println("与 " + peer + " 的连接出错: " + e.getMessage());
+        } finally {
+            if (shmManager != null) {
+                shmManager.destroySharedMemory();
+            }
+            System.out.println("连接已关闭: " + peer);
+        }
+    }
+
+    private ProcessExecutor createExecutor(SharedMemoryManager shmManager) {
+        int inputCount = 0;
+        for (String arg : programArgs) {
+            if ("@@".equals(arg)) {
+                inputCount++;
+            }
+        }
+        ExecutorConfig config = new ExecutorConfig.Builder()
+                .timeout(timeout)
+                .maxRetries(3)
+                .redirectOutput(true)
+                .outputDir(workDir.toString())
+                .commandArgs(programArgs)
+                .multipleInputs(inputCount > 1)
+                .build();
+        return new ProcessExecutor(targetProgramPath, shmManager, config);
+    }
+
+    @Override
+    public void close() {
+        isRunning = false;
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+        connectionPool.shutdownNow();
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.fuzzer.execution.remote;
+
+import com.example.fuzzer.execution.ExecutionResult;
+import com.example.fuzzer.execution.Executor;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 通过 TCP 把输入交给远程 {@link ExecutionAgent} 执行的执行器
+ * 语料库和覆盖率状态仍然保存在本地，代理只负责运行目标程序并回传结果
+ * 每个工作线程持有自己的连接，因此本类不是线程安全的
+ * 连接失败或响应超时的结果标记为传输失败（{@link ExecutionResult#isTransportError()}），不算作执行或崩溃；
+ * 之后按指数退避等待再重连，代理宕机时工作线程不会空转。
+ */
+public class RemoteExecutor implements Executor, AutoCloseable {
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    // 读超时 = 单次执行超时 × 本批执行数 + 余量，余量覆盖代理的重试和网络延迟
+    private static final int READ_TIMEOUT_SLACK_MS = 10000;
+    private static final long RECONNECT_BACKOFF_MIN_MS = 100;
+    private static final long RECONNECT_BACKOFF_MAX_MS = 5000;
+
+    private final String host;
+    private final int port;
+    private final int mapSize;
+    private final int timeoutSeconds;
+    private Socket socket;
+    private DataInputStream in;
+    private DataOutputStream out;
+    private long reconnectBackoff = RECONNECT_BACKOFF_MIN_MS;
+    private long nextConnectTime;
+
+    /**
+     * @param timeoutSeconds 单次执行的超时时间，用于计算等待代理响应的读超时
+     */
+    public RemoteExecutor(String host, int port, int mapSize, int timeoutSeconds) {
+        this.host = host;
+        this.port = port;
+        this.mapSize = mapSize;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    /**
+     * 解析 host:port 形式的代理地址，端口缺省时使用默认端口
+     */
+    public static RemoteExecutor fromAddress(String address, int mapSize, int timeoutSeconds) {
+        String host = address.trim();
+        int port = RemoteProtocol.DEFAULT_PORT;
+        int colon = host.lastIndexOf(':');
+        if (colon > 0) {
+            port = Integer.parseInt(host.substring(colon + 1));
+            host = host.substring(0, colon);
+        }
+        return new RemoteExecutor(host, port, mapSize, timeoutSeconds);
+    }
+
+    @Override
+    public ExecutionResult execute(byte[] input) {
+        return executeMultipleInputs(new byte[][]{input});
+    }
+
+    @Override
+    public ExecutionResult executeMultipleInputs(byte[][] inputs) {
+        return send(Collections.singletonList(inputs)).get(0);
+    }
+
+    @Override
+    public List<ExecutionResult> executeBatch(List<byte[]> inputs) {
+        List<byte[][]> executions = new ArrayList<>(inputs.size());
+        for (byte[] input : inputs) {
+            executions.add(new byte[][]{input});
+        }
+        return send(executions);
+    }
+
+    private List<ExecutionResult> send(List<byte[][]> executions) {
+        List<ExecutionResult> results = new ArrayList<>(executions.size());
+        try {
+            ensureConnected();
+            socket.setSoTimeout(readTimeoutMillis(executions.size()));
+
+            out.writeByte(RemoteProtocol.MSG_EXEC);
+            out.writeInt(executions.size());
+            for (byte[][] inputs : executions) {
+                out.writeInt(inputs.length);
+                for (byte[] input : inputs) {
+                    out.writeInt(input.length);
+                    out.write(input);
+                }
+            }
+            out.flush();
+
+            byte type = in.readByte();
+            if (type != RemoteProtocol.MSG_RESULT) {
+                throw new IOException("意外的响应类型: " + type);
+            }
+            int count = in.readInt();
+            if (count != executions.size()) {
+                throw new IOException("结果数量不匹配: " + count + " != " + executions.size());
+            }
+            for (byte[][] inputs : executions) {
+                ExecutionResult result = RemoteProtocol.readResult(in, mapSize);
+                result.setInput(inputs.length == 1 ? inputs[0] : concat(inputs));
+                results.add(result);
+            }
+            reconnectBackoff = RECONNECT_BACKOFF_MIN_MS;
+        } catch (IOException e) {
+            // 连接出错或超时时丢弃连接，退避一段时间后再重新建立
+            disconnect();
+            nextConnectTime = System.currentTimeMillis() + reconnectBackoff;
+            reconnectBackoff = Math.min(reconnectBackoff * 2, RECONNECT_BACKOFF_MAX_MS);
+            results.clear();
+            for (byte[][] inputs : executions) {
+                ExecutionResult result = new ExecutionResult();
+                result.setInput(inputs.length == 1 ? inputs[0] : concat(inputs));
+                result.setErrorMessage("远程执行失败 (" + host + ":" + port + "): " + e.getMessage());
+                result.setExitCode(-1);
+                result.setTransportError(true);
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    private int readTimeoutMillis(int executions) {
+        long millis = (long) timeoutSeconds * 1000 * executions + READ_TIMEOUT_SLACK_MS;
+        return (int) Math.min(millis, Integer.MAX_VALUE);
+    }
+
+    private void ensureConnected() throws IOException {
+        if (socket != null && !socket.isClosed()) {
+            return;
+        }
+        long wait = nextConnectTime - System.currentTimeMillis();
+        if (wait > 0) {
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待重连时被中断");
+            }
+        }
+
+        Socket s = new Socket();
+        try {
+            s.setTcpNoDelay(true);
+            s.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            s.setSoTimeout(CONNECT_TIMEOUT_MS);
+            DataOutputStream o = new DataOutputStream(new BufferedOutputStream(s.getOutputStream(), 64 * 1024));
+            DataInputStream i = new DataInputStream(new BufferedInputStream(s.getInputStream(), 64 * 1024));
+
+            o.writeInt(RemoteProtocol.MAGIC);
+            o.writeShort(RemoteProtocol.VERSION);
+            o.writeInt(mapSize);
+            o.flush();
+
+            if (i.readInt() != RemoteProtocol.MAGIC) {
+                throw new IOException("对端不是执行代理");
+            }
+            short version = i.readShort();
+            byte status = i.readByte();
+            int agentMapSize = i.readInt();
+            if (version != RemoteProtocol.VERSION || status != RemoteProtocol.STATUS_OK) {
+                throw new IOException("代理拒绝连接 (version=" + version + ", status=" + status + ")");
+            }
+            if (agentMapSize != mapSize) {
+                throw new IOException("代理的覆盖率表大小不一致: " + agentMapSize + " != " + mapSize);
+            }
+
+            this.socket = s;
+            this.out = o;
+            this.in = i;
+        } catch (IOException e) {
+            s.close();
+            throw e;
+        }
+    }
+
+    private void disconnect() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+        socket = null;
+        in = null;
+        out = null;
+    }
+
+    private static byte[] concat(byte[][] inputs) {
+        int total = 0;
+        for (byte[] input : inputs) {
+            total += input.length;
+        }
+        byte[] all = new byte[total];
+        int offset = 0;
+        for (byte[] input : inputs) {
+            System.arraycopy(input, 0, all, offset, input.length);
+            offset += input.length;
+        }
+        return all;
+    }
+
+    public String getAddress() {
+        return host + ":" + port;
+    }
+
+    @Override
+    public void close() {
+        if (out != null) {
+            try {
+                out.writeByte(RemoteProtocol.MSG_CLOSE);
+                out.flush();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+        disconnect();
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.fuzzer.execution.remote;
+
+import com.example.fuzzer.execution.ExecutionResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 远程执行代理使用的二进制协议
+ * <p>
+ * 所有整数均为大端序。一次会话的消息流：
+ * <pre>
+ * 客户端 -> 代理: HELLO  magic:int version:short mapSize:int
+ * 代理 -> 客户端: HELLO  magic:int version:short status:byte mapSize:int
+ * 客户端 -> 代理: EXEC   type:byte count:int { inputCount:int { len:int data } }
+ * 代理 -> 客户端: RESULT type:byte count:int { 执行结果 }
+ * 客户端 -> 代理: CLOSE  type:byte
+ * </pre>
+ * 覆盖率数据按稀疏（变长编码的下标差值 + 命中值）或 Deflate 压缩两种方式中较小的一种传输。
+ */
+final class RemoteProtocol {
+    static final int MAGIC = 0x43474652; // "CGFR"
+    static final short VERSION = 1;
+
+    static final byte MSG_EXEC = 1;
+    static final byte MSG_RESULT = 2;
+    static final byte MSG_CLOSE = 3;
+
+    static final byte STATUS_OK = 0;
+    static final byte STATUS_REJECTED = 1;
+
+    static final int DEFAULT_PORT = 7391;
+
+    // 单个输入的大小上限，防止损坏的数据流导致巨大的内存分配
+    static final int MAX_INPUT_LENGTH = 64 * 1024 * 1024;
+    static final int MAX_BATCH_SIZE = 4096;
+
+    private static final byte FLAG_TIMEOUT = 1;
+    private static final byte FLAG_ERROR = 1 << 1;
+
+    private static final byte COVERAGE_NONE = 0;
+    private static final byte COVERAGE_SPARSE = 1;
+    private static final byte COVERAGE_DEFLATE = 2;
+
+    private RemoteProtocol() {
+    }
+
+    static void writeResult(DataOutputStream out, ExecutionResult result, int mapSize) throws IOException {
+        byte flags = 0;
+        if (result.isTimeout()) flags |= FLAG_TIMEOUT;
+        if (result.getErrorMessage() != null) flags |= FLAG_ERROR;
+
+        out.writeInt(result.getExitCode());
+        out.writeByte(flags);
+        out.writeLong(result.getExecutionTime());
+        if (result.getErrorMessage() != null) {
+            out.writeUTF(truncate(result.getErrorMessage()));
+        }
+        writeCoverage(out, result.getCoverageMap(), mapSize);
+    }
+
+    static ExecutionResult readResult(DataInputStream in, int mapSize) throws IOException {
+        ExecutionResult result = new ExecutionResult();
+        result.setExitCode(in.readInt());
+        byte flags = in.readByte();
+        result.setTimeout((flags & FLAG_TIMEOUT) != 0);
+        result.setExecutionTime(in.readLong());
+        if ((flags & FLAG_ERROR) != 0) {
+            result.setErrorMessage(in.readUTF());
+        }
+        result.setCoverageData(readCoverage(in, mapSize));
+        return result;
+    }
+
+    private static void writeCoverage(DataOutputStream out, ByteBuffer coverage, int mapSize) throws IOException {
+        if (coverage == null) {
+            out.writeByte(COVERAGE_NONE);
+            return;
+        }
+
+        // 直接从共享内存编码，不复制覆盖率表
+        int limit = Math.min(mapSize, coverage.capacity());
+        ByteArrayOutputStream sparse = new ByteArrayOutputStream();
+        int previous = 0;
+        int entries = 0;
+        for (int i = 0; i < limit; i++) {
+            byte value = coverage.get(i);
+            if (value != 0) {
+                writeVarInt(sparse, i - previous);
+                sparse.write(value);
+                previous = i;
+                entries++;
+            }
+        }
+
+        byte[] deflated = deflate(coverage, limit);
+        if (deflated.length < sparse.size()) {
+            out.writeByte(COVERAGE_DEFLATE);
+            out.writeInt(deflated.length);
+            out.write(deflated);
+        } else {
+            out.writeByte(COVERAGE_SPARSE);
+            out.writeInt(entries);
+            out.writeInt(sparse.size());
+            sparse.writeTo(out);
+        }
+    }
+
+    private static byte[] readCoverage(DataInputStream in, int mapSize) throws IOException {
+        byte encoding = in.readByte();
+        switch (encoding) {
+            case COVERAGE_NONE:
+                return null;
+            case COVERAGE_SPARSE: {
+                int entries = in.readInt();
+                int length = checkLength(in.readInt());
+                byte[] encoded = new byte[length];
+                in.readFully(encoded);
+
+                byte[] coverage = new byte[mapSize];
+                int[] cursor = {0};
+                int index = 0;
+                for (int i = 0; i < entries; i++) {
+                    index += readVarInt(encoded, cursor);
+                    if (index < 0 || index >= mapSize || cursor[0] >= encoded.length) {
+                        throw new IOException("覆盖率数据损坏: 下标越界 " + index);
+                    }
+                    coverage[index] = encoded[cursor[0]++];
+                }
+                return coverage;
+            }
+            case COVERAGE_DEFLATE: {
+                byte[] compressed = new byte[checkLength(in.readInt())];
+                in.readFully(compressed);
+                return inflate(compressed, mapSize);
+            }
+            default:
+                throw new IOException("未知的覆盖率编码: " + encoding);
+        }
+    }
+
+    static int checkLength(int length) throws IOException {
+        if (length < 0 || length > MAX_INPUT_LENGTH) {
+            throw new IOException("非法的数据长度: " + length);
+        }
+        return length;
+    }
+
+    private static byte[] deflate(ByteBuffer data, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            ByteBuffer input = data.duplicate();
+            input.clear().limit(length);
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                out.write(chunk, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed, int mapSize) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] coverage = new byte[mapSize];
+            int offset = 0;
+            while (!inflater.finished() && offset < mapSize) {
+                int n = inflater.inflate(coverage, offset, mapSize - offset);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                offset += n;
+            }
+            return coverage;
+        } catch (DataFormatException e) {
+            throw new IOException("覆盖率数据解压失败: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(byte[] data, int[] cursor) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (cursor[0] >= data.length) {
+                throw new IOException("覆盖率数据损坏: 变长整数被截断");
+            }
+            byte b = data[cursor[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("覆盖率数据损坏: 变长整数过长");
+    }
+
+    private static String truncate(String message) {
+        // writeUTF 最多只能写 65535 字节
+        return message.length() > 1024 ? message.substring(0, 1024) : message;
+    }
+}
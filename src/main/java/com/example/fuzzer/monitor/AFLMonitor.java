@@ -1,11 +1,17 @@
 package com.example.fuzzer.monitor;
 
 import com.example.fuzzer.execution.ExecutionResult;
+import com.example.fuzzer.execution.ExecutionResult.CoverageStatus;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
@@ -17,13 +23,26 @@ public class AFLMonitor implements Monitor, AutoCloseable {
     private static final String PROGRESS_BAR_CHARS = " ▏▎▍▌▋▊▉█";
     private static final int PROGRESS_BAR_WIDTH = 40;
     private static final long STATUS_UPDATE_INTERVAL = 1000; // 每秒更新一次
-    private final byte[] globalCoverage;
+    private final VirginMap virginBits;
+    private final VirginMap virginCrash;
+    private final VirginMap virginTmout;
+    private final FaultIndex crashIndex = new FaultIndex();
+    private final FaultIndex hangIndex = new FaultIndex();
+    private final long emptyTraceHash;
+    private volatile boolean sparseTraces;
+    private final PathTable pathTable = new PathTable();
+    private final CorpusCoverage corpusCoverage;
+    private final EdgeAttribution edgeAttribution;
+    private volatile Feedback feedback = Feedback.COVERAGE;
+    private volatile MaxCountMap maxCounts;
+    private volatile MemoryHighWater memoryHighWater;
+    private final ThreadLocal<VirginMap.Diff> coverageDiffs = ThreadLocal.withInitial(VirginMap.Diff::new);
     private final int mapSize;
     private final long startTime;
     private final AtomicLong totalExecutions;
     private final int totalEdges;
     private final AtomicInteger coveredEdges;
-    private final ReentrantLock coverageLock;
+    private final AtomicBoolean outputDirty = new AtomicBoolean(false);
     private final OutputManager outputManager;
     private final AtomicInteger crashCount;
     private final AtomicInteger queueCount;
@@ -45,8 +64,13 @@ public class AFLMonitor implements Monitor, AutoCloseable {
     public AFLMonitor(int mapSize, String outputPath) throws IOException {
         this.mapSize = mapSize;
         this.outputPath = outputPath;
-        this.globalCoverage = new byte[mapSize];
+        this.virginBits = new VirginMap(mapSize);
+        this.virginCrash = new VirginMap(mapSize);
+        this.virginTmout = new VirginMap(mapSize);
+        this.emptyTraceHash = TraceHash.finish(TraceHash.start(mapSize));
+        this.corpusCoverage = new CorpusCoverage(mapSize);
         this.startTime = System.currentTimeMillis();
+        this.edgeAttribution = new EdgeAttribution(mapSize, startTime);
         this.lastUpdateTime = startTime;
         this.lastFindTime = startTime;
         this.lastCrashTime = 0;
@@ -54,7 +78,6 @@ public class AFLMonitor implements Monitor, AutoCloseable {
         this.totalExecutions = new AtomicLong(0);
         this.totalEdges = mapSize;
         this.coveredEdges = new AtomicInteger(0);
-        this.coverageLock = new ReentrantLock();
         this.outputManager = new OutputManager(outputPath);
         this.crashCount = new AtomicInteger(0);
         this.queueCount = new AtomicInteger(0);
@@ -78,11 +101,10 @@ public class AFLMonitor implements Monitor, AutoCloseable {
                 STATUS_UPDATE_INTERVAL,
                 TimeUnit.MILLISECONDS
         );
-
-        updateCoveredEdges();
     }
 
     private void updateStatusPeriodically() {
+        flushOutput();
         if (outputLock.tryLock()) {
             try {
                 long currentTime = System.currentTimeMillis();
@@ -98,6 +120,31 @@ public class AFLMonitor implements Monitor, AutoCloseable {
         }
     }
 
+    /**
+     * 设置反馈类型，PERF 模式下额外维护每条边的最大命中次数
+     */
+    public void setFeedback(Feedback feedback) {
+        if (feedback == Feedback.PERF && maxCounts == null) {
+            maxCounts = new MaxCountMap(mapSize);
+        }
+        if (feedback == Feedback.MEMORY && memoryHighWater == null) {
+            memoryHighWater = new MemoryHighWater(mapSize);
+        }
+        this.feedback = feedback;
+    }
+
+    public Feedback getFeedback() {
+        return feedback;
+    }
+
+    /**
+     * 执行器只报告第一次命中的块（二进制模式的断点追踪器），已覆盖代码中的崩溃和超时覆盖率表为空，
+     * 不能再按类别 virgin 表去重
+     */
+    public void setSparseTraces(boolean sparseTraces) {
+        this.sparseTraces = sparseTraces;
+    }
+
     public void setTargetInfo(String targetProgram, String[] programArgs) {
         this.targetProgram = targetProgram;
         this.programArgs = programArgs;
@@ -114,81 +161,167 @@ public class AFLMonitor implements Monitor, AutoCloseable {
 
     @Override
     public void recordResult(ExecutionResult result) {
-        if (result == null) {
+        if (result == null || result.isTransportError()) {
             return;
         }
 
         long execCount = totalExecutions.incrementAndGet();
         result.setExecutionCount(execCount);
-        boolean newCoverage = false;
 
         try {
-            // 处理异常情况优先
-            if (result.isTimeout()) {
-                // 保存超时输入
-                long executionTime = result.getExecutionTime();
-                outputManager.saveHangInput(result.getInput(), executionTime);
-                hangCount.incrementAndGet();
-                lastHangTime = System.currentTimeMillis();
+            totalExecutionTime.addAndGet(result.getExecutionTime());
 
-                // Update execution statistics
-                totalExecutionTime.addAndGet(executionTime);
+            // 记录边覆盖，直接读取执行器映射的共享内存；超时的执行也保留了被终止前的覆盖
+            ByteBuffer coverageData = result.getCoverageMap();
 
-                // 更新统计信息
-                try {
-                    updateStats();
-                } catch (IOException e) {
-                    System.err.println("更新统计信息失败: " + e.getMessage());
+            if (result.isTimeout()) {
+                hangCount.incrementAndGet();
+                // 只有在超时执行中出现新边（或第一次超时）时才保存，同一个慢路径不会重复落盘
+                CoverageStatus status = coverageData != null
+                        ? mergeInto(virginTmout, coverageData, result)
+                        : CoverageStatus.NONE;
+                if (isUniqueFault(hangIndex, status, result, coverageData == null)) {
+                    outputManager.saveHangInput(result.getInput(), result.getExecutionTime(), result.getTraceHash());
+                    lastHangTime = System.currentTimeMillis();
                 }
-                return; // Skip coverage processing for timeout cases
+                outputDirty.set(true);
+                return;
             }
 
-            // 记录边覆盖
-            byte[] coverageData = result.getCoverageData();
             if (coverageData == null) {
                 return;
             }
 
-            coverageLock.lock();
-            try {
-                for (int i = 0; i < mapSize; i++) {
-                    if (globalCoverage[i] == 0 && coverageData[i] != 0) {
-                        globalCoverage[i] = coverageData[i];
-                        newCoverage = true;
-                    }
+            if (result.getExitCode() != 0) {
+                crashCount.incrementAndGet();
+                // 崩溃的覆盖不进入主 virgin 表和队列，只按崩溃类别去重
+                CoverageStatus status = mergeInto(virginCrash, coverageData, result);
+                if (isUniqueFault(crashIndex, status, result, false)) {
+                    outputManager.saveCrashInput(result.getInput(), result.getExitCode(), result.getTraceHash());
+                    lastCrashTime = System.currentTimeMillis();
                 }
+                outputDirty.set(true);
+                return;
+            }
 
-                // 保存所有输入到队列
-                String id = String.format("%06d", queueCount.incrementAndGet());
-                outputManager.saveQueueInput(result.getInput(), id, result, newCoverage);
+            // 最大命中次数必须在分桶之前读取原始计数
+            MaxCountMap perf = feedback == Feedback.PERF ? maxCounts : null;
+            if (perf != null) {
+                result.setRaisedMaxCounts(perf.update(coverageData, result.getHitCounts()));
+            }
+            MemoryHighWater memory = feedback == Feedback.MEMORY ? memoryHighWater : null;
+            if (memory != null) {
+                result.setRaisedRssPeaks(memory.update(coverageData, result.getPeakRssKb()));
+            }
 
-                if (newCoverage) {
-                    updateCoveredEdges();
-                    lastFindTime = System.currentTimeMillis();
-                    updateStats();
-                }
+            // 没有新覆盖时合并会清零覆盖率表，抬高了最大命中次数或峰值内存的执行要先取出覆盖的边
+            boolean raised = result.getRaisedMaxCounts() > 0 || result.getRaisedRssPeaks() > 0;
+            EdgeSet raisedEdges = raised ? EdgeSet.fromTrace(coverageData, mapSize) : null;
 
-                // 更新bitmap文件
-                outputManager.writeFuzzBitmap(globalCoverage);
-            } finally {
-                coverageLock.unlock();
-            }
+            CoverageStatus status = mergeInto(virginBits, coverageData, result);
+            result.setCoverageStatus(status);
 
-            if (result.getExitCode() != 0) {
-                // 保存crash输入
-                outputManager.saveCrashInput(result.getInput(), result.getExitCode());
-                crashCount.incrementAndGet();
-                lastCrashTime = System.currentTimeMillis();
+            if (status == CoverageStatus.NONE && raised) {
+                // 这些输入同样进入调度队列，分配正式的队列编号，子代的 parent_id 和拼接都依赖它
+                int queueId = queueCount.incrementAndGet();
+                result.setQueueId(queueId);
+                corpusCoverage.add(queueId, raisedEdges);
+                if (result.getRaisedMaxCounts() > 0) {
+                    outputManager.savePerfInput(result.getInput(), result);
+                }
+                if (result.getRaisedRssPeaks() > 0) {
+                    Path saved = outputManager.saveMemoryInput(result.getInput(), result);
+                    memory.recordOffender(result.getPeakRssKb(), saved.getFileName().toString());
+                }
+                lastFindTime = System.currentTimeMillis();
+                outputDirty.set(true);
             }
 
-            // Update execution statistics
-            totalExecutionTime.addAndGet(result.getExecutionTime());
+            if (status != CoverageStatus.NONE) {
+                // 只有带来新覆盖的输入才进入队列，文件名唯一，不需要同步
+                int queueId = queueCount.incrementAndGet();
+                result.setQueueId(queueId);
+                // 有新覆盖时覆盖率表保留了分桶后的结果，直接从中提取条目覆盖的边
+                EdgeSet edges = EdgeSet.fromTrace(coverageData, mapSize);
+                corpusCoverage.add(queueId, edges);
+                edgeAttribution.record(queueId, result, edges);
+                outputManager.saveQueueInput(result.getInput(), String.format("%06d", queueId), result, true);
+
+                if (status == CoverageStatus.NEW_EDGE) {
+                    coveredEdges.accumulateAndGet(virginBits.getCoveredCount(), Math::max);
+                    lastCoverageIncrease.set(System.currentTimeMillis());
+                }
+                lastFindTime = System.currentTimeMillis();
+
+                // 统计文件和 bitmap 由状态线程定期写出
+                outputDirty.set(true);
+            }
 
         } catch (IOException e) {
             System.err.println("Error writing output: " + e.getMessage());
         }
     }
 
+    /**
+     * 崩溃和超时是否需要保存：类别 virgin 表出现新边，或者这个退出码（信号）第一次出现。
+     * 覆盖率表不可靠时（二进制模式、空覆盖率表）改按退出码加路径哈希去重
+     */
+    private boolean isUniqueFault(FaultIndex index, CoverageStatus status, ExecutionResult result, boolean noTrace) {
+        boolean unique = index.exitCodes.add(result.getExitCode()) | status == CoverageStatus.NEW_EDGE;
+        if (noTrace || sparseTraces || result.getTraceHash() == emptyTraceHash) {
+            unique |= index.paths.add(result.getTraceHash() * 31 + result.getExitCode());
+        }
+        return unique;
+    }
+
+    /**
+     * 分桶、比较、合并一次完成且不加锁，没有新覆盖时不会在 Java 中读取任何覆盖率字节
+     * 路径哈希和新覆盖条目记录在 result 中
+     */
+    private CoverageStatus mergeInto(VirginMap virgin, ByteBuffer coverageData, ExecutionResult result) {
+        // 路径表只记录已合并进主 virgin 表的正常执行，崩溃和超时的路径不能让正常执行跳过比较
+        boolean main = virgin == virginBits;
+        VirginMap.Diff diff = coverageDiffs.get();
+        CoverageStatus status = virgin.merge(coverageData, diff, main ? pathTable : null);
+        result.setTraceCleared(diff.isTraceCleared());
+        result.setTraceHash(diff.getTraceHash());
+        if (main) {
+            result.setPathFrequency(pathTable.record(diff.getTraceHash()));
+            result.setNewEdges(diff.getNewEdges());
+            result.setNewBuckets(diff.getNewBuckets());
+        }
+        if (status != CoverageStatus.NONE) {
+            result.setNewCoverage(diff.copyEntries());
+        }
+        return status;
+    }
+
+    /**
+     * 写出统计文件和 fuzz_bitmap
+     * 只在状态线程和结束时调用，执行线程发现新覆盖时只设置标记，不做共享文件的 I/O
+     */
+    private void flushOutput() {
+        if (!outputDirty.getAndSet(false)) {
+            return;
+        }
+        outputLock.lock();
+        try {
+            if (memoryHighWater != null) {
+                outputManager.setMemoryStats(memoryHighWater);
+            }
+            updateStats();
+            outputManager.appendEdgeAttribution(edgeAttribution.drainPending());
+            outputManager.writeFuzzBitmap(virginBits.toByteArray());
+            if (maxCounts != null) {
+                outputManager.writeMaxCounts(maxCounts.toByteArray());
+            }
+        } catch (IOException e) {
+            System.err.println("更新统计信息失败: " + e.getMessage());
+        } finally {
+            outputLock.unlock();
+        }
+    }
+
     private void updateStats() throws IOException {
         long currentTime = System.currentTimeMillis();
         long runTime = (currentTime - startTime) / 1000;
@@ -215,15 +348,16 @@ public class AFLMonitor implements Monitor, AutoCloseable {
                 runTime,
                 totalExecs,
                 queueCount.get(),
-                crashCount.get(),
-                hangCount.get(),
+                outputManager.getUniqueCrashCount(),
+                outputManager.getUniqueHangCount(),
                 coveragePercent);
         outputManager.appendPlotData(plotLine);
 
         // 生成可读的覆盖率报告
         try {
-            outputManager.writeCoverageReport(globalCoverage, totalExecutions, startTime,
-                    peakExecSpeed, queueCount.get(), crashCount.get(), hangCount.get());
+            outputManager.writeCoverageReport(virginBits.toCoverageBytes(), totalExecutions, startTime,
+                    peakExecSpeed, queueCount.get(),
+                    outputManager.getUniqueCrashCount(), outputManager.getUniqueHangCount());
         } catch (IOException e) {
             System.err.println("生成覆盖率报告失败: " + e.getMessage());
         }
@@ -236,16 +370,6 @@ public class AFLMonitor implements Monitor, AutoCloseable {
         recordResult(result);
     }
 
-    private void updateCoveredEdges() {
-        int covered = 0;
-        for (int i = 0; i < mapSize; i++) {
-            if (globalCoverage[i] != 0) {
-                covered++;
-            }
-        }
-        coveredEdges.set(covered);
-    }
-
     private String getProgressBar(double percentage) {
         StringBuilder bar = new StringBuilder();
         int fullBlocks = (int) ((percentage * PROGRESS_BAR_WIDTH) / 100);
@@ -339,6 +463,7 @@ public class AFLMonitor implements Monitor, AutoCloseable {
     }
 
     public void printFinalStats() {
+        flushOutput();
         outputLock.lock();
         try {
             System.out.println("\n\n\033[1m最终测试统计:\033[0m");
@@ -365,6 +490,13 @@ public class AFLMonitor implements Monitor, AutoCloseable {
 
             // 测试用例统计
             System.out.printf("\033[1m有效测试用例:\033[0m %d\n", queueCount.get());
+            if (feedback == Feedback.PERF) {
+                System.out.printf("\033[1m最大命中次数用例:\033[0m %d\n", outputManager.getPerfQueueCount());
+            }
+            if (memoryHighWater != null) {
+                System.out.printf("\033[1m高内存用例:\033[0m %d (峰值 %,d KB)\n",
+                        outputManager.getMemoryQueueCount(), memoryHighWater.getOverallPeak());
+            }
 
             // crash统计
             int crashes = outputManager.getUniqueCrashCount();
@@ -394,8 +526,9 @@ public class AFLMonitor implements Monitor, AutoCloseable {
 
             // 生成覆盖率报告
             try {
-                outputManager.writeCoverageReport(globalCoverage, totalExecutions, startTime,
-                        peakExecSpeed, queueCount.get(), crashCount.get(), hangCount.get());
+                outputManager.writeCoverageReport(virginBits.toCoverageBytes(), totalExecutions, startTime,
+                        peakExecSpeed, queueCount.get(),
+                    outputManager.getUniqueCrashCount(), outputManager.getUniqueHangCount());
             } catch (IOException e) {
                 System.err.println("生成覆盖率报告失败: " + e.getMessage());
             }
@@ -405,17 +538,46 @@ public class AFLMonitor implements Monitor, AutoCloseable {
     }
 
     public boolean hasNewCoverage(byte[] coverageData) {
-        coverageLock.lock();
-        try {
-            for (int i = 0; i < mapSize; i++) {
-                if (globalCoverage[i] == 0 && coverageData[i] != 0) {
-                    return true;
-                }
-            }
+        return coverageData != null && hasNewCoverage(ByteBuffer.wrap(coverageData));
+    }
+
+    /**
+     * 检查一份未分桶的原始覆盖率表是否包含新覆盖，不修改任何状态
+     * 正常执行流程应直接使用 {@link ExecutionResult#getCoverageStatus()}
+     */
+    public boolean hasNewCoverage(ByteBuffer coverageData) {
+        if (coverageData == null) {
             return false;
-        } finally {
-            coverageLock.unlock();
         }
+        return virginBits.check(coverageData) != CoverageStatus.NONE;
+    }
+
+    /**
+     * 获取某条路径被执行的次数，用于 AFLFast 风格的能量分配
+     */
+    public int getPathFrequency(long traceHash) {
+        return pathTable.getFrequency(traceHash);
+    }
+
+    /**
+     * 已发现的不同执行路径数
+     */
+    public int getUniquePathCount() {
+        return pathTable.size();
+    }
+
+    /**
+     * 每个队列条目覆盖的边
+     */
+    public CorpusCoverage getCorpusCoverage() {
+        return corpusCoverage;
+    }
+
+    /**
+     * 每条边首次命中的队列条目
+     */
+    public EdgeAttribution getEdgeAttribution() {
+        return edgeAttribution;
     }
 
     public OutputManager getOutputManager() {
@@ -435,4 +597,12 @@ public class AFLMonitor implements Monitor, AutoCloseable {
             }
         }
     }
+
+    /**
+     * 一类异常（崩溃或超时）已保存过的退出码和路径
+     */
+    private static final class FaultIndex {
+        final Set<Integer> exitCodes = ConcurrentHashMap.newKeySet();
+        final Set<Long> paths = ConcurrentHashMap.newKeySet();
+    }
 }
@@ -0,0 +1,104 @@
+package com.example.fuzzer.monitor;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 语料库中每个队列条目覆盖的边
+ * 按队列编号保存 {@link EdgeSet}，并维护每条边被多少个条目覆盖，
+ * 供精简语料、挑选 favored 种子和稀有边定向使用。
+ */
+public class CorpusCoverage {
+    private final Map<Integer, EdgeSet> entries = new ConcurrentHashMap<>();
+    private final AtomicIntegerArray edgeSeedCounts;
+
+    public CorpusCoverage(int mapSize) {
+        this.edgeSeedCounts = new AtomicIntegerArray(mapSize);
+    }
+
+    public void add(int queueId, EdgeSet edges) {
+        EdgeSet previous = entries.put(queueId, edges);
+        if (previous != null) {
+            previous.forEach(edge -> edgeSeedCounts.decrementAndGet(edge));
+        }
+        edges.forEach(edge -> edgeSeedCounts.incrementAndGet(edge));
+    }
+
+    /**
+     * 从语料库中移除一个条目，例如精简语料时
+     */
+    public void remove(int queueId) {
+        EdgeSet previous = entries.remove(queueId);
+        if (previous != null) {
+            previous.forEach(edge -> edgeSeedCounts.decrementAndGet(edge));
+        }
+    }
+
+    /**
+     * 获取队列条目覆盖的边，未知的条目返回 null
+     */
+    public EdgeSet get(int queueId) {
+        return entries.get(queueId);
+    }
+
+    /**
+     * 覆盖某条边的所有队列编号，按升序排列
+     */
+    public int[] seedsCovering(int edge) {
+        if (edge < 0 || edge >= edgeSeedCounts.length() || edgeSeedCounts.get(edge) == 0) {
+            return new int[0];
+        }
+        int[] ids = new int[Math.max(1, edgeSeedCounts.get(edge))];
+        int n = 0;
+        for (Map.Entry<Integer, EdgeSet> entry : entries.entrySet()) {
+            if (entry.getValue().contains(edge)) {
+                if (n == ids.length) {
+                    ids = Arrays.copyOf(ids, n * 2);
+                }
+                ids[n++] = entry.getKey();
+            }
+        }
+        int[] result = Arrays.copyOf(ids, n);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * 覆盖某条边的队列条目数，0 表示语料库中没有条目覆盖这条边
+     */
+    public int getSeedCount(int edge) {
+        return edge >= 0 && edge < edgeSeedCounts.length() ? edgeSeedCounts.get(edge) : 0;
+    }
+
+    /**
+     * 一组队列条目覆盖的边的并集
+     */
+    public EdgeSet union(Collection<Integer> queueIds) {
+        EdgeSet result = EdgeSet.EMPTY;
+        for (Integer id : queueIds) {
+            EdgeSet edges = entries.get(id);
+            if (edges != null) {
+                result = result.union(edges);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 所有条目的边集合估算占用的字节数
+     */
+    public long estimateBytes() {
+        long bytes = 0;
+        for (EdgeSet edges : entries.values()) {
+            bytes += edges.estimateBytes();
+        }
+        return bytes;
+    }
+}
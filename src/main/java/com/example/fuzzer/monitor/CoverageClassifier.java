@@ -0,0 +1,77 @@
+package com.example.fuzzer.monitor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * AFL 风格的命中次数分桶
+ * 原始计数被归入 8 个桶（1, 2, 3, 4-7, 8-15, 16-31, 32-127, 128+），每个桶对应一个比特，
+ * 这样循环次数的明显变化也能被识别为新的覆盖，而计数的微小抖动不会
+ */
+public final class CoverageClassifier {
+    private static final byte[] COUNT_CLASS_LOOKUP8 = new byte[256];
+    private static final short[] COUNT_CLASS_LOOKUP16 = new short[65536];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            COUNT_CLASS_LOOKUP8[i] = (byte) bucketOf(i);
+        }
+        // 16 位查找表，每次处理两个字节，与字节序无关
+        for (int hi = 0; hi < 256; hi++) {
+            for (int lo = 0; lo < 256; lo++) {
+                COUNT_CLASS_LOOKUP16[(hi << 8) | lo] =
+                        (short) (((COUNT_CLASS_LOOKUP8[hi] & 0xFF) << 8) | (COUNT_CLASS_LOOKUP8[lo] & 0xFF));
+            }
+        }
+    }
+
+    private CoverageClassifier() {
+    }
+
+    private static int bucketOf(int count) {
+        if (count == 0) return 0;
+        if (count == 1) return 1;
+        if (count == 2) return 2;
+        if (count == 3) return 4;
+        if (count <= 7) return 8;
+        if (count <= 15) return 16;
+        if (count <= 31) return 32;
+        if (count <= 127) return 64;
+        return 128;
+    }
+
+    /**
+     * 对单个字节的原始计数分桶
+     */
+    public static int classifyByte(int count) {
+        return COUNT_CLASS_LOOKUP8[count & 0xFF] & 0xFF;
+    }
+
+    /**
+     * 对一个 64 位字中的 8 个计数同时分桶
+     */
+    public static long classifyWord(long word) {
+        if (word == 0) {
+            return 0;
+        }
+        return (COUNT_CLASS_LOOKUP16[(int) (word & 0xFFFF)] & 0xFFFFL)
+                | (COUNT_CLASS_LOOKUP16[(int) ((word >>> 16) & 0xFFFF)] & 0xFFFFL) << 16
+                | (COUNT_CLASS_LOOKUP16[(int) ((word >>> 32) & 0xFFFF)] & 0xFFFFL) << 32
+                | (COUNT_CLASS_LOOKUP16[(int) ((word >>> 48) & 0xFFFF)] & 0xFFFFL) << 48;
+    }
+
+    /**
+     * 原地对覆盖率表分桶，按 64 位字处理并跳过全零的字
+     * 每次执行只能调用一次，分桶不是幂等的
+     *
+     * @param trace 覆盖率表（可以是直接映射的共享内存）
+     * @param size  覆盖率表大小，必须是 8 的倍数
+     */
+    public static void classify(ByteBuffer trace, int size) {
+        for (int i = 0; i < size; i += Long.BYTES) {
+            long word = trace.getLong(i);
+            if (word != 0) {
+                trace.putLong(i, classifyWord(word));
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.fuzzer.monitor;
+
+import com.example.fuzzer.execution.ExecutionResult;
+import com.example.fuzzer.mutation.Mutator.MutationStrategy;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 记录每条边第一次由哪个队列条目命中
+ * 与覆盖率表平行的 int 数组保存首次命中的队列编号（0 表示尚未命中），
+ * 执行次数、时间、父种子和变异策略按队列条目只保存一份。
+ * 新记录先进入待写出队列，由状态线程追加到输出目录的 edge_attribution 文件，
+ * 执行线程不做文件 I/O，也不需要事后重放整个队列来重建。
+ */
+public class EdgeAttribution {
+    public static final String CSV_HEADER = "edge,queue_id,parent_id,execs,time_ms,strategy\n";
+
+    private final AtomicIntegerArray firstQueueId;
+    private final Map<Integer, Origin> origins = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>();
+    private final long startTime;
+
+    public EdgeAttribution(int mapSize, long startTime) {
+        this.firstQueueId = new AtomicIntegerArray(mapSize);
+        this.startTime = startTime;
+    }
+
+    /**
+     * 记录一个新进入队列的条目首次命中的边
+     * 优先使用合并时得到的新覆盖条目；条目数达到上限可能被截断时，
+     * 再用条目覆盖的边集合补齐尚未归属的边
+     *
+     * @param edges 条目覆盖的所有边，可以为 null
+     */
+    public void record(int queueId, ExecutionResult result, EdgeSet edges) {
+        Origin origin = new Origin(queueId, result.getParentQueueId(), result.getExecutionCount(),
+                System.currentTimeMillis() - startTime, result.getMutationStrategy());
+        origins.put(queueId, origin);
+
+        int[] entries = result.getNewCoverage();
+        if (entries != null) {
+            for (int entry : entries) {
+                if (VirginMap.entryIsNewEdge(entry)) {
+                    claim(VirginMap.entryIndex(entry), origin);
+                }
+            }
+        }
+        if (edges != null && (entries == null || entries.length >= VirginMap.Diff.MAX_ENTRIES)) {
+            edges.forEach(edge -> claim(edge, origin));
+        }
+    }
+
+    private void claim(int edge, Origin origin) {
+        if (edge < firstQueueId.length() && firstQueueId.compareAndSet(edge, 0, origin.queueId)) {
+            pending.add(String.format("%d,%d,%d,%d,%d,%s\n", edge, origin.queueId, origin.parentQueueId,
+                    origin.execs, origin.timeMillis, origin.strategy));
+        }
+    }
+
+    /**
+     * 首次命中某条边的队列编号，尚未命中时返回 0
+     */
+    public int getFirstQueueId(int edge) {
+        return edge >= 0 && edge < firstQueueId.length() ? firstQueueId.get(edge) : 0;
+    }
+
+    /**
+     * 首次命中某条边时的执行信息，尚未命中时返回 null
+     */
+    public Origin getOrigin(int edge) {
+        int queueId = getFirstQueueId(edge);
+        return queueId == 0 ? null : origins.get(queueId);
+    }
+
+    /**
+     * 取出尚未写出的记录，每行一条边，没有新记录时返回空字符串
+     */
+    public String drainPending() {
+        StringBuilder lines = new StringBuilder();
+        String line;
+        while ((line = pending.poll()) != null) {
+            lines.append(line);
+        }
+        return lines.toString();
+    }
+
+    /**
+     * 一个队列条目被发现时的执行信息
+     */
+    public static final class Origin {
+        private final int queueId;
+        private final int parentQueueId;
+        private final long execs;
+        private final long timeMillis;
+        private final MutationStrategy strategy;
+
+        Origin(int queueId, int parentQueueId, long execs, long timeMillis, MutationStrategy strategy) {
+            this.queueId = queueId;
+            this.parentQueueId = parentQueueId;
+            this.execs = execs;
+            this.timeMillis = timeMillis;
+            this.strategy = strategy == null ? MutationStrategy.NONE : strategy;
+        }
+
+        public int getQueueId() {
+            return queueId;
+        }
+
+        /**
+         * 变异来源种子的队列编号，初始种子为 0
+         */
+        public int getParentQueueId() {
+            return parentQueueId;
+        }
+
+        public long getExecs() {
+            return execs;
+        }
+
+        /**
+         * 相对于开始测试的毫秒数
+         */
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        public MutationStrategy getStrategy() {
+            return strategy;
+        }
+    }
+}
@@ -0,0 +1,454 @@
+package com.example.fuzzer.monitor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * 不可变的边集合，保存一个种子命中过的覆盖率表下标
+ * 边数不超过 {@link #SMALL_LIMIT} 时直接保存有序 int[]；更大的集合采用 Roaring 风格的分块压缩：
+ * 按下标高 16 位分块，块内元素不超过 4096 个时保存有序 char[]（每条边 2 字节），否则保存 8KB 位图。
+ * 10 万个种子每个只需几百字节到几 KB，而不是每个种子一整份覆盖率表。
+ */
+public final class EdgeSet {
+    public static final EdgeSet EMPTY = new EdgeSet(new int[0]);
+
+    // 不超过该边数时使用有序 int[]
+    static final int SMALL_LIMIT = 1024;
+    // 块内元素超过该值时改用位图，与 Roaring 的分界相同：此时两种表示都是 8KB
+    private static final int ARRAY_CONTAINER_LIMIT = 4096;
+    private static final int BITMAP_WORDS = (1 << 16) / Long.SIZE;
+
+    private final int[] edges;
+    private final char[] keys;
+    // 每个元素是 char[]（有序的低 16 位）或 long[]（位图）
+    private final Object[] containers;
+    private final int cardinality;
+
+    private EdgeSet(int[] edges) {
+        this.edges = edges;
+        this.keys = null;
+        this.containers = null;
+        this.cardinality = edges.length;
+    }
+
+    private EdgeSet(char[] keys, Object[] containers, int cardinality) {
+        this.edges = null;
+        this.keys = keys;
+        this.containers = containers;
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * 由任意顺序、可以重复的下标构造集合
+     */
+    public static EdgeSet of(int... edges) {
+        int[] sorted = edges.clone();
+        Arrays.sort(sorted);
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (sorted[i] < 0) {
+                throw new IllegalArgumentException("边下标不能为负: " + sorted[i]);
+            }
+            if (n == 0 || sorted[n - 1] != sorted[i]) {
+                sorted[n++] = sorted[i];
+            }
+        }
+        return fromSorted(Arrays.copyOf(sorted, n));
+    }
+
+    /**
+     * 收集覆盖率表中所有非零字节的下标，按 64 位字跳过全零的部分
+     */
+    public static EdgeSet fromTrace(ByteBuffer trace, int size) {
+        ByteBuffer view = trace.order() == ByteOrder.nativeOrder()
+                ? trace
+                : trace.duplicate().order(ByteOrder.nativeOrder());
+        int limit = Math.min(size, view.capacity());
+        int[] found = new int[64];
+        int n = 0;
+        for (int i = 0; i + Long.BYTES <= limit; i += Long.BYTES) {
+            if (view.getLong(i) == 0) {
+                continue;
+            }
+            for (int b = 0; b < Long.BYTES; b++) {
+                if (view.get(i + b) != 0) {
+                    if (n == found.length) {
+                        found = Arrays.copyOf(found, n * 2);
+                    }
+                    found[n++] = i + b;
+                }
+            }
+        }
+        return fromSorted(Arrays.copyOf(found, n));
+    }
+
+    /**
+     * @param sorted 严格递增的下标，调用方不能再修改
+     */
+    private static EdgeSet fromSorted(int[] sorted) {
+        if (sorted.length == 0) {
+            return EMPTY;
+        }
+        if (sorted.length <= SMALL_LIMIT) {
+            return new EdgeSet(sorted);
+        }
+        return toContainers(sorted);
+    }
+
+    private static EdgeSet toContainers(int[] sorted) {
+        int blocks = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || (sorted[i] >>> 16) != (sorted[i - 1] >>> 16)) {
+                blocks++;
+            }
+        }
+        char[] keys = new char[blocks];
+        Object[] containers = new Object[blocks];
+        int start = 0;
+        for (int k = 0; k < blocks; k++) {
+            int key = sorted[start] >>> 16;
+            int end = start;
+            while (end < sorted.length && (sorted[end] >>> 16) == key) {
+                end++;
+            }
+            char[] low = new char[end - start];
+            for (int i = start; i < end; i++) {
+                low[i - start] = (char) sorted[i];
+            }
+            keys[k] = (char) key;
+            containers[k] = low.length > ARRAY_CONTAINER_LIMIT ? toBitmap(low) : low;
+            start = end;
+        }
+        return new EdgeSet(keys, containers, sorted.length);
+    }
+
+    public int size() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean contains(int edge) {
+        if (edges != null) {
+            return Arrays.binarySearch(edges, edge) >= 0;
+        }
+        if (edge < 0) {
+            return false;
+        }
+        int k = Arrays.binarySearch(keys, (char) (edge >>> 16));
+        return k >= 0 && containerContains(containers[k], (char) edge);
+    }
+
+    /**
+     * 按升序遍历所有边
+     */
+    public void forEach(IntConsumer action) {
+        if (edges != null) {
+            for (int edge : edges) {
+                action.accept(edge);
+            }
+            return;
+        }
+        for (int k = 0; k < keys.length; k++) {
+            int high = keys[k] << 16;
+            Object container = containers[k];
+            if (container instanceof char[]) {
+                for (char low : (char[]) container) {
+                    action.accept(high | low);
+                }
+            } else {
+                long[] bitmap = (long[]) container;
+                for (int w = 0; w < bitmap.length; w++) {
+                    long word = bitmap[w];
+                    while (word != 0) {
+                        action.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 返回升序排列的所有边
+     */
+    public int[] toArray() {
+        if (edges != null) {
+            return edges.clone();
+        }
+        int[] out = new int[cardinality];
+        int[] n = {0};
+        forEach(edge -> out[n[0]++] = edge);
+        return out;
+    }
+
+    public EdgeSet union(EdgeSet other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+        if (edges != null && other.edges != null) {
+            return fromSorted(unionSorted(edges, other.edges));
+        }
+        return combine(asContainers(), other.asContainers(), true);
+    }
+
+    public EdgeSet intersect(EdgeSet other) {
+        if (isEmpty() || other.isEmpty()) {
+            return EMPTY;
+        }
+        if (edges != null && other.edges != null) {
+            return fromSorted(intersectSorted(edges, other.edges));
+        }
+        // 小集合逐个查询大集合，不需要展开大集合
+        if (edges != null || other.edges != null) {
+            EdgeSet small = edges != null ? this : other;
+            EdgeSet large = edges != null ? other : this;
+            int[] out = new int[small.cardinality];
+            int n = 0;
+            for (int edge : small.edges) {
+                if (large.contains(edge)) {
+                    out[n++] = edge;
+                }
+            }
+            return fromSorted(Arrays.copyOf(out, n));
+        }
+        return combine(this, other, false);
+    }
+
+    /**
+     * 估算占用的堆内存字节数（不含对象头）
+     */
+    public long estimateBytes() {
+        if (edges != null) {
+            return (long) edges.length * Integer.BYTES;
+        }
+        long bytes = (long) keys.length * Character.BYTES;
+        for (Object container : containers) {
+            bytes += container instanceof char[]
+                    ? (long) ((char[]) container).length * Character.BYTES
+                    : (long) BITMAP_WORDS * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    private EdgeSet asContainers() {
+        return edges != null ? toContainers(edges) : this;
+    }
+
+    /**
+     * 按块合并两个分块表示的集合，两边都有的块才需要逐元素处理
+     */
+    private static EdgeSet combine(EdgeSet a, EdgeSet b, boolean union) {
+        char[] keys = new char[a.keys.length + b.keys.length];
+        Object[] containers = new Object[keys.length];
+        int n = 0;
+        int cardinality = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.keys.length || j < b.keys.length) {
+            Object container;
+            char key;
+            if (j == b.keys.length || (i < a.keys.length && a.keys[i] < b.keys[j])) {
+                key = a.keys[i];
+                container = union ? a.containers[i] : null;
+                i++;
+            } else if (i == a.keys.length || b.keys[j] < a.keys[i]) {
+                key = b.keys[j];
+                container = union ? b.containers[j] : null;
+                j++;
+            } else {
+                key = a.keys[i];
+                container = union
+                        ? containerUnion(a.containers[i], b.containers[j])
+                        : containerIntersect(a.containers[i], b.containers[j]);
+                i++;
+                j++;
+            }
+            int count = container == null ? 0 : containerSize(container);
+            if (count > 0) {
+                keys[n] = key;
+                containers[n] = container;
+                cardinality += count;
+                n++;
+            }
+        }
+        EdgeSet result = new EdgeSet(Arrays.copyOf(keys, n), Arrays.copyOf(containers, n), cardinality);
+        return cardinality <= SMALL_LIMIT ? fromSorted(result.toArray()) : result;
+    }
+
+    private static boolean containerContains(Object container, char low) {
+        if (container instanceof char[]) {
+            return Arrays.binarySearch((char[]) container, low) >= 0;
+        }
+        return (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+    }
+
+    private static int containerSize(Object container) {
+        if (container instanceof char[]) {
+            return ((char[]) container).length;
+        }
+        int count = 0;
+        for (long word : (long[]) container) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private static Object containerUnion(Object a, Object b) {
+        if (a instanceof char[] && b instanceof char[]) {
+            char[] merged = unionSorted((char[]) a, (char[]) b);
+            return merged.length > ARRAY_CONTAINER_LIMIT ? toBitmap(merged) : merged;
+        }
+        long[] bitmap = a instanceof long[] ? ((long[]) a).clone() : toBitmap((char[]) a);
+        if (b instanceof long[]) {
+            long[] other = (long[]) b;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                bitmap[w] |= other[w];
+            }
+        } else {
+            for (char low : (char[]) b) {
+                bitmap[low >>> 6] |= 1L << low;
+            }
+        }
+        return bitmap;
+    }
+
+    private static Object containerIntersect(Object a, Object b) {
+        if (a instanceof char[] && b instanceof char[]) {
+            return intersectSorted((char[]) a, (char[]) b);
+        }
+        if (a instanceof char[] || b instanceof char[]) {
+            char[] array = (char[]) (a instanceof char[] ? a : b);
+            long[] bitmap = (long[]) (a instanceof char[] ? b : a);
+            char[] out = new char[array.length];
+            int n = 0;
+            for (char low : array) {
+                if ((bitmap[low >>> 6] & (1L << low)) != 0) {
+                    out[n++] = low;
+                }
+            }
+            return Arrays.copyOf(out, n);
+        }
+        long[] x = (long[]) a;
+        long[] y = (long[]) b;
+        long[] bitmap = new long[BITMAP_WORDS];
+        int count = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            bitmap[w] = x[w] & y[w];
+            count += Long.bitCount(bitmap[w]);
+        }
+        return count > ARRAY_CONTAINER_LIMIT ? bitmap : toArray(bitmap, count);
+    }
+
+    private static long[] toBitmap(char[] lows) {
+        long[] bitmap = new long[BITMAP_WORDS];
+        for (char low : lows) {
+            bitmap[low >>> 6] |= 1L << low;
+        }
+        return bitmap;
+    }
+
+    private static char[] toArray(long[] bitmap, int count) {
+        char[] out = new char[count];
+        int n = 0;
+        for (int w = 0; w < bitmap.length; w++) {
+            long word = bitmap[w];
+            while (word != 0) {
+                out[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return out;
+    }
+
+    private static int[] unionSorted(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                out[n++] = a[i++];
+            } else if (b[j] < a[i]) {
+                out[n++] = b[j++];
+            } else {
+                out[n++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            out[n++] = a[i++];
+        }
+        while (j < b.length) {
+            out[n++] = b[j++];
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static int[] intersectSorted(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (b[j] < a[i]) {
+                j++;
+            } else {
+                out[n++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static char[] unionSorted(char[] a, char[] b) {
+        char[] out = new char[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                out[n++] = a[i++];
+            } else if (b[j] < a[i]) {
+                out[n++] = b[j++];
+            } else {
+                out[n++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            out[n++] = a[i++];
+        }
+        while (j < b.length) {
+            out[n++] = b[j++];
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static char[] intersectSorted(char[] a, char[] b) {
+        char[] out = new char[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (b[j] < a[i]) {
+                j++;
+            } else {
+                out[n++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.fuzzer.monitor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * PerfFuzz 风格的每条边最大命中次数表
+ * 保存每条边在所有执行中出现过的最大原始命中次数（分桶之前的计数），
+ * 某次执行抬高了任意一条边的最大值即视为有价值的输入，用于寻找算法复杂度问题。
+ * 8 位覆盖率表的计数在 255 之后回绕，执行器提供 sancov_rt 记录的 32 位饱和计数表时优先使用它，
+ * 否则退回到 8 位计数。与 {@link MemoryHighWater} 一样按条目 compare-and-set 更新，不加锁。
+ */
+public class MaxCountMap {
+    private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+
+    private final AtomicIntegerArray maxCounts;
+    private final int size;
+
+    public MaxCountMap(int size) {
+        if (size <= 0 || size % Long.BYTES != 0) {
+            throw new IllegalArgumentException("覆盖率表大小必须是 8 的正整数倍: " + size);
+        }
+        this.size = size;
+        this.maxCounts = new AtomicIntegerArray(size);
+    }
+
+    /**
+     * 用一份未分桶的原始覆盖率表更新最大值，必须在分桶之前调用
+     *
+     * @param rawTrace  原始 8 位覆盖率表，用来快速找出命中的边
+     * @param hitCounts 每条边 4 字节的饱和命中次数表，为 null 时使用 8 位计数
+     * @return 最大值被抬高的边数
+     */
+    public int update(ByteBuffer rawTrace, ByteBuffer hitCounts) {
+        ByteBuffer view = rawTrace.order() == ORDER ? rawTrace : rawTrace.duplicate().order(ORDER);
+        ByteBuffer counts = hitCounts == null || hitCounts.order() == ORDER
+                ? hitCounts
+                : hitCounts.duplicate().order(ORDER);
+        int limit = Math.min(size, view.capacity());
+        int countLimit = counts != null ? Math.min(limit, counts.capacity() / Integer.BYTES) : 0;
+        int raised = 0;
+
+        for (int i = 0; i + Long.BYTES <= limit; i += Long.BYTES) {
+            if (view.getLong(i) == 0) {
+                continue;
+            }
+            for (int edge = i; edge < i + Long.BYTES; edge++) {
+                int count = view.get(edge) & 0xFF;
+                if (count == 0) {
+                    continue;
+                }
+                if (edge < countLimit) {
+                    // 无符号的 32 位计数，饱和值截到 int 上限
+                    long wide = Integer.toUnsignedLong(counts.getInt(edge * Integer.BYTES));
+                    count = (int) Math.max(count, Math.min(wide, Integer.MAX_VALUE));
+                }
+                if (raise(edge, count)) {
+                    raised++;
+                }
+            }
+        }
+        return raised;
+    }
+
+    private boolean raise(int edge, int count) {
+        int current = maxCounts.get(edge);
+        while (count > current) {
+            if (maxCounts.compareAndSet(edge, current, count)) {
+                return true;
+            }
+            current = maxCounts.get(edge);
+        }
+        return false;
+    }
+
+    /**
+     * 某条边出现过的最大原始命中次数
+     */
+    public int getMax(int edge) {
+        return edge >= 0 && edge < size ? maxCounts.get(edge) : 0;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * 导出所有边的最大命中次数，每条边 4 字节小端序
+     */
+    public byte[] toByteArray() {
+        ByteBuffer out = ByteBuffer.allocate(size * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < size; i++) {
+            out.putInt(maxCounts.get(i));
+        }
+        return out.array();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.fuzzer.monitor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MemLock 风格的峰值内存高水位表
+ * 记录所有执行的最大 RSS，以及每条边在覆盖它的执行中出现过的最大 RSS（KB）。
+ * 一次执行抬高了它所覆盖的任意一条边的高水位即视为有价值的输入，
+ * 这样即使总体最大值已经很高，通向其它代码区域的内存增长也能被保留下来。
+ * ru_maxrss 按页统计，相同输入的多次执行之间也会有抖动，所以新峰值必须比原高水位
+ * 至少高出 1 MB 和原值的 1/8 中较大的一个才算抬高，否则噪声会不断产生“新峰值”。
+ */
+public class MemoryHighWater {
+    private static final int MAX_OFFENDERS = 10;
+    // 抬高高水位所需的最小增量（KB）和相对增量（原值右移位数，1/8 即 12.5%）
+    private static final int MIN_RAISE_KB = 1024;
+    private static final int RELATIVE_RAISE_SHIFT = 3;
+
+    private final AtomicIntegerArray edgePeaks;
+    private final AtomicLong overallPeak = new AtomicLong();
+    private final List<Offender> offenders = new ArrayList<>();
+
+    public MemoryHighWater(int mapSize) {
+        this.edgePeaks = new AtomicIntegerArray(mapSize);
+    }
+
+    /**
+     * 用一次执行的峰值 RSS 更新高水位，覆盖率表必须在合并（可能被清零）之前传入
+     *
+     * @return 高水位被抬高的边数
+     */
+    public int update(ByteBuffer trace, long rssKb) {
+        if (rssKb <= 0) {
+            return 0;
+        }
+        overallPeak.accumulateAndGet(rssKb, Math::max);
+        int peak = (int) Math.min(rssKb, Integer.MAX_VALUE);
+
+        ByteBuffer view = trace.order() == ByteOrder.nativeOrder()
+                ? trace
+                : trace.duplicate().order(ByteOrder.nativeOrder());
+        int limit = Math.min(edgePeaks.length(), view.capacity());
+        int raised = 0;
+        for (int i = 0; i + Long.BYTES <= limit; i += Long.BYTES) {
+            if (view.getLong(i) == 0) {
+                continue;
+            }
+            for (int edge = i; edge < i + Long.BYTES; edge++) {
+                if (view.get(edge) != 0 && raise(edge, peak)) {
+                    raised++;
+                }
+            }
+        }
+        return raised;
+    }
+
+    private boolean raise(int edge, int peak) {
+        int current = edgePeaks.get(edge);
+        while (isSignificant(peak, current)) {
+            if (edgePeaks.compareAndSet(edge, current, peak)) {
+                return true;
+            }
+            current = edgePeaks.get(edge);
+        }
+        return false;
+    }
+
+    /**
+     * peak 是否比 current 高出足够多，两者都以 KB 为单位
+     */
+    private static boolean isSignificant(long peak, long current) {
+        return peak - current >= Math.max(MIN_RAISE_KB, current >> RELATIVE_RAISE_SHIFT);
+    }
+
+    /**
+     * 记录一个保存下来的高内存输入，只保留 RSS 最大的若干个
+     */
+    public synchronized void recordOffender(long rssKb, String name) {
+        offenders.add(new Offender(rssKb, name));
+        offenders.sort((a, b) -> Long.compare(b.rssKb, a.rssKb));
+        if (offenders.size() > MAX_OFFENDERS) {
+            offenders.remove(offenders.size() - 1);
+        }
+    }
+
+    /**
+     * RSS 从大到小排列的最高内存输入
+     */
+    public synchronized List<Offender> getOffenders() {
+        return new ArrayList<>(offenders);
+    }
+
+    /**
+     * 所有执行中的最大 RSS（KB）
+     */
+    public long getOverallPeak() {
+        return overallPeak.get();
+    }
+
+    /**
+     * 覆盖某条边的执行中出现过的最大 RSS（KB）
+     */
+    public int getEdgePeak(int edge) {
+        return edge >= 0 && edge < edgePeaks.length() ? edgePeaks.get(edge) : 0;
+    }
+
+    public static final class Offender {
+        private final long rssKb;
+        private final String name;
+
+        Offender(long rssKb, String name) {
+            this.rssKb = rssKb;
+            this.name = name;
+        }
+
+        public long getRssKb() {
+            return rssKb;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -4,4 +4,13 @@ import com.example.fuzzer.execution.ExecutionResult;
 
 public interface Monitor {
     void recordResult(ExecutionResult result);
+
+    /**
+     * 判断输入是否值得保留的反馈类型
+     */
+    enum Feedback {
+        COVERAGE,   // 发现新边或新的命中次数桶（AFL）
+        PERF,       // 在覆盖率之外，还保留抬高了某条边最大命中次数的输入（PerfFuzz）
+        MEMORY      // 在覆盖率之外，还保留抬高了某条边峰值内存的输入（MemLock）
+    }
 }
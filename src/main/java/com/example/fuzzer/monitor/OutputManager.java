@@ -21,14 +21,21 @@ public class OutputManager {
     private static final String FUZZER_SETUP = "fuzzer_setup";
     private static final String FUZZER_STATS = "fuzzer_stats";
     private static final String PLOT_DATA = "plot_data";
+    private static final String EDGE_ATTRIBUTION = "edge_attribution";
+    private static final String MAX_COUNTS = "max_counts";
     private static final String README = "README.txt";
-    private static final AtomicInteger uniqueCrashCount = new AtomicInteger(0);
-    private static final AtomicInteger uniqueHangCount = new AtomicInteger(0);
+    private final AtomicInteger uniqueCrashCount = new AtomicInteger(0);
+    private final AtomicInteger uniqueHangCount = new AtomicInteger(0);
+    private final AtomicInteger perfQueueCount = new AtomicInteger(0);
+    private final AtomicInteger memoryQueueCount = new AtomicInteger(0);
+    private volatile String memoryStats;
     private static final long COVERAGE_REPORT_UPDATE_INTERVAL = 5000; // 每5秒更新一次报告
     private final Path outputDir;
     private final Path queueDir;
     private final Path crashesDir;
     private final Path hangsDir;
+    private final Path perfQueueDir;
+    private final Path memoryQueueDir;
     private final Path plotsDir;      // 新增：图表目录
     private final Path logsDir;       // 新增：日志目录
     private volatile long lastCoverageReportTime = 0;
@@ -38,6 +45,8 @@ public class OutputManager {
         this.queueDir = outputDir.resolve("queue");
         this.crashesDir = outputDir.resolve("crashes");
         this.hangsDir = outputDir.resolve("hangs");
+        this.perfQueueDir = outputDir.resolve("queue_perf");
+        this.memoryQueueDir = outputDir.resolve("queue_mem");
         this.plotsDir = outputDir.resolve("plots");
         this.logsDir = outputDir.resolve("logs");
 
@@ -133,13 +142,18 @@ public class OutputManager {
         stats.append(String.format("execs_done        : %d\n", totalExecutions));
         stats.append(String.format("execs_per_sec     : %.2f\n", execsPerSec));
         stats.append(String.format("corpus_count      : %d\n", queueCount));
-        stats.append(String.format("saved_crashes     : %d\n", crashCount));
-        stats.append(String.format("saved_hangs       : %d\n", hangCount));
+        stats.append(String.format("saved_crashes     : %d\n", uniqueCrashCount.get()));
+        stats.append(String.format("saved_hangs       : %d\n", uniqueHangCount.get()));
+        stats.append(String.format("total_crashes     : %d\n", crashCount));
+        stats.append(String.format("total_tmouts      : %d\n", hangCount));
         stats.append(String.format("last_find         : %d\n", lastFindTime / 1000));
         stats.append(String.format("last_crash        : %d\n", lastCrashTime / 1000));
         stats.append(String.format("last_hang         : %d\n", lastHangTime / 1000));
         stats.append(String.format("bitmap_cvg        : %.2f%%\n", bitmapCoverage));
         stats.append(String.format("edges_found       : %d\n", edgesFound));
+        if (memoryStats != null) {
+            stats.append(memoryStats);
+        }
 
         Files.write(statsPath, stats.toString().getBytes(), StandardOpenOption.CREATE);
 
@@ -153,6 +167,21 @@ public class OutputManager {
                 StandardOpenOption.CREATE, StandardOpenOption.APPEND);
     }
 
+    /**
+     * 追加边的首次命中记录，文件不存在时先写入表头
+     */
+    public void appendEdgeAttribution(String lines) throws IOException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        Path attributionPath = outputDir.resolve(EDGE_ATTRIBUTION);
+        if (!Files.exists(attributionPath)) {
+            Files.write(attributionPath, EdgeAttribution.CSV_HEADER.getBytes(), StandardOpenOption.CREATE);
+        }
+        Files.write(attributionPath, lines.getBytes(),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
     public void writeFuzzBitmap(byte[] bitmap) throws IOException {
         Path bitmapPath = outputDir.resolve(FUZZ_BITMAP);
         Files.write(bitmapPath, bitmap, StandardOpenOption.CREATE);
@@ -165,10 +194,15 @@ public class OutputManager {
         }
 
         // 构建文件名：使用执行时间而不是系统时间
-        String filename = String.format("id:%016d,exec_time:%d,execs:%d",
+        String filename = String.format("id:%016d,exec_time:%d,execs:%d,path:%016x",
                 Long.parseLong(id),
                 result.getExecutionTime(),
-                result.getExecutionCount());
+                result.getExecutionCount(),
+                result.getTraceHash());
+        // 与 AFL 一致，发现新边（而不只是新的命中次数桶）的用例带 +cov 标记
+        if (result.getCoverageStatus() == ExecutionResult.CoverageStatus.NEW_EDGE) {
+            filename += ",+cov";
+        }
 
         Path inputPath = queueDir.resolve(filename);
         Files.write(inputPath, input, StandardOpenOption.CREATE);
@@ -176,11 +210,82 @@ public class OutputManager {
         return inputPath;
     }
 
+    /**
+     * 保存抬高了最大命中次数但没有新覆盖的输入，与覆盖率队列分开存放，文件名中的 id 是它的队列编号
+     */
+    public Path savePerfInput(byte[] input, ExecutionResult result) throws IOException {
+        Files.createDirectories(perfQueueDir);
+        perfQueueCount.incrementAndGet();
+        String filename = String.format("id:%06d,exec_time:%d,execs:%d,max_raised:%d",
+                result.getQueueId(),
+                result.getExecutionTime(),
+                result.getExecutionCount(),
+                result.getRaisedMaxCounts());
+        Path inputPath = perfQueueDir.resolve(filename);
+        Files.write(inputPath, input, StandardOpenOption.CREATE);
+        return inputPath;
+    }
+
+    /**
+     * 写出每条边的最大命中次数表，按覆盖率表下标排列，每条边 4 字节小端序
+     */
+    public void writeMaxCounts(byte[] maxCounts) throws IOException {
+        Files.write(outputDir.resolve(MAX_COUNTS), maxCounts);
+    }
+
+    /**
+     * 保存抬高了峰值内存高水位但没有新覆盖的输入，文件名中的 id 是它的队列编号
+     */
+    public Path saveMemoryInput(byte[] input, ExecutionResult result) throws IOException {
+        Files.createDirectories(memoryQueueDir);
+        memoryQueueCount.incrementAndGet();
+        String filename = String.format("id:%06d,rss_kb:%d,execs:%d,edges_raised:%d",
+                result.getQueueId(),
+                result.getPeakRssKb(),
+                result.getExecutionCount(),
+                result.getRaisedRssPeaks());
+        Path inputPath = memoryQueueDir.resolve(filename);
+        Files.write(inputPath, input, StandardOpenOption.CREATE);
+        return inputPath;
+    }
+
+    public int getMemoryQueueCount() {
+        return memoryQueueCount.get();
+    }
+
+    /**
+     * 设置写入 fuzzer_stats 的峰值内存统计：总体峰值和 RSS 最大的输入
+     */
+    public void setMemoryStats(MemoryHighWater highWater) {
+        StringBuilder stats = new StringBuilder();
+        stats.append(String.format("target_peak_rss_kb: %d\n", highWater.getOverallPeak()));
+        stats.append(String.format("saved_mem_inputs  : %d\n", memoryQueueCount.get()));
+        int rank = 1;
+        for (MemoryHighWater.Offender offender : highWater.getOffenders()) {
+            stats.append(String.format("worst_rss_%-8d: %d %s\n", rank++, offender.getRssKb(), offender.getName()));
+        }
+        this.memoryStats = stats.toString();
+    }
+
+    public int getPerfQueueCount() {
+        return perfQueueCount.get();
+    }
+
     public Path saveCrashInput(byte[] input, int exitCode) throws IOException {
+        return saveCrashInput(input, exitCode, 0);
+    }
+
+    /**
+     * @param traceHash 崩溃执行的路径哈希，为 0 时文件名中不带路径标记
+     */
+    public Path saveCrashInput(byte[] input, int exitCode, long traceHash) throws IOException {
         int crashId = uniqueCrashCount.incrementAndGet();
         String crashName = String.format("id:%016d,exitcode:%d",
                 crashId,
                 exitCode);
+        if (traceHash != 0) {
+            crashName += String.format(",path:%016x", traceHash);
+        }
         Path crashPath = crashesDir.resolve(crashName);
         Files.write(crashPath, input, StandardOpenOption.CREATE);
 
@@ -194,10 +299,20 @@ public class OutputManager {
     }
 
     public Path saveHangInput(byte[] input, long executionTime) throws IOException {
+        return saveHangInput(input, executionTime, 0);
+    }
+
+    /**
+     * @param traceHash 超时执行的路径哈希，为 0 时文件名中不带路径标记
+     */
+    public Path saveHangInput(byte[] input, long executionTime, long traceHash) throws IOException {
         int hangId = uniqueHangCount.incrementAndGet();
         String hangName = String.format("id:%016d,exec_time:%d",
                 hangId,
                 executionTime);
+        if (traceHash != 0) {
+            hangName += String.format(",path:%016x", traceHash);
+        }
         Path hangPath = hangsDir.resolve(hangName);
         Files.write(hangPath, input, StandardOpenOption.CREATE);
 
@@ -215,7 +330,7 @@ public class OutputManager {
 
     private void updateTimeoutStats(long executionTime) throws IOException {
         Path statsPath = logsDir.resolve("timeout_stats.log");
-        String stats = String.format("[%s] Total timeouts: %d, Latest execution time: %dms%n",
+        String stats = String.format("[%s] Unique timeouts: %d, Latest execution time: %dms%n",
                 LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME),
                 uniqueHangCount.get(), executionTime);
 
@@ -287,15 +402,17 @@ public class OutputManager {
         int totalEdges = bitmap.length;
         int coveredEdges = 0;
         int neverHit = 0;
-        int rarelyHit = 0;   // 1-4次
-        int commonHit = 0;   // 5-99次
-        int frequentHit = 0; // 100+次
+        int rarelyHit = 0;   // 1-3次
+        int commonHit = 0;   // 4-127次
+        int frequentHit = 0; // 128+次
 
+        // bitmap 中每个字节是该边出现过的命中次数桶，按最高的桶归类
         for (int i = 0; i < totalEdges; i++) {
-            if (bitmap[i] != 0) {
+            int buckets = bitmap[i] & 0xFF;
+            if (buckets != 0) {
                 coveredEdges++;
-                if (bitmap[i] < 5) rarelyHit++;
-                else if (bitmap[i] < 100) commonHit++;
+                if (buckets < 8) rarelyHit++;
+                else if (buckets < 128) commonHit++;
                 else frequentHit++;
             } else {
                 neverHit++;
@@ -318,11 +435,11 @@ public class OutputManager {
                 .append("            <table width='100%'>\n")
                 .append("                <tr><td>Never Hit:</td>")
                 .append(String.format("<td>%d (%.2f%%)</td></tr>\n", neverHit, (neverHit * 100.0) / totalEdges))
-                .append("                <tr><td>Rarely Hit (1-4 times):</td>")
+                .append("                <tr><td>Rarely Hit (1-3 times):</td>")
                 .append(String.format("<td>%d (%.2f%%)</td></tr>\n", rarelyHit, (rarelyHit * 100.0) / totalEdges))
-                .append("                <tr><td>Common Hit (5-99 times):</td>")
+                .append("                <tr><td>Common Hit (4-127 times):</td>")
                 .append(String.format("<td>%d (%.2f%%)</td></tr>\n", commonHit, (commonHit * 100.0) / totalEdges))
-                .append("                <tr><td>Frequent Hit (100+ times):</td>")
+                .append("                <tr><td>Frequent Hit (128+ times):</td>")
                 .append(String.format("<td>%d (%.2f%%)</td></tr>\n", frequentHit, (frequentHit * 100.0) / totalEdges))
                 .append("            </table>\n")
                 .append("        </div>\n");
@@ -0,0 +1,92 @@
+package com.example.fuzzer.monitor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 按路径哈希统计每条执行路径出现次数的表
+ * 固定容量的开放寻址哈希表，插入和计数都通过 CAS 完成，不加锁；
+ * 表满后新路径不再记录（视为未知路径），已记录路径的计数不受影响，内存占用始终有上限。
+ */
+public class PathTable {
+    public static final int DEFAULT_CAPACITY = 1 << 18;
+    private static final int MAX_PROBES = 32;
+    private static final long EMPTY = 0;
+
+    private final AtomicLongArray keys;
+    private final AtomicIntegerArray counts;
+    private final int mask;
+    private final AtomicInteger size = new AtomicInteger();
+
+    public PathTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity 最多记录的路径数，向上取整为 2 的幂
+     */
+    public PathTable(int capacity) {
+        int slots = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.keys = new AtomicLongArray(slots);
+        this.counts = new AtomicIntegerArray(slots);
+        this.mask = slots - 1;
+    }
+
+    /**
+     * 记录一次路径出现
+     *
+     * @return 该路径累计出现的次数；表已满且路径不在表中时返回 0
+     */
+    public int record(long hash) {
+        long key = hash == EMPTY ? 1 : hash;
+        int slot = slotOf(key);
+        for (int probe = 0; probe < MAX_PROBES; probe++, slot = (slot + 1) & mask) {
+            long current = keys.get(slot);
+            if (current == EMPTY) {
+                if (keys.compareAndSet(slot, EMPTY, key)) {
+                    size.incrementAndGet();
+                    return counts.incrementAndGet(slot);
+                }
+                current = keys.get(slot);
+            }
+            if (current == key) {
+                return counts.incrementAndGet(slot);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 获取路径出现的次数，未记录的路径返回 0
+     */
+    public int getFrequency(long hash) {
+        long key = hash == EMPTY ? 1 : hash;
+        int slot = slotOf(key);
+        for (int probe = 0; probe < MAX_PROBES; probe++, slot = (slot + 1) & mask) {
+            long current = keys.get(slot);
+            if (current == key) {
+                return counts.get(slot);
+            }
+            if (current == EMPTY) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    public boolean isKnown(long hash) {
+        return getFrequency(hash) > 0;
+    }
+
+    /**
+     * 已记录的不同路径数
+     */
+    public int size() {
+        return size.get();
+    }
+
+    private int slotOf(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+}
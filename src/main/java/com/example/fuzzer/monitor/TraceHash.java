@@ -0,0 +1,67 @@
+package com.example.fuzzer.monitor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 分桶后覆盖率表的 64 位路径哈希
+ * 采用 xxHash64 的轮函数和雪崩函数，只处理非零的 64 位字（连同字下标），
+ * 因此代价与覆盖率表中命中的部分成正比，而不是与表大小成正比。
+ * shm.c 中的 classifyAndDiff 使用完全相同的算法，两边的结果可以直接比较。
+ */
+public final class TraceHash {
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    private TraceHash() {
+    }
+
+    public static long start(int size) {
+        return PRIME64_5 + size;
+    }
+
+    /**
+     * 混入一个非零字，wordIndex 是字在覆盖率表中的序号（字节下标 / 8）
+     */
+    public static long update(long hash, int wordIndex, long word) {
+        hash ^= round(wordIndex);
+        hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+        hash ^= round(word);
+        hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+        return hash;
+    }
+
+    public static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= PRIME64_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME64_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private static long round(long input) {
+        return Long.rotateLeft(input * PRIME64_2, 31) * PRIME64_1;
+    }
+
+    /**
+     * 计算一份已经分桶的覆盖率表的哈希
+     */
+    public static long hash(ByteBuffer classifiedTrace, int size) {
+        ByteBuffer view = classifiedTrace.order() == ByteOrder.nativeOrder()
+                ? classifiedTrace
+                : classifiedTrace.duplicate().order(ByteOrder.nativeOrder());
+        int limit = Math.min(size, view.capacity());
+        long hash = start(size);
+        for (int i = 0; i + Long.BYTES <= limit; i += Long.BYTES) {
+            long word = view.getLong(i);
+            if (word != 0) {
+                hash = update(hash, i >>> 3, word);
+            }
+        }
+        return finish(hash);
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.fuzzer.monitor;
+
+import com.example.fuzzer.execution.ExecutionResult.CoverageStatus;
+import com.example.fuzzer.sharedmemory.Shm;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AFL 风格的 virgin bits 表
+ * 每个字节初始为 0xFF，某条边的某个命中次数桶第一次出现时清除对应的比特。
+ * 表保存在堆外，共享内存中的覆盖率表由本地代码一次遍历完成分桶、比较、合并；
+ * 堆内的覆盖率数据（如远程执行结果）使用等价的 Java 实现，按 64 位字处理并跳过全零的字。
+ * 合并不加锁：两种实现都按 64 位字做 compare-and-set，只有成功清除比特的线程会报告新覆盖，
+ * 因此多个执行线程可以同时合并，每条新边恰好被统计一次。
+ */
+public class VirginMap {
+    private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+    private static final Shm NATIVE = loadNative();
+    private static final VarHandle LONG_LANES = MethodHandles.byteBufferViewVarHandle(long[].class, ORDER);
+
+    // 与 shm.c 中 classifyAndDiff 的输出布局一致
+    private static final int DIFF_NEW_EDGES = 0;
+    private static final int DIFF_NEW_BUCKETS = 1;
+    private static final int DIFF_HASH_LOW = 2;
+    private static final int DIFF_HASH_HIGH = 3;
+    private static final int DIFF_HEADER = 4;
+
+    private final ByteBuffer virgin;
+    private final int size;
+    private final AtomicInteger coveredCount = new AtomicInteger();
+
+    public VirginMap(int size) {
+        if (size <= 0 || size % Long.BYTES != 0) {
+            throw new IllegalArgumentException("覆盖率表大小必须是 8 的正整数倍: " + size);
+        }
+        this.size = size;
+        // CAS 要求 64 位字按 8 字节对齐
+        this.virgin = ByteBuffer.allocateDirect(size + Long.BYTES).alignedSlice(Long.BYTES).order(ORDER);
+        for (int i = 0; i < size; i += Long.BYTES) {
+            virgin.putLong(i, -1L);
+        }
+    }
+
+    /**
+     * 加载本地实现；本地方法在第一次调用时才绑定，所以用一次大小为 0 的调用确认库中确实有 classifyAndDiff，
+     * 否则旧版本的库会让每次合并都抛出 UnsatisfiedLinkError
+     */
+    private static Shm loadNative() {
+        try {
+            Shm shm = new Shm();
+            ByteBuffer probe = ByteBuffer.allocateDirect(Long.BYTES);
+            shm.classifyAndDiff(probe, probe, 0, null);
+            return shm;
+        } catch (LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * 新覆盖条目中的覆盖率表下标
+     */
+    public static int entryIndex(int entry) {
+        return entry >>> 9;
+    }
+
+    /**
+     * 新覆盖条目是否是第一次命中的边
+     */
+    public static boolean entryIsNewEdge(int entry) {
+        return (entry & 0x100) != 0;
+    }
+
+    /**
+     * 新覆盖条目中新出现的命中次数桶
+     */
+    public static int entryBuckets(int entry) {
+        return entry & 0xFF;
+    }
+
+    /**
+     * 对原始覆盖率表分桶并合并进 virgin 表，同时计算路径哈希
+     * 共享内存中的覆盖率表在没有新覆盖时会被原地清零，有新覆盖时保留分桶后的结果
+     *
+     * @param trace      执行器产生的原始覆盖率表，每次执行只能合并一次
+     * @param diff       接收本次合并的摘要和新覆盖条目，可以按线程复用
+     * @param knownPaths 已知路径表，可以为 null；堆内覆盖率表的路径已知时跳过与 virgin 表的比较
+     * @return 本次执行的覆盖率分类
+     */
+    public CoverageStatus merge(ByteBuffer trace, Diff diff, PathTable knownPaths) {
+        diff.total = -1;
+        if (NATIVE != null && trace.isDirect() && trace.capacity() >= size) {
+            // 本地实现在同一次遍历中计算哈希和比较，已知路径不会带来额外开销
+            diff.total = NATIVE.classifyAndDiff(trace, virgin, size, diff.buffer);
+            diff.traceCleared = diff.total == 0;
+        }
+        if (diff.total < 0) {
+            mergeJava(trace, diff, knownPaths);
+            diff.traceCleared = false;
+        }
+        if (diff.total == 0) {
+            return CoverageStatus.NONE;
+        }
+        coveredCount.addAndGet(diff.buffer[DIFF_NEW_EDGES]);
+        return diff.getStatus();
+    }
+
+    private void mergeJava(ByteBuffer trace, Diff diff, PathTable knownPaths) {
+        ByteBuffer view = nativeView(trace);
+        int limit = Math.min(size, view.capacity());
+
+        // 第一遍：原地分桶并计算路径哈希
+        long hash = TraceHash.start(size);
+        for (int i = 0; i + Long.BYTES <= limit; i += Long.BYTES) {
+            long raw = view.getLong(i);
+            if (raw != 0) {
+                long current = CoverageClassifier.classifyWord(raw);
+                view.putLong(i, current);
+                hash = TraceHash.update(hash, i >>> 3, current);
+            }
+        }
+        hash = TraceHash.finish(hash);
+        diff.buffer[DIFF_HASH_LOW] = (int) hash;
+        diff.buffer[DIFF_HASH_HIGH] = (int) (hash >>> 32);
+        diff.buffer[DIFF_NEW_EDGES] = 0;
+        diff.buffer[DIFF_NEW_BUCKETS] = 0;
+        diff.total = 0;
+
+        // 完全相同的路径已经合并过，不可能带来新覆盖
+        if (knownPaths != null && knownPaths.isKnown(hash)) {
+            return;
+        }
+
+        // 第二遍：与 virgin 表比较合并
+        int total = 0;
+        int newEdges = 0;
+        int newBuckets = 0;
+        for (int i = 0; i + Long.BYTES <= limit; i += Long.BYTES) {
+            long current = view.getLong(i);
+            if (current == 0) {
+                continue;
+            }
+            long vir = (long) LONG_LANES.getAcquire(virgin, i);
+            while ((current & vir) != 0) {
+                long witness = (long) LONG_LANES.compareAndExchange(virgin, i, vir, vir & ~current);
+                if (witness == vir) {
+                    break;
+                }
+                vir = witness;
+            }
+            if ((current & vir) == 0) {
+                continue;
+            }
+
+            // 按内存中的字节顺序逐个比较，下标与本地实现一致
+            for (int b = 0; b < Long.BYTES; b++) {
+                int cur = laneByte(current, b);
+                int old = laneByte(vir, b);
+                int fresh = cur & old;
+                if (fresh == 0) {
+                    continue;
+                }
+                boolean edge = old == 0xFF;
+                if (edge) {
+                    newEdges++;
+                } else {
+                    newBuckets++;
+                }
+                if (total < Diff.MAX_ENTRIES) {
+                    diff.buffer[DIFF_HEADER + total] = (i + b) << 9 | (edge ? 0x100 : 0) | fresh;
+                }
+                total++;
+            }
+        }
+
+        diff.buffer[DIFF_NEW_EDGES] = newEdges;
+        diff.buffer[DIFF_NEW_BUCKETS] = newBuckets;
+        diff.total = total;
+    }
+
+    /**
+     * 检查一份未分桶的原始覆盖率表是否包含新覆盖，不修改覆盖率表和 virgin 表
+     */
+    public CoverageStatus check(ByteBuffer rawTrace) {
+        ByteBuffer view = nativeView(rawTrace);
+        int limit = Math.min(size, view.capacity());
+        CoverageStatus status = CoverageStatus.NONE;
+
+        for (int i = 0; i + Long.BYTES <= limit; i += Long.BYTES) {
+            long raw = view.getLong(i);
+            if (raw == 0) {
+                continue;
+            }
+            long current = CoverageClassifier.classifyWord(raw);
+            long vir = (long) LONG_LANES.getAcquire(virgin, i);
+            if ((current & vir) == 0) {
+                continue;
+            }
+            if (countNewEdges(current, vir) > 0) {
+                return CoverageStatus.NEW_EDGE;
+            }
+            status = CoverageStatus.NEW_HIT_COUNT;
+        }
+        return status;
+    }
+
+    /**
+     * 统计字中命中且 virgin 字节仍为 0xFF 的字节数，即第一次出现的边
+     */
+    private static int countNewEdges(long current, long vir) {
+        int count = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+            if (((current >>> shift) & 0xFF) != 0 && ((vir >>> shift) & 0xFF) == 0xFF) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 取出 64 位字中位于内存偏移 b 处的字节
+     */
+    private static int laneByte(long word, int b) {
+        int shift = ORDER == ByteOrder.LITTLE_ENDIAN ? b * Byte.SIZE : (Long.BYTES - 1 - b) * Byte.SIZE;
+        return (int) (word >>> shift) & 0xFF;
+    }
+
+    private static ByteBuffer nativeView(ByteBuffer trace) {
+        // virgin 表的字节布局按本机字节序解释，保证第 i 个字节对应覆盖率表的第 i 个字节
+        return trace.order() == ORDER ? trace : trace.duplicate().order(ORDER);
+    }
+
+    public int getCoveredCount() {
+        return coveredCount.get();
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * 导出 AFL fuzz_bitmap 格式的 virgin 表（0xFF 表示从未命中）
+     */
+    public byte[] toByteArray() {
+        byte[] out = new byte[size];
+        virgin.duplicate().clear().get(out);
+        return out;
+    }
+
+    /**
+     * 导出每条边出现过的命中次数桶（virgin 表按位取反），0 表示从未命中
+     */
+    public byte[] toCoverageBytes() {
+        byte[] out = toByteArray();
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (byte) ~out[i];
+        }
+        return out;
+    }
+
+    /**
+     * 一次合并的摘要和新覆盖条目
+     * 条目打包为 (下标 << 9 | 新边标志 << 8 | 新增的桶)，最多保留 {@link #MAX_ENTRIES} 条
+     */
+    public static final class Diff {
+        public static final int MAX_ENTRIES = 1024;
+
+        private final int[] buffer = new int[DIFF_HEADER + MAX_ENTRIES];
+        private int total;
+        private boolean traceCleared;
+
+        public CoverageStatus getStatus() {
+            if (total <= 0) {
+                return CoverageStatus.NONE;
+            }
+            return buffer[DIFF_NEW_EDGES] > 0 ? CoverageStatus.NEW_EDGE : CoverageStatus.NEW_HIT_COUNT;
+        }
+
+        public int getNewEdges() {
+            return total > 0 ? buffer[DIFF_NEW_EDGES] : 0;
+        }
+
+        public int getNewBuckets() {
+            return total > 0 ? buffer[DIFF_NEW_BUCKETS] : 0;
+        }
+
+        /**
+         * 分桶后覆盖率表的路径哈希，见 {@link TraceHash}
+         */
+        public long getTraceHash() {
+            return (buffer[DIFF_HASH_LOW] & 0xFFFFFFFFL) | ((long) buffer[DIFF_HASH_HIGH] << 32);
+        }
+
+        /**
+         * 覆盖率表是否已在合并时被清零
+         */
+        public boolean isTraceCleared() {
+            return traceCleared;
+        }
+
+        public int[] copyEntries() {
+            int count = Math.max(0, Math.min(total, MAX_ENTRIES));
+            return Arrays.copyOfRange(buffer, DIFF_HEADER, DIFF_HEADER + count);
+        }
+    }
+}
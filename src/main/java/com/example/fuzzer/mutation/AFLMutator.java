@@ -1,10 +1,14 @@
 package com.example.fuzzer.mutation;
 
-import java.util.Random;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 public class AFLMutator implements Mutator {
     // 预定义的有趣值
-    private static final byte[] INTERESTING_8 = {
+    static final byte[] INTERESTING_8 = {
             Byte.MIN_VALUE,           // -128
             (byte) -100,
             (byte) -1,
@@ -25,7 +29,7 @@ public class AFLMutator implements Mutator {
             Byte.MAX_VALUE           // 127
     };
 
-    private static final short[] INTERESTING_16 = {
+    static final short[] INTERESTING_16 = {
             Short.MIN_VALUE,         // -32768
             (short) -21555,
             (short) -666,
@@ -50,11 +54,10 @@ public class AFLMutator implements Mutator {
             (short) 4096,
             (short) 8192,
             (short) 16384,
-            (short) 32767,          // Short.MAX_VALUE
-            (short) 0xFFFF          // 65535 (无符号最大值)
+            (short) 32767           // Short.MAX_VALUE
     };
 
-    private static final int[] INTERESTING_32 = {
+    static final int[] INTERESTING_32 = {
             Integer.MIN_VALUE,      // -2147483648
             -100663046,
             -10000000,
@@ -82,8 +85,7 @@ public class AFLMutator implements Mutator {
             65535,
             65536,
             100663045,
-            Integer.MAX_VALUE,      // 2147483647
-            0xFFFFFFFF              // 4294967295 (无符号最大值)
+            Integer.MAX_VALUE       // 2147483647
     };
 
     // 文件格式相关的魔数
@@ -99,35 +101,115 @@ public class AFLMutator implements Mutator {
             0x424D        // BMP signature
     };
 
-    private final Random random = new Random();
+    // 常见文件格式魔数（大端序写入），作为常量避免每次变异重新构造
+    private static final int[] MAGIC_HEADERS = {
+            0xFFD8FFE0,    // JPEG
+            0xFFD8FFE1,    // JPEG (EXIF)
+            0x89504E47,    // PNG
+            0x47494638,    // GIF
+            0x25504446,    // PDF
+            0x504B0304,    // ZIP
+            0x7F454C46     // ELF
+    };
+
+    // 字节数组上的 16/32 位视图，一次读写整个字，不再逐字节移位拼接
+    static final VarHandle SHORT_BE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    static final VarHandle SHORT_LE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+    static final VarHandle INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // 变长操作默认允许的最大输入长度，和 AFL 的 MAX_FILE 一致
+    public static final int DEFAULT_MAX_INPUT_SIZE = 1 << 20;
+
+    // havoc 变长操作选择块长度时的三档上限，和 AFL 的 HAVOC_BLK_SMALL/MEDIUM/LARGE/XL 一致
+    private static final int HAVOC_BLK_SMALL = 32;
+    private static final int HAVOC_BLK_MEDIUM = 128;
+    private static final int HAVOC_BLK_LARGE = 1500;
+    private static final int HAVOC_BLK_XL = 32768;
+
+    // 每次拼接最多尝试的拼接对象数，和 AFL 一样要求两者的差异区间至少跨过两个字节
+    private static final int SPLICE_ATTEMPTS = 8;
+
+    // havoc 操作的总数，最后两个是字典 token 覆盖和插入，没有字典时不参与选择
+    static final int HAVOC_OPERATORS = 18;
+
+    private static final MutationStrategy[] STRATEGIES = {
+            MutationStrategy.BITFLIP,
+            MutationStrategy.ARITHMETIC,
+            MutationStrategy.INTERESTING,
+            MutationStrategy.HAVOC,
+            MutationStrategy.SPLICE
+    };
+
+    // 每个工作线程持有自己的变异器实例，随机数流和当前策略都不跨线程共享
+    protected final SplittableRandom random;
     private MutationStrategy currentStrategy = MutationStrategy.NONE;
     private int mutationPower = 1;
+    private TokenDictionary dictionary = TokenDictionary.EMPTY;
+    private SpliceSource spliceSource;
+    private int minInputSize = 1;
+    private int maxInputSize = DEFAULT_MAX_INPUT_SIZE;
+
+    public AFLMutator() {
+        this(new SplittableRandom());
+    }
+
+    public AFLMutator(SplittableRandom random) {
+        this.random = random;
+    }
 
     @Override
     public byte[] mutate(byte[] input) {
-        // 随机选择变异策略
-        int strategy = random.nextInt(5);
-        byte[] mutated = input.clone();
+        MutationBuffer buffer = new MutationBuffer(input.length);
+        mutate(input, buffer);
+        return buffer.toByteArray();
+    }
 
-        switch (strategy) {
-            case 0:
-                currentStrategy = MutationStrategy.BITFLIP;
-                return bitFlip(mutated);
-            case 1:
-                currentStrategy = MutationStrategy.ARITHMETIC;
-                return arithmetic(mutated);
-            case 2:
-                currentStrategy = MutationStrategy.INTERESTING;
-                return insertInterestingValues(mutated);
-            case 3:
-                currentStrategy = MutationStrategy.HAVOC;
-                return havoc(mutated);
-            case 4:
-                currentStrategy = MutationStrategy.SPLICE;
-                return splice(mutated, input);
+    /**
+     * 先把 input 复制进 out，之后所有变异都在 out 的数组上原地进行，插入 token 时缓冲区会扩容
+     */
+    @Override
+    public int mutate(byte[] input, MutationBuffer out) {
+        out.load(input, input.length);
+        byte[] data = out.array();
+        int len = input.length;
+
+        currentStrategy = selectStrategy();
+        switch (currentStrategy) {
+            case BITFLIP:
+                bitFlip(data, len);
+                break;
+            case ARITHMETIC:
+                arithmetic(data, len);
+                break;
+            case INTERESTING:
+                insertInterestingValues(data, len);
+                break;
+            case HAVOC:
+                len = havoc(out, len);
+                break;
+            case SPLICE:
+                len = splice(out, len, input);
+                break;
             default:
-                return mutated;
+                break;
         }
+        out.setLength(len);
+        return len;
+    }
+
+    /**
+     * 选择这次变异使用的策略，默认在五种策略中均匀选择
+     */
+    protected MutationStrategy selectStrategy() {
+        return STRATEGIES[random.nextInt(STRATEGIES.length)];
+    }
+
+    /**
+     * 选择 havoc 的下一个操作，返回 [0, operations) 中的编号，默认均匀选择
+     */
+    protected int selectHavocOperator(int operations) {
+        return random.nextInt(operations);
     }
 
     @Override
@@ -145,133 +227,128 @@ public class AFLMutator implements Mutator {
         this.mutationPower = Math.max(1, power);
     }
 
+    @Override
+    public void setDictionary(TokenDictionary dictionary) {
+        this.dictionary = dictionary != null ? dictionary : TokenDictionary.EMPTY;
+    }
+
+    @Override
+    public void setSpliceSource(SpliceSource spliceSource) {
+        this.spliceSource = spliceSource;
+    }
+
+    @Override
+    public void setInputSizeLimits(int minSize, int maxSize) {
+        if (minSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException("输入长度范围无效: [" + minSize + ", " + maxSize + "]");
+        }
+        this.minInputSize = minSize;
+        this.maxInputSize = maxSize;
+    }
+
     // 位翻转变异
-    private byte[] bitFlip(byte[] input) {
-        if (input.length == 0) {
-            return input;
+    private void bitFlip(byte[] data, int len) {
+        if (len == 0) {
+            return;
         }
 
         // 根据变异强度选择翻转模式
         int mode = random.nextInt(6); // 0:1-bit, 1:2-bit, 2:4-bit, 3:8-bit, 4:16-bit, 5:32-bit
-        byte[] result = input.clone();
 
         switch (mode) {
             case 0: // 1-bit flip
-                flipOneBit(result);
+                flipOneBit(data, len);
                 break;
             case 1: // 2-bit flip
-                flipTwoBits(result);
+                flipTwoBits(data, len);
                 break;
             case 2: // 4-bit flip
-                flipFourBits(result);
+                flipFourBits(data, len);
                 break;
             case 3: // 8-bit flip (byte flip)
-                flipByte(result);
+                flipByte(data, len);
                 break;
             case 4: // 16-bit flip
-                flipWord(result);
+                flipWord(data, len);
                 break;
             case 5: // 32-bit flip
-                flipDWord(result);
+                flipDWord(data, len);
                 break;
         }
-
-        return result;
     }
 
     // 翻转单个位
-    private void flipOneBit(byte[] data) {
-        int pos = random.nextInt(data.length);
+    private void flipOneBit(byte[] data, int len) {
+        if (len == 0) return;
+        int pos = random.nextInt(len);
         int bit = random.nextInt(8);
         data[pos] ^= (1 << bit);
     }
 
     // 翻转相邻两位
-    private void flipTwoBits(byte[] data) {
-        if (data.length == 0) return;
-        int pos = random.nextInt(data.length);
+    private void flipTwoBits(byte[] data, int len) {
+        if (len == 0) return;
+        int pos = random.nextInt(len);
         int startBit = random.nextInt(7); // 确保有空间翻转两位
         data[pos] ^= (3 << startBit); // 3 = 0b11，同时翻转两位
     }
 
     // 翻转相邻四位
-    private void flipFourBits(byte[] data) {
-        if (data.length == 0) return;
-        int pos = random.nextInt(data.length);
+    private void flipFourBits(byte[] data, int len) {
+        if (len == 0) return;
+        int pos = random.nextInt(len);
         int startBit = random.nextInt(5); // 确保有空间翻转四位
         data[pos] ^= (15 << startBit); // 15 = 0b1111，同时翻转四位
     }
 
     // 翻转整个字节
-    private void flipByte(byte[] data) {
-        if (data.length == 0) return;
-        int pos = random.nextInt(data.length);
+    private void flipByte(byte[] data, int len) {
+        if (len == 0) return;
+        int pos = random.nextInt(len);
         data[pos] = (byte) ~data[pos];
     }
 
     // 翻转两个字节（16位）
-    private void flipWord(byte[] data) {
-        if (data.length < 2) return;
-        int pos = random.nextInt(data.length - 1); // 确保有空间翻转两个字节
-
-        // 读取16位值
-        int value = ((data[pos] & 0xFF) << 8) | (data[pos + 1] & 0xFF);
-        value = ~value; // 翻转所有位
-
-        // 写回两个字节
-        data[pos] = (byte) (value >> 8);
-        data[pos + 1] = (byte) value;
+    private void flipWord(byte[] data, int len) {
+        if (len < 2) return;
+        int pos = random.nextInt(len - 1); // 确保有空间翻转两个字节
+        SHORT_BE.set(data, pos, (short) ~(short) SHORT_BE.get(data, pos));
     }
 
     // 翻转四个字节（32位）
-    private void flipDWord(byte[] data) {
-        if (data.length < 4) return;
-        int pos = random.nextInt(data.length - 3); // 确保有空间翻转四个字节
-
-        // 读取32位值
-        int value = ((data[pos] & 0xFF) << 24) |
-                ((data[pos + 1] & 0xFF) << 16) |
-                ((data[pos + 2] & 0xFF) << 8) |
-                (data[pos + 3] & 0xFF);
-        value = ~value; // 翻转所有位
-
-        // 写回四个字节
-        data[pos] = (byte) (value >> 24);
-        data[pos + 1] = (byte) (value >> 16);
-        data[pos + 2] = (byte) (value >> 8);
-        data[pos + 3] = (byte) value;
+    private void flipDWord(byte[] data, int len) {
+        if (len < 4) return;
+        int pos = random.nextInt(len - 3); // 确保有空间翻转四个字节
+        INT_BE.set(data, pos, ~(int) INT_BE.get(data, pos));
     }
 
     // 算术变异
-    private byte[] arithmetic(byte[] input) {
-        if (input.length < 1) return input;
+    private void arithmetic(byte[] data, int len) {
+        if (len < 1) return;
 
-        byte[] result = input.clone();
         // 选择变异大小：8位、16位或32位
         int mode = random.nextInt(3);
 
         switch (mode) {
             case 0: // 8-bit
-                arithmetic8(result);
+                arithmetic8(data, len);
                 break;
             case 1: // 16-bit
-                arithmetic16(result);
+                arithmetic16(data, len);
                 break;
             case 2: // 32-bit
-                arithmetic32(result);
+                arithmetic32(data, len);
                 break;
         }
-
-        return result;
     }
 
     // 8位算术变异
-    private void arithmetic8(byte[] data) {
-        if (data.length == 0) {
+    private void arithmetic8(byte[] data, int len) {
+        if (len == 0) {
             return;
         }
 
-        int pos = random.nextInt(data.length);
+        int pos = random.nextInt(len);
         int val = data[pos] & 0xFF;
 
         switch (random.nextInt(8)) {
@@ -304,14 +381,14 @@ public class AFLMutator implements Mutator {
         data[pos] = (byte) val;
     }
 
-    // 16位算术变异
-    private void arithmetic16(byte[] data) {
-        if (data.length < 2) {
+    // 16位算术变异（大端序）
+    private void arithmetic16(byte[] data, int len) {
+        if (len < 2) {
             return;
         }
 
-        int pos = random.nextInt(data.length - 1);
-        int val = ((data[pos] & 0xFF) << 8) | (data[pos + 1] & 0xFF);
+        int pos = random.nextInt(len - 1);
+        int val = Short.toUnsignedInt((short) SHORT_BE.get(data, pos));
 
         switch (random.nextInt(8)) {
             case 0:
@@ -340,21 +417,17 @@ public class AFLMutator implements Mutator {
                 break;
         }
 
-        data[pos] = (byte) (val >> 8);
-        data[pos + 1] = (byte) val;
+        SHORT_BE.set(data, pos, (short) val);
     }
 
-    // 32位算术变异
-    private void arithmetic32(byte[] data) {
-        if (data.length < 4) {
+    // 32位算术变异（大端序）
+    private void arithmetic32(byte[] data, int len) {
+        if (len < 4) {
             return;
         }
 
-        int pos = random.nextInt(data.length - 3);
-        int val = ((data[pos] & 0xFF) << 24) |
-                ((data[pos + 1] & 0xFF) << 16) |
-                ((data[pos + 2] & 0xFF) << 8) |
-                (data[pos + 3] & 0xFF);
+        int pos = random.nextInt(len - 3);
+        int val = (int) INT_BE.get(data, pos);
 
         switch (random.nextInt(8)) {
             case 0:
@@ -383,270 +456,373 @@ public class AFLMutator implements Mutator {
                 break;
         }
 
-        data[pos] = (byte) (val >> 24);
-        data[pos + 1] = (byte) (val >> 16);
-        data[pos + 2] = (byte) (val >> 8);
-        data[pos + 3] = (byte) val;
+        INT_BE.set(data, pos, val);
     }
 
     // 插入有趣的值
-    private byte[] insertInterestingValues(byte[] input) {
-        if (input.length < 1) return input;
-        byte[] result = input.clone();
+    private void insertInterestingValues(byte[] data, int len) {
+        if (len < 1) return;
 
         // 选择变异模式：标准值/魔数/组合
         int mode = random.nextInt(3);
 
         switch (mode) {
             case 0: // 标准有趣值
-                insertStandardValue(result);
+                insertStandardValue(data, len);
                 break;
             case 1: // 文件格式魔数
-                insertMagicNumber(result);
+                insertMagicNumber(data, len);
                 break;
             case 2: // 组合插入
                 if (random.nextBoolean()) {
-                    insertStandardValue(result);
+                    insertStandardValue(data, len);
                 }
                 if (random.nextBoolean()) {
-                    insertMagicNumber(result);
+                    insertMagicNumber(data, len);
                 }
                 break;
         }
-
-        return result;
     }
 
     // 插入标准有趣值
-    private void insertStandardValue(byte[] data) {
-        if (data.length < 1) return;
+    private void insertStandardValue(byte[] data, int len) {
+        if (len < 1) return;
 
         // 选择值类型：8位/16位/32位
         int type = random.nextInt(3);
 
         switch (type) {
             case 0: // 8-bit
-                if (data.length >= 1) {
-                    int pos = random.nextInt(data.length);
-                    data[pos] = INTERESTING_8[random.nextInt(INTERESTING_8.length)];
-                }
+                data[random.nextInt(len)] = INTERESTING_8[random.nextInt(INTERESTING_8.length)];
                 break;
 
             case 1: // 16-bit
-                if (data.length >= 2) {
-                    int pos = random.nextInt(data.length - 1);
+                if (len >= 2) {
+                    int pos = random.nextInt(len - 1);
                     short value = INTERESTING_16[random.nextInt(INTERESTING_16.length)];
-
                     // 随机选择字节序
-                    if (random.nextBoolean()) {
-                        // 大端序
-                        data[pos] = (byte) (value >> 8);
-                        data[pos + 1] = (byte) value;
-                    } else {
-                        // 小端序
-                        data[pos] = (byte) value;
-                        data[pos + 1] = (byte) (value >> 8);
-                    }
+                    (random.nextBoolean() ? SHORT_BE : SHORT_LE).set(data, pos, value);
                 }
                 break;
 
             case 2: // 32-bit
-                if (data.length >= 4) {
-                    int pos = random.nextInt(data.length - 3);
+                if (len >= 4) {
+                    int pos = random.nextInt(len - 3);
                     int value = INTERESTING_32[random.nextInt(INTERESTING_32.length)];
-
                     // 随机选择字节序
-                    if (random.nextBoolean()) {
-                        // 大端序
-                        data[pos] = (byte) (value >> 24);
-                        data[pos + 1] = (byte) (value >> 16);
-                        data[pos + 2] = (byte) (value >> 8);
-                        data[pos + 3] = (byte) value;
-                    } else {
-                        // 小端序
-                        data[pos] = (byte) value;
-                        data[pos + 1] = (byte) (value >> 8);
-                        data[pos + 2] = (byte) (value >> 16);
-                        data[pos + 3] = (byte) (value >> 24);
-                    }
+                    (random.nextBoolean() ? INT_BE : INT_LE).set(data, pos, value);
                 }
                 break;
         }
     }
 
     // 插入魔数
-    private void insertMagicNumber(byte[] input) {
-        if (input.length < 4) {
+    private void insertMagicNumber(byte[] data, int len) {
+        if (len < 4) {
             return;
         }
 
-        // 常见文件格式魔数
-        byte[][] magicNumbers = {
-                // JPEG
-                {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0},
-                {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE1},
-                // PNG
-                {(byte) 0x89, (byte) 0x50, (byte) 0x4E, (byte) 0x47},
-                // GIF
-                {(byte) 0x47, (byte) 0x49, (byte) 0x46, (byte) 0x38},
-                // PDF
-                {(byte) 0x25, (byte) 0x50, (byte) 0x44, (byte) 0x46},
-                // ZIP
-                {(byte) 0x50, (byte) 0x4B, (byte) 0x03, (byte) 0x04},
-                // ELF
-                {(byte) 0x7F, (byte) 0x45, (byte) 0x4C, (byte) 0x46}
-        };
-
         // 随机选择一个魔数
-        byte[] magic = magicNumbers[random.nextInt(magicNumbers.length)];
+        int magic = MAGIC_HEADERS[random.nextInt(MAGIC_HEADERS.length)];
 
         // 随机选择插入位置，优先考虑文件开头和文件中部
         int pos;
         if (random.nextInt(4) == 0) { // 25%概率插在开头
             pos = 0;
-        } else if (random.nextInt(3) == 0) { // 33%概率插在中间
-            pos = input.length / 2;
+        } else if (random.nextInt(3) == 0) { // 33%概率插在中间，短输入时向前收，保证四个字节都在范围内
+            pos = Math.min(len / 2, len - Integer.BYTES);
         } else { // 其他情况随机位置
-            pos = random.nextInt(input.length - magic.length + 1);
+            pos = random.nextInt(len - Integer.BYTES + 1);
         }
 
-        // 复制魔数
-        System.arraycopy(magic, 0, input, pos, magic.length);
+        INT_BE.set(data, pos, magic);
     }
 
-    // havoc变异（多重随机变异）
-    private byte[] havoc(byte[] input) {
-        if (input.length == 0) {
-            return input;
+    // havoc变异（多重随机变异），返回变异后的长度
+    private int havoc(MutationBuffer out, int len) {
+        if (len == 0) {
+            return len;
         }
+        byte[] data = out.array();
+        // 有字典时增加 token 覆盖和插入两种操作
+        int operations = dictionary.isEmpty() ? HAVOC_OPERATORS - 2 : HAVOC_OPERATORS;
 
-        byte[] result = input.clone();
         // 根据变异强度决定变异次数，范围1-8次
         int numMutations = 1 + random.nextInt(Math.min(8, mutationPower));
 
         for (int i = 0; i < numMutations; i++) {
-            switch (random.nextInt(12)) {  // 增加到12种变异操作
+            switch (selectHavocOperator(operations)) {
                 case 0:  // 位翻转
-                    flipOneBit(result);
+                    flipOneBit(data, len);
                     break;
 
                 case 1:  // 字节翻转
-                    flipByte(result);
+                    flipByte(data, len);
                     break;
 
                 case 2:  // 算术变异
-                    arithmetic8(result);
+                    arithmetic8(data, len);
                     break;
 
                 case 3:  // 插入有趣值
-                    insertStandardValue(result);
+                    insertStandardValue(data, len);
                     break;
 
                 case 4:  // 字节随机化
-                    if (result.length > 0) {
-                        int pos = random.nextInt(result.length);
-                        result[pos] = (byte) random.nextInt(256);
-                    }
+                    data[random.nextInt(len)] = (byte) random.nextInt(256);
                     break;
 
                 case 5:  // 字节序交换
-                    if (result.length >= 4) {
-                        int pos = random.nextInt(result.length - 3);
-                        byte temp = result[pos];
-                        result[pos] = result[pos + 3];
-                        result[pos + 3] = temp;
-                        temp = result[pos + 1];
-                        result[pos + 1] = result[pos + 2];
-                        result[pos + 2] = temp;
+                    if (len >= 4) {
+                        int pos = random.nextInt(len - 3);
+                        INT_LE.set(data, pos, (int) INT_BE.get(data, pos));
                     }
                     break;
 
                 case 6:  // 块复制
-                    if (result.length >= 4) {
-                        int srcPos = random.nextInt(result.length - 2);
-                        int dstPos = random.nextInt(result.length - 2);
-                        int len = 1 + random.nextInt(Math.min(4, result.length - Math.max(srcPos, dstPos)));
-                        System.arraycopy(result, srcPos, result, dstPos, len);
+                    if (len >= 4) {
+                        int srcPos = random.nextInt(len - 2);
+                        int dstPos = random.nextInt(len - 2);
+                        int n = 1 + random.nextInt(Math.min(4, len - Math.max(srcPos, dstPos)));
+                        System.arraycopy(data, srcPos, data, dstPos, n);
                     }
                     break;
 
-                case 7:  // 块交换
-                    if (result.length >= 4) {
-                        int pos1 = random.nextInt(result.length - 2);
-                        int pos2 = random.nextInt(result.length - 2);
-                        int len = 1 + random.nextInt(Math.min(4,
-                                Math.min(result.length - pos1, result.length - pos2)));
-
-                        byte[] temp = new byte[len];
-                        System.arraycopy(result, pos1, temp, 0, len);
-                        System.arraycopy(result, pos2, result, pos1, len);
-                        System.arraycopy(temp, 0, result, pos2, len);
+                case 7:  // 块交换，最多 4 字节，逐字节交换不需要临时数组
+                    if (len >= 4) {
+                        int pos1 = random.nextInt(len - 2);
+                        int pos2 = random.nextInt(len - 2);
+                        int n = 1 + random.nextInt(Math.min(4, Math.min(len - pos1, len - pos2)));
+                        for (int k = 0; k < n; k++) {
+                            byte temp = data[pos1 + k];
+                            data[pos1 + k] = data[pos2 + k];
+                            data[pos2 + k] = temp;
+                        }
                     }
                     break;
 
                 case 8:  // 重复字节
-                    if (result.length >= 2) {
-                        int pos = random.nextInt(result.length - 1);
-                        result[pos + 1] = result[pos];
+                    if (len >= 2) {
+                        int pos = random.nextInt(len - 1);
+                        data[pos + 1] = data[pos];
                     }
                     break;
 
                 case 9:  // 插入魔数
-                    insertMagicNumber(result);
+                    insertMagicNumber(data, len);
                     break;
 
                 case 10: // 算术变异（16位）
-                    arithmetic16(result);
+                    arithmetic16(data, len);
                     break;
 
                 case 11: // 算术变异（32位）
-                    arithmetic32(result);
+                    arithmetic32(data, len);
+                    break;
+
+                case 12: // 删除一段字节
+                    len = deleteBlock(data, len);
+                    break;
+
+                case 13: // 复制已有的一段插入到随机位置
+                    len = cloneBlock(out, len);
+                    data = out.array();
+                    break;
+
+                case 14: // 插入一段随机字节或重复的常量字节
+                    len = insertBlock(out, len);
+                    data = out.array();
+                    break;
+
+                case 15: // 用随机长度的已有片段或常量字节覆盖
+                    overwriteBlock(data, len);
+                    break;
+
+                case 16: // 用字典 token 覆盖
+                    overwriteToken(data, len);
+                    break;
+
+                case 17: // 插入字典 token
+                    len = insertToken(out, len);
+                    data = out.array();
                     break;
             }
         }
+        return len;
+    }
 
-        return result;
+    // 按 AFL 的 choose_block_len 选块长度：多数情况是小块，偶尔取到上千字节的大块，结果落在 [1, limit]
+    private int chooseBlockLength(int limit) {
+        int min;
+        int max;
+        switch (random.nextInt(3)) {
+            case 0:
+                min = 1;
+                max = HAVOC_BLK_SMALL;
+                break;
+            case 1:
+                min = HAVOC_BLK_SMALL;
+                max = HAVOC_BLK_MEDIUM;
+                break;
+            default:
+                if (random.nextInt(10) != 0) {
+                    min = HAVOC_BLK_MEDIUM;
+                    max = HAVOC_BLK_LARGE;
+                } else {
+                    min = HAVOC_BLK_LARGE;
+                    max = HAVOC_BLK_XL;
+                }
+                break;
+        }
+        if (min >= limit) {
+            min = 1;
+        }
+        return min + random.nextInt(Math.min(max, limit) - min + 1);
     }
 
-    // splice变异（交叉合并）
-    private byte[] splice(byte[] input1, byte[] input2) {
-        // 确保输入有效且足够长
-        if (input1.length < 4 || input2.length < 4) {
-            return input1;
+    // 删除一段字节，删除后的长度不小于最小输入长度
+    private int deleteBlock(byte[] data, int len) {
+        if (len <= minInputSize) {
+            return len;
         }
+        int deleteLen = chooseBlockLength(len - minInputSize);
+        int from = random.nextInt(len - deleteLen + 1);
+        System.arraycopy(data, from + deleteLen, data, from, len - from - deleteLen);
+        return len - deleteLen;
+    }
 
-        // 创建输入1的副本
-        byte[] result = input1.clone();
+    // 把输入中的一段复制后插入到随机位置，用来制造重复的记录和元素
+    private int cloneBlock(MutationBuffer out, int len) {
+        int room = maxInputSize - len;
+        if (room < 1) {
+            return len;
+        }
+        int cloneLen = chooseBlockLength(Math.min(len, room));
+        int from = random.nextInt(len - cloneLen + 1);
+        int to = random.nextInt(len + 1);
+        out.ensureCapacity(len + cloneLen);
+        byte[] data = out.array();
+        System.arraycopy(data, to, data, to + cloneLen, len - to);
+        // 腾出空间后源片段可能整体或部分后移了 cloneLen
+        if (from >= to) {
+            System.arraycopy(data, from + cloneLen, data, to, cloneLen);
+        } else if (from + cloneLen <= to) {
+            System.arraycopy(data, from, data, to, cloneLen);
+        } else {
+            int head = to - from;
+            System.arraycopy(data, from, data, to, head);
+            System.arraycopy(data, to + cloneLen, data, to + head, cloneLen - head);
+        }
+        return len + cloneLen;
+    }
 
-        // 计算切分点
-        int cutPoint1, cutPoint2;
+    // 插入一段新字节，一半是随机字节，一半是重复的常量（随机值或输入中已有的字节）
+    private int insertBlock(MutationBuffer out, int len) {
+        int room = maxInputSize - len;
+        if (room < 1) {
+            return len;
+        }
+        int insertLen = chooseBlockLength(Math.min(HAVOC_BLK_XL, room));
+        int to = random.nextInt(len + 1);
+        out.ensureCapacity(len + insertLen);
+        byte[] data = out.array();
+        System.arraycopy(data, to, data, to + insertLen, len - to);
+        if (random.nextBoolean()) {
+            for (int i = to; i < to + insertLen; i++) {
+                data[i] = (byte) random.nextInt(256);
+            }
+        } else {
+            byte value = random.nextBoolean() ? (byte) random.nextInt(256) : data[random.nextInt(len)];
+            Arrays.fill(data, to, to + insertLen, value);
+        }
+        return len + insertLen;
+    }
 
-        // 优先选择"有趣"的切分点
-        if (random.nextInt(4) == 0) { // 25%的概率选择文件头部
-            cutPoint1 = 0;
-            cutPoint2 = 0;
-        } else if (random.nextInt(3) == 0) { // 33%的概率选择文件中部
-            cutPoint1 = result.length / 2;
-            cutPoint2 = input2.length / 2;
-        } else { // 其他情况随机选择，但避免太小的片段
-            int minSize = Math.min(32, Math.min(result.length, input2.length) / 4);
-            cutPoint1 = minSize + random.nextInt(result.length - minSize);
-            cutPoint2 = minSize + random.nextInt(input2.length - minSize);
+    // 用输入中另一段随机长度的片段或重复的常量覆盖，长度不变
+    private void overwriteBlock(byte[] data, int len) {
+        if (len < 2) {
+            return;
+        }
+        int copyLen = chooseBlockLength(len - 1);
+        int to = random.nextInt(len - copyLen + 1);
+        if (random.nextInt(4) != 0) {
+            int from = random.nextInt(len - copyLen + 1);
+            System.arraycopy(data, from, data, to, copyLen);
+        } else {
+            byte value = random.nextBoolean() ? (byte) random.nextInt(256) : data[random.nextInt(len)];
+            Arrays.fill(data, to, to + copyLen, value);
         }
+    }
 
-        // 计算要复制的长度
-        int copyLen = Math.min(result.length - cutPoint1, input2.length - cutPoint2);
-        copyLen = Math.min(copyLen, 1024); // 限制最大复制长度
+    // 随机选一个放得下的 token 覆盖到随机位置
+    private void overwriteToken(byte[] data, int len) {
+        byte[] token = dictionary.pick(random, len);
+        if (token == null) {
+            return;
+        }
+        int pos = random.nextInt(len - token.length + 1);
+        System.arraycopy(token, 0, data, pos, token.length);
+    }
 
-        // 执行splice操作
-        System.arraycopy(input2, cutPoint2, result, cutPoint1, copyLen);
+    // 在随机位置插入一个 token，返回新长度
+    private int insertToken(MutationBuffer out, int len) {
+        byte[] token = dictionary.get(random.nextInt(dictionary.size()));
+        if (len + token.length > maxInputSize) {
+            return len;
+        }
+        int pos = random.nextInt(len + 1);
+        out.ensureCapacity(len + token.length);
+        byte[] data = out.array();
+        System.arraycopy(data, pos, data, pos + token.length, len - pos);
+        System.arraycopy(token, 0, data, pos, token.length);
+        return len + token.length;
+    }
 
-        // 有一定概率对拼接结果进行havoc变异
-        if (random.nextInt(2) == 0) { // 50%的概率
-            result = havoc(result);
+    // splice变异（交叉合并），把 donor 的一段覆盖到 out 上，返回变异后的长度
+    /**
+     * 按 AFL 的方式和语料库中的另一个输入交叉：在两者第一个和最后一个不同字节之间选切分点，
+     * 切分点之前保留当前输入，之后换成拼接对象的内容，然后再做一轮 havoc。
+     * 找不到差异足够大的拼接对象时退化为单纯的 havoc。
+     */
+    private int splice(MutationBuffer out, int len, byte[] input) {
+        if (spliceSource != null && len >= 2) {
+            for (int attempt = 0; attempt < SPLICE_ATTEMPTS; attempt++) {
+                byte[] partner = spliceSource.selectPartner(input, random);
+                if (partner == null) {
+                    break;
+                }
+                if (partner.length < 2 || partner.length > maxInputSize) {
+                    continue;
+                }
+                long diffs = locateDiffs(out.array(), partner, Math.min(len, partner.length));
+                int firstDiff = (int) (diffs >> 32);
+                int lastDiff = (int) diffs;
+                if (firstDiff < 0 || lastDiff < 2 || firstDiff == lastDiff) {
+                    continue;
+                }
+                int splitAt = firstDiff + random.nextInt(lastDiff - firstDiff);
+                out.ensureCapacity(partner.length);
+                System.arraycopy(partner, splitAt, out.array(), splitAt, partner.length - splitAt);
+                len = partner.length;
+                break;
+            }
         }
+        return havoc(out, len);
+    }
 
-        return result;
+    // 返回两段数据前 len 个字节中第一个（高 32 位）和最后一个（低 32 位）不同字节的位置，没有差异时都为 -1
+    private static long locateDiffs(byte[] a, byte[] b, int len) {
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < len; i++) {
+            if (a[i] != b[i]) {
+                if (first < 0) {
+                    first = i;
+                }
+                last = i;
+            }
+        }
+        return ((long) first << 32) | (last & 0xFFFFFFFFL);
     }
 
     // 辅助方法：寻找特征字节序列
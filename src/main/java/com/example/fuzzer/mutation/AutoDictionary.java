@@ -0,0 +1,220 @@
+package com.example.fuzzer.mutation;
+
+import com.example.fuzzer.elf.ElfFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 从目标程序的 ELF 文件中自动提取字典
+ * <ul>
+ *     <li>.rodata 和 .data 中以 NUL 结尾的可打印字符串，关键字形状的短字符串排名靠前，
+ *     格式化字符串和较长的提示信息被丢弃</li>
+ *     <li>x86/x86-64 可执行节区中 cmp 指令的 16/32 位立即数和 movabs 装载的 64 位常量，
+ *     按小端序转成 token，同一个常量被比较的次数越多排名越高</li>
+ * </ul>
+ * 可执行节区按字节线性扫描而不做完整反汇编，会混入少量误报，排名和数量上限用来压低它们的影响。
+ */
+public final class AutoDictionary {
+    public static final int DEFAULT_MAX_TOKENS = 256;
+
+    private static final int EM_386 = 3;
+    private static final int EM_X86_64 = 62;
+
+    private static final int MIN_STRING_LENGTH = 3;
+    // 少于这个数量的空格视为关键字或短语，更多的通常是给人看的提示信息
+    private static final int MAX_STRING_SPACES = 2;
+    // 排名前先保留的候选数量，避免巨大的二进制把排序拖慢
+    private static final int MAX_CANDIDATES = 1 << 16;
+
+    private AutoDictionary() {
+    }
+
+    /**
+     * 提取并排名，返回按得分从高到低排列的 token，取前若干个作为字典即可
+     */
+    public static List<byte[]> extract(Path targetProgram) throws IOException {
+        ElfFile elf = ElfFile.read(targetProgram);
+        boolean x86 = elf.getMachine() == EM_386 || elf.getMachine() == EM_X86_64;
+        Map<ByteBuffer, double[]> scores = new HashMap<>();
+
+        for (ElfFile.Section section : elf.getSections()) {
+            String name = section.getName();
+            if (name.equals(".rodata") || name.startsWith(".rodata.") || name.equals(".data")) {
+                scanStrings(elf.readSection(section), scores);
+            } else if (x86 && section.isExecutable() && elf.isLittleEndian()) {
+                scanComparisons(elf.readSection(section), elf.is64Bit(), scores);
+            }
+        }
+
+        List<Map.Entry<ByteBuffer, double[]>> ranked = new ArrayList<>(scores.entrySet());
+        // 得分相同时短的在前，再按内容排序，保证同一个二进制每次得到相同的结果
+        ranked.sort((a, b) -> {
+            int c = Double.compare(b.getValue()[0], a.getValue()[0]);
+            if (c != 0) {
+                return c;
+            }
+            c = Integer.compare(a.getKey().capacity(), b.getKey().capacity());
+            return c != 0 ? c : Arrays.compare(a.getKey().array(), b.getKey().array());
+        });
+
+        List<byte[]> tokens = new ArrayList<>(Math.min(ranked.size(), MAX_CANDIDATES));
+        for (Map.Entry<ByteBuffer, double[]> entry : ranked) {
+            if (tokens.size() >= MAX_CANDIDATES) {
+                break;
+            }
+            tokens.add(entry.getKey().array());
+        }
+        return tokens;
+    }
+
+    private static void scanStrings(byte[] data, Map<ByteBuffer, double[]> scores) {
+        int start = 0;
+        for (int i = 0; i <= data.length; i++) {
+            boolean printable = i < data.length && isPrintable(data[i]);
+            if (printable) {
+                continue;
+            }
+            // 只接受以 NUL 结尾的串，其余的可打印片段多半是数值数据的一部分
+            int length = i - start;
+            if ((i == data.length || data[i] == 0) && length >= MIN_STRING_LENGTH
+                    && length <= TokenDictionary.MAX_TOKEN_LENGTH) {
+                double score = scoreString(data, start, length);
+                if (score > 0) {
+                    add(scores, Arrays.copyOfRange(data, start, i), score);
+                }
+            }
+            start = i + 1;
+        }
+    }
+
+    private static boolean isPrintable(byte b) {
+        return (b >= 0x20 && b < 0x7F) || b == '\t';
+    }
+
+    private static double scoreString(byte[] data, int start, int length) {
+        int spaces = 0;
+        boolean keyword = true;
+        for (int i = start; i < start + length; i++) {
+            byte b = data[i];
+            if (b == '%') {
+                return 0;    // 格式化字符串
+            }
+            if (b == ' ') {
+                spaces++;
+            }
+            if (!Character.isLetterOrDigit(b) && b != '_' && b != '-' && b != '.') {
+                keyword = false;
+            }
+        }
+        if (spaces > MAX_STRING_SPACES || (data[start] == '_' && data[start + 1] == '_')) {
+            return 0;
+        }
+        double score = keyword ? 3.0 : spaces == 0 ? 2.0 : 1.0;
+        return length <= 16 ? score * 1.5 : score;
+    }
+
+    // 识别 [66] [REX] 3D imm、[66] [REX] 81 /7 imm 和 REX.W B8+r imm64
+    private static void scanComparisons(byte[] code, boolean is64, Map<ByteBuffer, double[]> scores) {
+        for (int i = 0; i < code.length; i++) {
+            // 前一个字节是前缀时，这条指令已经在前一个位置按带前缀的形式识别过
+            if (i > 0 && ((code[i - 1] & 0xFF) == 0x66 || (is64 && (code[i - 1] & 0xF0) == 0x40))) {
+                continue;
+            }
+            int p = i;
+            boolean operand16 = false;
+            boolean rexW = false;
+            if ((code[p] & 0xFF) == 0x66) {
+                operand16 = true;
+                if (++p >= code.length) {
+                    break;
+                }
+            }
+            if (is64 && (code[p] & 0xF0) == 0x40) {
+                rexW = (code[p] & 0x08) != 0;
+                if (++p >= code.length) {
+                    break;
+                }
+            }
+            int opcode = code[p++] & 0xFF;
+            int width;
+            if (opcode == 0x3D) {
+                width = operand16 ? 2 : 4;
+            } else if (opcode == 0x81) {
+                if (p >= code.length || ((code[p] >> 3) & 7) != 7) {
+                    continue;
+                }
+                p += modrmLength(code, p);
+                width = operand16 ? 2 : 4;
+            } else if (rexW && opcode >= 0xB8 && opcode <= 0xBF) {
+                width = 8;
+            } else {
+                continue;
+            }
+            if (p + width > code.length) {
+                continue;
+            }
+            byte[] token = Arrays.copyOfRange(code, p, p + width);
+            if (isUsefulConstant(token)) {
+                add(scores, token, width >= 4 ? 1.5 : 1.0);
+            }
+        }
+    }
+
+    // ModRM 字节及其后的 SIB 和位移一共占用的字节数
+    private static int modrmLength(byte[] code, int p) {
+        int modrm = code[p] & 0xFF;
+        int mod = modrm >> 6;
+        int rm = modrm & 7;
+        int length = 1;
+        if (mod == 3) {
+            return length;
+        }
+        if (rm == 4) {
+            length++;
+            if (mod == 0 && p + 1 < code.length && (code[p + 1] & 7) == 5) {
+                length += 4;
+            }
+        } else if (mod == 0 && rm == 5) {
+            length += 4;
+        }
+        if (mod == 1) {
+            length += 1;
+        } else if (mod == 2) {
+            length += 4;
+        }
+        return length;
+    }
+
+    // 过滤由算术和有趣值阶段就能得到的常量：16 位要求高字节非零，32/64 位要求高半部分不是符号扩展的小整数。
+    // 这同时排除了 RIP 相对寻址中被误当成立即数的短位移
+    private static boolean isUsefulConstant(byte[] token) {
+        if (token.length == 2) {
+            return token[1] != 0 && token[1] != (byte) 0xFF;
+        }
+        ByteBuffer value = ByteBuffer.wrap(token).order(ByteOrder.LITTLE_ENDIAN);
+        long v = token.length == 4 ? value.getInt() : value.getLong();
+        long high = v >> (token.length * 4);
+        if (high == 0 || high == -1) {
+            return false;
+        }
+        int nonZero = 0;
+        for (byte b : token) {
+            if (b != 0) {
+                nonZero++;
+            }
+        }
+        return nonZero >= token.length / 2;
+    }
+
+    private static void add(Map<ByteBuffer, double[]> scores, byte[] token, double score) {
+        scores.computeIfAbsent(ByteBuffer.wrap(token), k -> new double[1])[0] += score;
+    }
+}
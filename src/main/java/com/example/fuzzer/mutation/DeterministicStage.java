@@ -0,0 +1,627 @@
+package com.example.fuzzer.mutation;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.example.fuzzer.mutation.AFLMutator.INTERESTING_16;
+import static com.example.fuzzer.mutation.AFLMutator.INTERESTING_32;
+import static com.example.fuzzer.mutation.AFLMutator.INTERESTING_8;
+import static com.example.fuzzer.mutation.AFLMutator.INT_LE;
+import static com.example.fuzzer.mutation.AFLMutator.SHORT_LE;
+
+/**
+ * AFL 风格的确定性变异阶段
+ * 按位置依次对种子做位翻转、字节翻转、算术加减和有趣值替换，每个种子只完整执行一遍。
+ * 当前阶段和位置保存在对象中，工作线程每次选中种子时推进一段，同一时刻只允许一个线程持有。
+ * <p>
+ * 8 位翻转阶段根据执行结果的路径哈希建立 effector 表：翻转后路径不变的字节视为无关字节，
+ * 之后的多字节翻转、算术和有趣值阶段跳过完全落在无关字节上的位置。
+ * 和 AFL 一样，能由前面阶段产生的算术值和有趣值不会重复执行。
+ * 有字典时最后依次用每个 token 覆盖和插入到每个位置。
+ */
+public class DeterministicStage {
+    private static final int ARITH_MAX = 35;
+    // 短于该长度的输入不建立 effector 表，所有字节都视为有效
+    private static final int EFF_MIN_LEN = 128;
+    // 有效字节比例超过该值时认为表没有意义，直接全部标记为有效
+    private static final int EFF_MAX_PERCENT = 90;
+    // 确定性阶段按加载顺序最多使用的字典 token 数，更多的 token 只在 havoc 中随机使用
+    private static final int MAX_DET_EXTRAS = 200;
+
+    public enum Stage {
+        CALIBRATE,  // 执行原始种子，记录基准路径哈希
+        FLIP1,
+        FLIP2,
+        FLIP4,
+        FLIP8,      // 同时建立 effector 表
+        FLIP16,
+        FLIP32,
+        ARITH8,
+        ARITH16,
+        ARITH32,
+        INTEREST8,
+        INTEREST16,
+        INTEREST32,
+        EXTRAS_OVER,    // 字典 token 覆盖
+        EXTRAS_INSERT,  // 字典 token 插入
+        DONE
+    }
+
+    private final byte[] seed;
+    private final int len;
+    private final AtomicBoolean busy = new AtomicBoolean();
+
+    private volatile Stage stage;
+    private int pos;    // 阶段内位置，FLIP1/2/4 为位下标，其余为字节下标
+    private int sub;    // 当前位置上已尝试的取值个数
+    private boolean[] effector;
+    private long baselineHash;
+    private TokenDictionary dictionary = TokenDictionary.EMPTY;
+
+    // 上一个变异体改动过的字节范围及其阶段和位置，用于还原和接收执行反馈
+    private int dirtyFrom;
+    private int dirtyTo;
+    private Stage lastStage;
+    private int lastPos;
+    private int mutantLength;
+
+    public DeterministicStage(byte[] seed) {
+        this.seed = seed;
+        this.len = seed.length;
+        this.stage = len == 0 ? Stage.DONE : Stage.CALIBRATE;
+    }
+
+    /**
+     * 尝试独占推进本阶段，已被其它线程持有时返回 false
+     */
+    public boolean tryAcquire() {
+        return !isDone() && busy.compareAndSet(false, true);
+    }
+
+    public void release() {
+        busy.set(false);
+    }
+
+    public boolean isDone() {
+        return stage == Stage.DONE;
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    /**
+     * 把种子装入缓冲区，每次持有后、调用 {@link #next} 之前调用一次
+     */
+    public void begin(MutationBuffer out) {
+        begin(out, TokenDictionary.EMPTY);
+    }
+
+    /**
+     * @param dictionary 字典阶段使用的 token，同一个种子的每次推进都应传入同一个字典
+     */
+    public void begin(MutationBuffer out, TokenDictionary dictionary) {
+        this.dictionary = dictionary;
+        out.load(seed, len);
+        out.ensureCapacity(len + dictionary.getMaxLength());
+        dirtyFrom = dirtyTo = 0;
+    }
+
+    /**
+     * 还原上一个变异体并在原地生成下一个，返回输入长度，所有阶段完成后返回 -1
+     */
+    public int next(MutationBuffer out) {
+        byte[] data = out.array();
+        if (dirtyTo > dirtyFrom) {
+            System.arraycopy(seed, dirtyFrom, data, dirtyFrom, dirtyTo - dirtyFrom);
+            dirtyFrom = dirtyTo = 0;
+        }
+        while (stage != Stage.DONE) {
+            if (step(data)) {
+                out.setLength(mutantLength);
+                return mutantLength;
+            }
+        }
+        out.setLength(len);
+        return -1;
+    }
+
+    /**
+     * 上一个变异体的执行结果，基准阶段记录路径哈希，8 位翻转阶段据此标记 effector 表
+     */
+    public void report(long traceHash) {
+        if (lastStage == Stage.CALIBRATE) {
+            baselineHash = traceHash;
+        } else if (lastStage == Stage.FLIP8 && traceHash != baselineHash) {
+            effector[lastPos] = true;
+        }
+    }
+
+    /**
+     * 上一个变异体对应的变异策略
+     */
+    public Mutator.MutationStrategy getStrategy() {
+        if (lastStage == null) {
+            return Mutator.MutationStrategy.NONE;
+        }
+        switch (lastStage) {
+            case FLIP1:
+            case FLIP2:
+            case FLIP4:
+            case FLIP8:
+            case FLIP16:
+            case FLIP32:
+                return Mutator.MutationStrategy.BITFLIP;
+            case ARITH8:
+            case ARITH16:
+            case ARITH32:
+                return Mutator.MutationStrategy.ARITHMETIC;
+            case INTEREST8:
+            case INTEREST16:
+            case INTEREST32:
+                return Mutator.MutationStrategy.INTERESTING;
+            case EXTRAS_OVER:
+            case EXTRAS_INSERT:
+                return Mutator.MutationStrategy.DICTIONARY;
+            default:
+                return Mutator.MutationStrategy.NONE;
+        }
+    }
+
+    // 尝试在当前位置生成一个变异体并推进游标，位置被跳过或阶段结束时返回 false
+    private boolean step(byte[] data) {
+        switch (stage) {
+            case CALIBRATE:
+                mark(0, 0);
+                nextStage();
+                return true;
+            case FLIP1:
+                return flipBits(data, 1);
+            case FLIP2:
+                return flipBits(data, 2);
+            case FLIP4:
+                return flipBits(data, 4);
+            case FLIP8:
+                if (pos >= len) {
+                    nextStage();
+                    return false;
+                }
+                data[pos] ^= (byte) 0xFF;
+                mark(pos, 1);
+                pos++;
+                return true;
+            case FLIP16:
+                return flipBytes(data, 2);
+            case FLIP32:
+                return flipBytes(data, 4);
+            case ARITH8:
+                return arith8(data);
+            case ARITH16:
+                return arith16(data);
+            case ARITH32:
+                return arith32(data);
+            case INTEREST8:
+                return interest8(data);
+            case INTEREST16:
+                return interest16(data);
+            case INTEREST32:
+                return interest32(data);
+            case EXTRAS_OVER:
+                return extrasOver(data);
+            case EXTRAS_INSERT:
+                return extrasInsert(data);
+            default:
+                return false;
+        }
+    }
+
+    private void nextStage() {
+        Stage finished = stage;
+        stage = Stage.values()[finished.ordinal() + 1];
+        pos = 0;
+        sub = 0;
+        if (stage == Stage.FLIP8) {
+            effector = new boolean[len];
+            if (len < EFF_MIN_LEN) {
+                Arrays.fill(effector, true);
+            }
+        } else if (finished == Stage.FLIP8) {
+            finishEffector();
+        } else if (stage == Stage.DONE) {
+            effector = null;
+        }
+    }
+
+    // 首尾字节总是有效；有效字节过多时全部标记，避免表本身的开销
+    private void finishEffector() {
+        effector[0] = true;
+        effector[len - 1] = true;
+        int count = 0;
+        for (boolean b : effector) {
+            if (b) {
+                count++;
+            }
+        }
+        if (count * 100L / len > EFF_MAX_PERCENT) {
+            Arrays.fill(effector, true);
+        }
+    }
+
+    private void mark(int from, int width) {
+        lastStage = stage;
+        lastPos = from;
+        dirtyFrom = from;
+        dirtyTo = from + width;
+        mutantLength = len;
+    }
+
+    // 位置 [from, from + width) 中至少有一个有效字节
+    private boolean effective(int from, int width) {
+        for (int i = from; i < from + width; i++) {
+            if (effector[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 跳过当前字节位置的剩余取值
+    private boolean skipPosition() {
+        pos++;
+        sub = 0;
+        return false;
+    }
+
+    // 推进到当前位置的下一个取值
+    private void advance(int valuesPerPosition) {
+        if (++sub >= valuesPerPosition) {
+            sub = 0;
+            pos++;
+        }
+    }
+
+    private boolean flipBits(byte[] data, int bits) {
+        if (pos > len * 8 - bits) {
+            nextStage();
+            return false;
+        }
+        for (int i = pos; i < pos + bits; i++) {
+            data[i >> 3] ^= (byte) (128 >> (i & 7));
+        }
+        int from = pos >> 3;
+        mark(from, ((pos + bits - 1) >> 3) - from + 1);
+        pos++;
+        return true;
+    }
+
+    private boolean flipBytes(byte[] data, int width) {
+        if (pos > len - width) {
+            nextStage();
+            return false;
+        }
+        if (!effective(pos, width)) {
+            return skipPosition();
+        }
+        for (int i = pos; i < pos + width; i++) {
+            data[i] ^= (byte) 0xFF;
+        }
+        mark(pos, width);
+        pos++;
+        return true;
+    }
+
+    private boolean arith8(byte[] data) {
+        if (pos >= len) {
+            nextStage();
+            return false;
+        }
+        if (!effector[pos]) {
+            return skipPosition();
+        }
+        int j = sub / 2 + 1;
+        int orig = seed[pos] & 0xFF;
+        int r = ((sub & 1) == 0 ? orig + j : orig - j) & 0xFF;
+        int at = pos;
+        advance(2 * ARITH_MAX);
+        if (couldBeBitflip(orig ^ r)) {
+            return false;
+        }
+        data[at] = (byte) r;
+        mark(at, 1);
+        return true;
+    }
+
+    // 16/32 位算术只尝试会进位或借位到高字节的取值，其余已被 8 位算术覆盖
+    private boolean arith16(byte[] data) {
+        if (pos > len - 2) {
+            nextStage();
+            return false;
+        }
+        if (!effective(pos, 2)) {
+            return skipPosition();
+        }
+        int j = sub / 4 + 1;
+        int variant = sub & 3;
+        int orig = Short.toUnsignedInt((short) SHORT_LE.get(seed, pos));
+        int value = variant < 2 ? orig : swap16(orig);
+        boolean add = (variant & 1) == 0;
+        int at = pos;
+        advance(4 * ARITH_MAX);
+        if (add ? (value & 0xFF) + j <= 0xFF : (value & 0xFF) >= j) {
+            return false;
+        }
+        int r = (add ? value + j : value - j) & 0xFFFF;
+        if (variant >= 2) {
+            r = swap16(r);
+        }
+        if (couldBeBitflip(orig ^ r)) {
+            return false;
+        }
+        SHORT_LE.set(data, at, (short) r);
+        mark(at, 2);
+        return true;
+    }
+
+    private boolean arith32(byte[] data) {
+        if (pos > len - 4) {
+            nextStage();
+            return false;
+        }
+        if (!effective(pos, 4)) {
+            return skipPosition();
+        }
+        int j = sub / 4 + 1;
+        int variant = sub & 3;
+        int orig = (int) INT_LE.get(seed, pos);
+        int value = variant < 2 ? orig : Integer.reverseBytes(orig);
+        boolean add = (variant & 1) == 0;
+        int at = pos;
+        advance(4 * ARITH_MAX);
+        if (add ? (value & 0xFFFF) + j <= 0xFFFF : (value & 0xFFFF) >= j) {
+            return false;
+        }
+        int r = add ? value + j : value - j;
+        if (variant >= 2) {
+            r = Integer.reverseBytes(r);
+        }
+        if (couldBeBitflip(orig ^ r)) {
+            return false;
+        }
+        INT_LE.set(data, at, r);
+        mark(at, 4);
+        return true;
+    }
+
+    private boolean interest8(byte[] data) {
+        if (pos >= len) {
+            nextStage();
+            return false;
+        }
+        if (!effector[pos]) {
+            return skipPosition();
+        }
+        int orig = seed[pos] & 0xFF;
+        int v = INTERESTING_8[sub] & 0xFF;
+        int at = pos;
+        advance(INTERESTING_8.length);
+        if (couldBeBitflip(orig ^ v) || couldBeArith(orig, v, 1)) {
+            return false;
+        }
+        data[at] = (byte) v;
+        mark(at, 1);
+        return true;
+    }
+
+    // 奇数取值写大端序，大端序和小端序相同时只写一次
+    private boolean interest16(byte[] data) {
+        if (pos > len - 2) {
+            nextStage();
+            return false;
+        }
+        if (!effective(pos, 2)) {
+            return skipPosition();
+        }
+        int orig = Short.toUnsignedInt((short) SHORT_LE.get(seed, pos));
+        int v = INTERESTING_16[sub >> 1] & 0xFFFF;
+        boolean bigEndian = (sub & 1) != 0;
+        int r = bigEndian ? swap16(v) : v;
+        int at = pos;
+        advance(2 * INTERESTING_16.length);
+        if ((bigEndian && r == v) || couldBeBitflip(orig ^ r) || couldBeArith(orig, r, 2)
+                || couldBeInterest(orig, r, 2, bigEndian)) {
+            return false;
+        }
+        SHORT_LE.set(data, at, (short) r);
+        mark(at, 2);
+        return true;
+    }
+
+    private boolean interest32(byte[] data) {
+        if (pos > len - 4) {
+            nextStage();
+            return false;
+        }
+        if (!effective(pos, 4)) {
+            return skipPosition();
+        }
+        int orig = (int) INT_LE.get(seed, pos);
+        int v = INTERESTING_32[sub >> 1];
+        boolean bigEndian = (sub & 1) != 0;
+        int r = bigEndian ? Integer.reverseBytes(v) : v;
+        int at = pos;
+        advance(2 * INTERESTING_32.length);
+        if ((bigEndian && r == v) || couldBeBitflip(orig ^ r) || couldBeArith(orig, r, 4)
+                || couldBeInterest(orig, r, 4, bigEndian)) {
+            return false;
+        }
+        INT_LE.set(data, at, r);
+        mark(at, 4);
+        return true;
+    }
+
+    private boolean extrasOver(byte[] data) {
+        int count = Math.min(dictionary.size(), MAX_DET_EXTRAS);
+        if (pos >= len || count == 0) {
+            nextStage();
+            return false;
+        }
+        byte[] token = dictionary.get(sub);
+        int at = pos;
+        advance(count);
+        if (at + token.length > len || !effective(at, token.length) || regionMatches(token, at)) {
+            return false;
+        }
+        System.arraycopy(token, 0, data, at, token.length);
+        mark(at, token.length);
+        return true;
+    }
+
+    // 插入后原位置之后的内容整体后移，还原时从种子复制回这段尾部
+    private boolean extrasInsert(byte[] data) {
+        int count = Math.min(dictionary.size(), MAX_DET_EXTRAS);
+        if (pos > len || count == 0) {
+            nextStage();
+            return false;
+        }
+        byte[] token = dictionary.get(sub);
+        int at = pos;
+        advance(count);
+        System.arraycopy(seed, at, data, at + token.length, len - at);
+        System.arraycopy(token, 0, data, at, token.length);
+        mark(at, len - at);
+        mutantLength = len + token.length;
+        return true;
+    }
+
+    private boolean regionMatches(byte[] token, int at) {
+        for (int i = 0; i < token.length; i++) {
+            if (seed[at + i] != token[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int swap16(int v) {
+        return ((v & 0xFF) << 8) | ((v >>> 8) & 0xFF);
+    }
+
+    // 异或差值能否由 1/2/4 位翻转或按字节对齐的 8/16/32 位翻转得到
+    static boolean couldBeBitflip(int xor) {
+        if (xor == 0) {
+            return true;
+        }
+        int shift = Integer.numberOfTrailingZeros(xor);
+        int v = xor >>> shift;
+        if (v == 1 || v == 3 || v == 15) {
+            return true;
+        }
+        if ((shift & 7) != 0) {
+            return false;
+        }
+        return v == 0xFF || v == 0xFFFF || v == 0xFFFFFFFF;
+    }
+
+    // newVal 能否由 ARITH_MAX 范围内的 8/16/32 位加减得到，width 为字节数
+    static boolean couldBeArith(int oldVal, int newVal, int width) {
+        if (oldVal == newVal) {
+            return true;
+        }
+
+        int diffs = 0;
+        int ov = 0;
+        int nv = 0;
+        for (int i = 0; i < width; i++) {
+            int a = (oldVal >>> (8 * i)) & 0xFF;
+            int b = (newVal >>> (8 * i)) & 0xFF;
+            if (a != b) {
+                diffs++;
+                ov = a;
+                nv = b;
+            }
+        }
+        if (diffs == 1 && (((ov - nv) & 0xFF) <= ARITH_MAX || ((nv - ov) & 0xFF) <= ARITH_MAX)) {
+            return true;
+        }
+        if (width == 1) {
+            return false;
+        }
+
+        diffs = 0;
+        for (int i = 0; i < width / 2; i++) {
+            int a = (oldVal >>> (16 * i)) & 0xFFFF;
+            int b = (newVal >>> (16 * i)) & 0xFFFF;
+            if (a != b) {
+                diffs++;
+                ov = a;
+                nv = b;
+            }
+        }
+        if (diffs == 1) {
+            if (((ov - nv) & 0xFFFF) <= ARITH_MAX || ((nv - ov) & 0xFFFF) <= ARITH_MAX) {
+                return true;
+            }
+            ov = swap16(ov);
+            nv = swap16(nv);
+            if (((ov - nv) & 0xFFFF) <= ARITH_MAX || ((nv - ov) & 0xFFFF) <= ARITH_MAX) {
+                return true;
+            }
+        }
+
+        if (width == 4) {
+            if (Integer.compareUnsigned(oldVal - newVal, ARITH_MAX) <= 0
+                    || Integer.compareUnsigned(newVal - oldVal, ARITH_MAX) <= 0) {
+                return true;
+            }
+            int o = Integer.reverseBytes(oldVal);
+            int n = Integer.reverseBytes(newVal);
+            return Integer.compareUnsigned(o - n, ARITH_MAX) <= 0
+                    || Integer.compareUnsigned(n - o, ARITH_MAX) <= 0;
+        }
+        return false;
+    }
+
+    /**
+     * newVal 能否由 8 位有趣值阶段或更窄的有趣值阶段得到，width 为字节数
+     * checkLe 为 true 时还检查同宽度的小端序写入，用于过滤与之重复的大端序取值
+     */
+    static boolean couldBeInterest(int oldVal, int newVal, int width, boolean checkLe) {
+        if (oldVal == newVal) {
+            return true;
+        }
+
+        for (int i = 0; i < width; i++) {
+            int mask = ~(0xFF << (8 * i));
+            for (byte v : INTERESTING_8) {
+                if (newVal == ((oldVal & mask) | (v & 0xFF) << (8 * i))) {
+                    return true;
+                }
+            }
+        }
+        if (width == 2 && !checkLe) {
+            return false;
+        }
+
+        for (int i = 0; i < width - 1; i++) {
+            int mask = ~(0xFFFF << (8 * i));
+            for (short v : INTERESTING_16) {
+                int le = v & 0xFFFF;
+                if (newVal == ((oldVal & mask) | le << (8 * i))) {
+                    return true;
+                }
+                if (width > 2 && newVal == ((oldVal & mask) | swap16(le) << (8 * i))) {
+                    return true;
+                }
+            }
+        }
+
+        if (width == 4 && checkLe) {
+            for (int v : INTERESTING_32) {
+                if (newVal == v) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
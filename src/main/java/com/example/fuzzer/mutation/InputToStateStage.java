@@ -0,0 +1,178 @@
+package com.example.fuzzer.mutation;
+
+import com.example.fuzzer.execution.CmpLogMap;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Redqueen 风格的输入到状态（input-to-state）阶段
+ * 用 CmpLog 插桩的程序执行一次种子，得到每次比较的两个操作数；某个操作数的编码原样出现在种子中时，
+ * 把这个位置替换成另一个操作数的同一种编码，变异体很可能让这次比较成立。
+ * <ul>
+ *     <li>整数操作数尝试小端序和大端序，两边都放得下时再按更窄的宽度匹配（窄字段零扩展后比较的情况），
+ *     替换值另外尝试 ±1 以满足 &lt; 和 &gt; 比较，最后尝试十进制文本</li>
+ *     <li>memcmp/strcmp 的操作数按原始字节替换，两边长度不同时输入长度随之改变</li>
+ * </ul>
+ * 每个种子只执行一遍，由第一个认领的线程完整推进。
+ */
+public class InputToStateStage {
+    // 每个种子最多生成的候选数
+    private static final int MAX_CANDIDATES = 4096;
+    // 同一个模式在种子中最多替换的出现位置数，1 字节的模式几乎处处都能匹配
+    private static final int MAX_MATCHES = 16;
+    private static final long[] DELTAS = {0, 1, -1};
+
+    private final byte[] seed;
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    private List<Candidate> candidates = Collections.emptyList();
+    private int cursor;
+
+    public InputToStateStage(byte[] seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * 认领本阶段，每个种子只有第一次调用返回 true
+     */
+    public boolean tryClaim() {
+        return seed.length > 0 && claimed.compareAndSet(false, true);
+    }
+
+    /**
+     * 根据种子执行时记录的比较生成候选，返回候选数
+     */
+    public int begin(List<CmpLogMap.Comparison> comparisons) {
+        candidates = new ArrayList<>();
+        cursor = 0;
+        Set<ByteBuffer> seen = new HashSet<>();
+        for (CmpLogMap.Comparison comparison : comparisons) {
+            if (candidates.size() >= MAX_CANDIDATES) {
+                break;
+            }
+            if (comparison.isInteger()) {
+                addInteger(comparison.getLeft(), comparison.getRight(), seen);
+                addInteger(comparison.getRight(), comparison.getLeft(), seen);
+            } else {
+                addReplacement(comparison.getLeft(), comparison.getRight(), seen);
+                addReplacement(comparison.getRight(), comparison.getLeft(), seen);
+            }
+        }
+        return candidates.size();
+    }
+
+    /**
+     * 在缓冲区中生成下一个候选，返回输入长度，候选用完后返回 -1 并释放候选列表
+     */
+    public int next(MutationBuffer out) {
+        if (cursor >= candidates.size()) {
+            candidates = Collections.emptyList();
+            return -1;
+        }
+        Candidate candidate = candidates.get(cursor++);
+        int tail = seed.length - candidate.position - candidate.patternLength;
+        int length = candidate.position + candidate.replacement.length + tail;
+        out.ensureCapacity(length);
+        byte[] data = out.array();
+        System.arraycopy(seed, 0, data, 0, candidate.position);
+        System.arraycopy(candidate.replacement, 0, data, candidate.position, candidate.replacement.length);
+        System.arraycopy(seed, candidate.position + candidate.patternLength,
+                data, candidate.position + candidate.replacement.length, tail);
+        out.setLength(length);
+        return length;
+    }
+
+    // pattern 和 replacement 是等宽的小端序整数
+    private void addInteger(byte[] pattern, byte[] replacement, Set<ByteBuffer> seen) {
+        long p = toLong(pattern);
+        long r = toLong(replacement);
+        for (int width = pattern.length; width >= 1; width /= 2) {
+            if (width < pattern.length && (!fits(p, width) || !fits(r, width))) {
+                break;
+            }
+            for (long delta : DELTAS) {
+                addReplacement(encode(p, width, false), encode(r + delta, width, false), seen);
+                if (width > 1) {
+                    addReplacement(encode(p, width, true), encode(r + delta, width, true), seen);
+                }
+            }
+        }
+        // 一位数的十进制文本几乎处处都能匹配，不尝试
+        String text = Long.toUnsignedString(p);
+        if (text.length() >= 2) {
+            addReplacement(text.getBytes(StandardCharsets.US_ASCII),
+                    Long.toUnsignedString(r).getBytes(StandardCharsets.US_ASCII), seen);
+        }
+    }
+
+    private void addReplacement(byte[] pattern, byte[] replacement, Set<ByteBuffer> seen) {
+        if (pattern.length == 0 || Arrays.equals(pattern, replacement)) {
+            return;
+        }
+        int matches = 0;
+        for (int pos = indexOf(pattern, 0); pos >= 0 && matches < MAX_MATCHES; pos = indexOf(pattern, pos + 1)) {
+            matches++;
+            if (candidates.size() >= MAX_CANDIDATES) {
+                return;
+            }
+            ByteBuffer key = ByteBuffer.allocate(2 * Integer.BYTES + replacement.length)
+                    .putInt(pos).putInt(pattern.length).put(replacement);
+            // ByteBuffer 按剩余内容比较，放入集合前先 flip
+            if (seen.add(key.flip())) {
+                candidates.add(new Candidate(pos, pattern.length, replacement));
+            }
+        }
+    }
+
+    private int indexOf(byte[] pattern, int from) {
+        outer:
+        for (int i = from; i <= seed.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (seed[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static long toLong(byte[] littleEndian) {
+        long value = 0;
+        for (int i = littleEndian.length - 1; i >= 0; i--) {
+            value = (value << 8) | (littleEndian[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static boolean fits(long value, int width) {
+        return width >= Long.BYTES || (value >>> (8 * width)) == 0;
+    }
+
+    private static byte[] encode(long value, int width, boolean bigEndian) {
+        byte[] bytes = new byte[width];
+        for (int i = 0; i < width; i++) {
+            bytes[bigEndian ? width - 1 - i : i] = (byte) (value >>> (8 * i));
+        }
+        return bytes;
+    }
+
+    private static final class Candidate {
+        final int position;
+        final int patternLength;
+        final byte[] replacement;
+
+        Candidate(int position, int patternLength, byte[] replacement) {
+            this.position = position;
+            this.patternLength = patternLength;
+            this.replacement = replacement;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.fuzzer.mutation;
+
+import java.util.SplittableRandom;
+
+/**
+ * MOpt 风格的变异器：用粒子群优化（PSO）学习 havoc 各操作的选择概率
+ * <ul>
+ *     <li>维护若干个粒子群，每个粒子群为每个操作保存一个概率位置 x、速度 v 和历史最优位置 L，
+ *     所有粒子群共享全局最优位置 G</li>
+ *     <li>pilot 阶段轮流用每个粒子群各产生一段变异体，统计每个操作参与的变异体中有多少被加入队列，
+ *     据此更新局部最优并计算粒子群的适应度（发现数 / 变异次数）</li>
+ *     <li>core 阶段只用适应度最高的粒子群产生变异体，结束后按全部统计更新全局最优，
+ *     再按 PSO 公式移动所有粒子并重新归一化，然后回到 pilot 阶段</li>
+ * </ul>
+ * 单操作的位翻转、算术和有趣值由确定性阶段系统地覆盖，这里只在 havoc 和拼接之间选择，
+ * 拼接的概率与 {@link AFLMutator} 相同；调度只作用于 havoc 操作，拼接之后的 havoc 同样由粒子群选择。
+ * 状态不加锁，依赖每个工作线程持有独立实例。
+ */
+public class MOptMutator extends AFLMutator {
+    private static final int SWARM_NUM = 5;
+    // 每个粒子群在 pilot 阶段产生的变异体数量，以及 core 阶段的变异体数量
+    private static final int PERIOD_PILOT = 2000;
+    private static final int PERIOD_CORE = 20000;
+    // 惯性权重在 G_MAX 轮更新内从 W_INIT 线性降到 W_END，之后重新开始
+    private static final double W_INIT = 0.9;
+    private static final double W_END = 0.3;
+    private static final int G_MAX = 5000;
+    // 归一化前每个操作的概率位置被限制在这个范围内，保证任何操作都不会被彻底淘汰
+    private static final double X_MAX = 1.0;
+    private static final double X_MIN = 0.05;
+
+    private final double[][] position = new double[SWARM_NUM][HAVOC_OPERATORS];
+    private final double[][] velocity = new double[SWARM_NUM][HAVOC_OPERATORS];
+    private final double[][] localBest = new double[SWARM_NUM][HAVOC_OPERATORS];
+    private final double[][] localBestEfficiency = new double[SWARM_NUM][HAVOC_OPERATORS];
+    private final double[] globalBest = new double[HAVOC_OPERATORS];
+    private final double[] swarmFitness = new double[SWARM_NUM];
+
+    // 当前周期内每个操作参与的变异体数和其中被加入队列的数量
+    private final long[] periodUses = new long[HAVOC_OPERATORS];
+    private final long[] periodFinds = new long[HAVOC_OPERATORS];
+    // 一轮 pilot + core 内每个操作累计的发现数，用于更新全局最优
+    private final long[] roundFinds = new long[HAVOC_OPERATORS];
+    // 最近一次变异用到的操作，按操作编号的位掩码
+    private long lastOperators;
+
+    private boolean corePhase;
+    private int swarm;
+    private int periodExecs;
+    private long periodTotalFinds;
+    private int generation;
+
+    public MOptMutator() {
+        this(new SplittableRandom());
+    }
+
+    public MOptMutator(SplittableRandom random) {
+        super(random);
+        // 最优位置和归一化后的概率在同一尺度上，否则所有粒子都会被拉向同一个值而学不到差别
+        for (int s = 0; s < SWARM_NUM; s++) {
+            double sum = 0;
+            for (int op = 0; op < HAVOC_OPERATORS; op++) {
+                position[s][op] = X_MIN + random.nextDouble() * (X_MAX - X_MIN);
+                velocity[s][op] = 0.1;
+                sum += position[s][op];
+            }
+            for (int op = 0; op < HAVOC_OPERATORS; op++) {
+                position[s][op] /= sum;
+                localBest[s][op] = position[s][op];
+            }
+        }
+        for (int op = 0; op < HAVOC_OPERATORS; op++) {
+            globalBest[op] = 1.0 / HAVOC_OPERATORS;
+        }
+    }
+
+    @Override
+    public int mutate(byte[] input, MutationBuffer out) {
+        lastOperators = 0;
+        return super.mutate(input, out);
+    }
+
+    @Override
+    protected MutationStrategy selectStrategy() {
+        return super.selectStrategy() == MutationStrategy.SPLICE ? MutationStrategy.SPLICE : MutationStrategy.HAVOC;
+    }
+
+    /**
+     * 按当前粒子群的概率位置轮盘赌选择，没有字典时只在前 operations 个操作之间归一化
+     */
+    @Override
+    protected int selectHavocOperator(int operations) {
+        double[] x = position[swarm];
+        double total = 0;
+        for (int op = 0; op < operations; op++) {
+            total += x[op];
+        }
+        double r = random.nextDouble() * total;
+        int op = 0;
+        while (op < operations - 1 && r >= x[op]) {
+            r -= x[op];
+            op++;
+        }
+        lastOperators |= 1L << op;
+        return op;
+    }
+
+    @Override
+    public long getLastOperators() {
+        return lastOperators;
+    }
+
+    @Override
+    public void recordFeedback(long operators, boolean interesting) {
+        for (int op = 0; op < HAVOC_OPERATORS; op++) {
+            if ((operators & (1L << op)) != 0) {
+                periodUses[op]++;
+                if (interesting) {
+                    periodFinds[op]++;
+                }
+            }
+        }
+        if (interesting) {
+            periodTotalFinds++;
+        }
+        periodExecs++;
+
+        if (corePhase) {
+            if (periodExecs >= PERIOD_CORE) {
+                finishCore();
+            }
+        } else if (periodExecs >= PERIOD_PILOT) {
+            finishPilot();
+        }
+    }
+
+    @Override
+    public MutatorType getType() {
+        return MutatorType.MOPT;
+    }
+
+    // 一个粒子群的 pilot 周期结束：更新它的局部最优和适应度，全部轮完后进入 core 阶段
+    private void finishPilot() {
+        swarmFitness[swarm] = (double) periodTotalFinds / periodExecs;
+        for (int op = 0; op < HAVOC_OPERATORS; op++) {
+            if (periodUses[op] > 0) {
+                double efficiency = (double) periodFinds[op] / periodUses[op];
+                if (efficiency > localBestEfficiency[swarm][op]) {
+                    localBestEfficiency[swarm][op] = efficiency;
+                    localBest[swarm][op] = position[swarm][op];
+                }
+            }
+        }
+        resetPeriod();
+
+        if (++swarm < SWARM_NUM) {
+            return;
+        }
+        int best = 0;
+        for (int s = 1; s < SWARM_NUM; s++) {
+            if (swarmFitness[s] > swarmFitness[best]) {
+                best = s;
+            }
+        }
+        swarm = best;
+        corePhase = true;
+    }
+
+    private void finishCore() {
+        resetPeriod();
+        updateSwarms();
+        swarm = 0;
+        corePhase = false;
+    }
+
+    private void resetPeriod() {
+        for (int op = 0; op < HAVOC_OPERATORS; op++) {
+            roundFinds[op] += periodFinds[op];
+            periodUses[op] = 0;
+            periodFinds[op] = 0;
+        }
+        periodExecs = 0;
+        periodTotalFinds = 0;
+    }
+
+    // 这一轮有发现时全局最优取各操作的发现占比，然后按 v = w*v + r1*(L-x) + r2*(G-x) 移动每个粒子
+    private void updateSwarms() {
+        if (++generation > G_MAX) {
+            generation = 0;
+        }
+        double inertia = (W_INIT - W_END) * (G_MAX - generation) / G_MAX + W_END;
+
+        long totalFinds = 0;
+        for (long finds : roundFinds) {
+            totalFinds += finds;
+        }
+        for (int op = 0; op < HAVOC_OPERATORS; op++) {
+            if (totalFinds > 0) {
+                globalBest[op] = (double) roundFinds[op] / totalFinds;
+            }
+            roundFinds[op] = 0;
+        }
+
+        for (int s = 0; s < SWARM_NUM; s++) {
+            double sum = 0;
+            for (int op = 0; op < HAVOC_OPERATORS; op++) {
+                velocity[s][op] = inertia * velocity[s][op]
+                        + random.nextDouble() * (localBest[s][op] - position[s][op])
+                        + random.nextDouble() * (globalBest[op] - position[s][op]);
+                position[s][op] = Math.max(X_MIN, Math.min(X_MAX, position[s][op] + velocity[s][op]));
+                sum += position[s][op];
+            }
+            for (int op = 0; op < HAVOC_OPERATORS; op++) {
+                position[s][op] /= sum;
+            }
+        }
+    }
+}
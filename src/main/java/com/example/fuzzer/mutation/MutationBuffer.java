@@ -0,0 +1,62 @@
+package com.example.fuzzer.mutation;
+
+import java.util.Arrays;
+
+/**
+ * 每个工作线程持有的可增长变异缓冲区
+ * 变异器直接在 {@link #array()} 上原地修改，有效数据是前 {@link #length()} 个字节。
+ * 数组只在容量不足时按倍数扩容，稳态下每个变异体不分配任何对象。
+ * 下一次变异会覆盖内容，需要保留输入时用 {@link #toByteArray()} 复制。
+ */
+public final class MutationBuffer {
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    private byte[] data;
+    private int length;
+
+    public MutationBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MutationBuffer(int capacity) {
+        this.data = new byte[Math.max(1, capacity)];
+    }
+
+    /**
+     * 底层数组，长度可能大于有效数据长度；扩容后会换成新数组，不要跨调用缓存
+     */
+    public byte[] array() {
+        return data;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public void setLength(int length) {
+        ensureCapacity(length);
+        this.length = length;
+    }
+
+    /**
+     * 保证至少能容纳 capacity 个字节，已有内容保持不变
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+        }
+    }
+
+    /**
+     * 用 src 的前 length 个字节替换缓冲区内容
+     */
+    public void load(byte[] src, int length) {
+        ensureCapacity(length);
+        System.arraycopy(src, 0, data, 0, length);
+        this.length = length;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(data, length);
+    }
+}
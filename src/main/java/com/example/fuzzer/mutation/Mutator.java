@@ -3,6 +3,16 @@ package com.example.fuzzer.mutation;
 public interface Mutator {
     byte[] mutate(byte[] input);
 
+    /**
+     * 把 input 的变异结果写入调用方持有的缓冲区，返回变异后的长度
+     * 默认实现退回到 {@link #mutate(byte[])}，每个变异体仍会分配新数组
+     */
+    default int mutate(byte[] input, MutationBuffer out) {
+        byte[] mutated = mutate(input);
+        out.load(mutated, mutated.length);
+        return mutated.length;
+    }
+
     MutatorType getType();
 
     MutationStrategy getCurrentStrategy();
@@ -10,8 +20,48 @@ public interface Mutator {
     default void setMutationPower(int power) {
     }
 
+    /**
+     * 设置变异时使用的 token 字典，默认忽略
+     */
+    default void setDictionary(TokenDictionary dictionary) {
+    }
+
+    /**
+     * 设置拼接变异从哪里取另一个输入，默认忽略
+     */
+    default void setSpliceSource(SpliceSource spliceSource) {
+    }
+
+    /**
+     * 设置会改变长度的变异允许的输入长度范围，默认忽略
+     */
+    default void setInputSizeLimits(int minSize, int maxSize) {
+    }
+
+    /**
+     * 最近一次 mutate 用到的变异操作（按操作编号的位掩码），不调度变异操作的变异器返回 0
+     * 一次生成多个变异体再统一执行时，调用方逐个保存掩码，结果返回后用 {@link #recordFeedback(long, boolean)} 反馈
+     */
+    default long getLastOperators() {
+        return 0;
+    }
+
+    /**
+     * 反馈最近一次 mutate 得到的变异体是否被加入队列
+     */
+    default void recordFeedback(boolean interesting) {
+        recordFeedback(getLastOperators(), interesting);
+    }
+
+    /**
+     * 反馈用 operators 中的操作得到的变异体是否被加入队列，用于在线调整变异操作的选择概率，默认忽略
+     */
+    default void recordFeedback(long operators, boolean interesting) {
+    }
+
     enum MutatorType {
         AFL,    // AFL风格的变异器
+        MOPT,   // 用粒子群优化调度 havoc 操作的 AFL 变异器
         RANDOM  // 随机变异器
     }
 
@@ -21,6 +71,8 @@ public interface Mutator {
         INTERESTING, // 插入预定义的有趣值
         HAVOC,      // 混沌变异
         SPLICE,     // 拼接变异
+        DICTIONARY, // 字典 token 覆盖或插入
+        INPUT_TO_STATE, // 按 CmpLog 记录的比较操作数替换
         NONE        // 无策略
     }
 }
\ No newline at end of file
@@ -1,14 +1,25 @@
 package com.example.fuzzer.mutation;
 
+import java.util.SplittableRandom;
+
 public class MutatorFactory {
     public static Mutator createMutator(Mutator.MutatorType type) {
+        return createMutator(type, new SplittableRandom());
+    }
+
+    /**
+     * @param random 变异器独占的随机数流，由同一个根种子 split 得到时整个测试过程可复现
+     */
+    public static Mutator createMutator(Mutator.MutatorType type, SplittableRandom random) {
         switch (type) {
             case AFL:
-                return new AFLMutator();
+                return new AFLMutator(random);
+            case MOPT:
+                return new MOptMutator(random);
             case RANDOM:
-                return new SimpleMutator();
+                return new SimpleMutator(random);
             default:
                 throw new IllegalArgumentException("未知的变异器类型: " + type);
         }
     }
-}
\ No newline at end of file
+}
@@ -1,21 +1,37 @@
 package com.example.fuzzer.mutation;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 public class SimpleMutator implements Mutator {
-    private final Random random = new Random();
+    private final SplittableRandom random;
     private MutationStrategy currentStrategy = MutationStrategy.NONE;
 
+    public SimpleMutator() {
+        this(new SplittableRandom());
+    }
+
+    public SimpleMutator(SplittableRandom random) {
+        this.random = random;
+    }
+
     @Override
     public byte[] mutate(byte[] input) {
+        MutationBuffer buffer = new MutationBuffer(input.length);
+        mutate(input, buffer);
+        return buffer.toByteArray();
+    }
+
+    @Override
+    public int mutate(byte[] input, MutationBuffer out) {
         currentStrategy = MutationStrategy.BITFLIP;
-        byte[] mutated = input.clone();
+        out.load(input, input.length);
+        byte[] data = out.array();
         // 简单的随机位翻转
-        if (mutated.length > 0) {
-            int pos = random.nextInt(mutated.length);
-            mutated[pos] = (byte) (mutated[pos] ^ (1 << random.nextInt(8)));
+        if (input.length > 0) {
+            int pos = random.nextInt(input.length);
+            data[pos] = (byte) (data[pos] ^ (1 << random.nextInt(8)));
         }
-        return mutated;
+        return input.length;
     }
 
     @Override
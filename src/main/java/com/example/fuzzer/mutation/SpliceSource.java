@@ -0,0 +1,16 @@
+package com.example.fuzzer.mutation;
+
+import java.util.SplittableRandom;
+
+/**
+ * 为拼接变异提供语料库中的另一个输入
+ */
+@FunctionalInterface
+public interface SpliceSource {
+    /**
+     * 随机选择一个和 current 内容不同的输入，随机性取自调用方的 random 以保证可复现
+     *
+     * @return 拼接对象，调用方只读不改；没有合适的输入时返回 null
+     */
+    byte[] selectPartner(byte[] current, SplittableRandom random);
+}
@@ -0,0 +1,210 @@
+package com.example.fuzzer.mutation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * 变异用的 token 字典，兼容 AFL/libFuzzer 的字典格式
+ * 每行一个 token，形如 {@code name="value"} 或 {@code "value"}，支持 \\、\" 和 \xNN 转义，# 开头为注释；
+ * 也可以是一个目录，目录下每个文件的内容是一个 token。
+ * <p>
+ * token 保留加载顺序（手写字典在前，自动字典按排名在后），确定性阶段按这个顺序取前若干个；
+ * 另外按长度排序一份，并记录长度不超过 n 的 token 个数，覆盖写时可以 O(1) 地随机选出一个放得下的 token。
+ */
+public final class TokenDictionary {
+    // 和 AFL 一致，过长的 token 基本不可能通过变异拼出有意义的结构
+    public static final int MAX_TOKEN_LENGTH = 128;
+
+    public static final TokenDictionary EMPTY = new TokenDictionary(new ArrayList<>());
+
+    private final byte[][] tokens;
+    private final byte[][] byLength;
+    // countAtMost[n] 为长度不超过 n 的 token 个数
+    private final int[] countAtMost;
+
+    private TokenDictionary(List<byte[]> tokens) {
+        this.tokens = tokens.toArray(new byte[0][]);
+        this.byLength = this.tokens.clone();
+        Arrays.sort(byLength, Comparator.comparingInt(t -> t.length));
+        int maxLength = byLength.length == 0 ? 0 : byLength[byLength.length - 1].length;
+        this.countAtMost = new int[maxLength + 1];
+        for (byte[] token : byLength) {
+            countAtMost[token.length]++;
+        }
+        for (int n = 1; n <= maxLength; n++) {
+            countAtMost[n] += countAtMost[n - 1];
+        }
+    }
+
+    /**
+     * 加载一个或多个字典文件或目录，重复的 token 只保留一份
+     */
+    public static TokenDictionary load(List<Path> paths) throws IOException {
+        Set<ByteBuffer> tokens = new LinkedHashSet<>();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                loadDirectory(path, tokens);
+            } else {
+                loadFile(path, tokens);
+            }
+        }
+        return fromSet(tokens);
+    }
+
+    /**
+     * 由给定的 token 构造字典，空 token 和超过 {@link #MAX_TOKEN_LENGTH} 的 token 被忽略
+     */
+    public static TokenDictionary of(Collection<byte[]> tokens) {
+        Set<ByteBuffer> set = new LinkedHashSet<>();
+        addAll(set, tokens);
+        return fromSet(set);
+    }
+
+    /**
+     * 把 other 的 token 追加在本字典之后，重复的只保留本字典中的一份
+     */
+    public TokenDictionary merge(TokenDictionary other) {
+        Set<ByteBuffer> set = new LinkedHashSet<>();
+        addAll(set, Arrays.asList(tokens));
+        addAll(set, Arrays.asList(other.tokens));
+        return fromSet(set);
+    }
+
+    private static void addAll(Set<ByteBuffer> set, Collection<byte[]> tokens) {
+        for (byte[] token : tokens) {
+            if (token.length > 0 && token.length <= MAX_TOKEN_LENGTH) {
+                set.add(ByteBuffer.wrap(token));
+            }
+        }
+    }
+
+    private static TokenDictionary fromSet(Set<ByteBuffer> tokens) {
+        List<byte[]> list = new ArrayList<>(tokens.size());
+        for (ByteBuffer token : tokens) {
+            list.add(token.array());
+        }
+        return new TokenDictionary(list);
+    }
+
+    private static void loadDirectory(Path dir, Set<ByteBuffer> tokens) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(dir)) {
+            files = new ArrayList<>();
+            stream.filter(Files::isRegularFile).sorted().forEach(files::add);
+        }
+        for (Path file : files) {
+            byte[] token = Files.readAllBytes(file);
+            if (token.length > MAX_TOKEN_LENGTH) {
+                throw new IOException("字典 token 过长（" + token.length + " 字节，最大 "
+                        + MAX_TOKEN_LENGTH + "）: " + file);
+            }
+            if (token.length > 0) {
+                tokens.add(ByteBuffer.wrap(token));
+            }
+        }
+    }
+
+    private static void loadFile(Path file, Set<ByteBuffer> tokens) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.ISO_8859_1);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int open = line.indexOf('"');
+            if (open < 0 || line.length() < open + 2 || line.charAt(line.length() - 1) != '"') {
+                throw new IOException("字典格式错误 (" + file + ":" + (i + 1) + "): 缺少引号");
+            }
+            byte[] token = unescape(line.substring(open + 1, line.length() - 1), file, i + 1);
+            if (token.length > MAX_TOKEN_LENGTH) {
+                throw new IOException("字典格式错误 (" + file + ":" + (i + 1) + "): token 过长（"
+                        + token.length + " 字节，最大 " + MAX_TOKEN_LENGTH + "）");
+            }
+            if (token.length > 0) {
+                tokens.add(ByteBuffer.wrap(token));
+            }
+        }
+    }
+
+    private static byte[] unescape(String value, Path file, int lineNumber) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '\\') {
+                out.put((byte) c);
+                continue;
+            }
+            if (++i >= value.length()) {
+                throw new IOException("字典格式错误 (" + file + ":" + lineNumber + "): 结尾是未完成的转义");
+            }
+            char e = value.charAt(i);
+            if (e == '\\' || e == '"') {
+                out.put((byte) e);
+            } else if (e == 'x' && isHex(value, i + 1)) {
+                out.put((byte) Integer.parseInt(value.substring(i + 1, i + 3), 16));
+                i += 2;
+            } else {
+                throw new IOException("字典格式错误 (" + file + ":" + lineNumber + "): 无效的转义 \\" + e);
+            }
+        }
+        byte[] token = new byte[out.position()];
+        out.flip();
+        out.get(token);
+        return token;
+    }
+
+    private static boolean isHex(String s, int from) {
+        return from + 2 <= s.length()
+                && Character.digit(s.charAt(from), 16) >= 0
+                && Character.digit(s.charAt(from + 1), 16) >= 0;
+    }
+
+    public boolean isEmpty() {
+        return tokens.length == 0;
+    }
+
+    public int size() {
+        return tokens.length;
+    }
+
+    /**
+     * 按加载顺序的第 index 个 token，返回的数组不能修改
+     */
+    public byte[] get(int index) {
+        return tokens[index];
+    }
+
+    public int getMaxLength() {
+        return countAtMost.length - 1;
+    }
+
+    /**
+     * 长度不超过 maxLength 的 token 个数
+     */
+    public int countAtMost(int maxLength) {
+        if (maxLength <= 0 || tokens.length == 0) {
+            return 0;
+        }
+        return countAtMost[Math.min(maxLength, countAtMost.length - 1)];
+    }
+
+    /**
+     * 随机选一个长度不超过 maxLength 的 token，没有时返回 null
+     */
+    public byte[] pick(SplittableRandom random, int maxLength) {
+        int count = countAtMost(maxLength);
+        return count == 0 ? null : byLength[random.nextInt(count)];
+    }
+}
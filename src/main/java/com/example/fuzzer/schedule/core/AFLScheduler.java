@@ -1,19 +1,35 @@
 package com.example.fuzzer.schedule.core;
 
+import com.example.fuzzer.monitor.EdgeSet;
+import com.example.fuzzer.mutation.DeterministicStage;
+import com.example.fuzzer.mutation.InputToStateStage;
 import com.example.fuzzer.schedule.energy.EnergyScheduler;
 import com.example.fuzzer.schedule.energy.EnergySchedulerFactory;
 import com.example.fuzzer.schedule.model.Seed;
+import com.example.fuzzer.schedule.model.SeedKey;
 import com.example.fuzzer.schedule.sort.SeedSorter;
 import com.example.fuzzer.schedule.sort.SeedSorterFactory;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * AFL风格的调度器，组合了种子排序器和能量调度器
  */
 public class AFLScheduler implements SeedScheduler {
+    // 挑选拼接对象时最多抽取的次数，抽不到覆盖不同的种子时退而使用内容不同的种子
+    private static final int SPLICE_PARTNER_TRIES = 8;
+
     private final SeedSorter seedSorter;
     private final EnergyScheduler energyScheduler;
+    // 排序器只保存种子数据，按内容找回种子的队列编号和覆盖的边
+    private final Map<SeedKey, Seed> seeds = new ConcurrentHashMap<>();
+    // 按加入顺序保存的种子，供拼接时按下标随机抽取；读远多于写，使用写时复制
+    private final List<Seed> queue = new CopyOnWriteArrayList<>();
 
     public AFLScheduler(List<Seed> initialSeeds) {
         this(initialSeeds, EnergyScheduler.Type.COVERAGE_BASED, SeedSorter.Type.HEURISTIC);
@@ -40,6 +56,15 @@ public class AFLScheduler implements SeedScheduler {
             throw new IllegalArgumentException("Seed or seed data cannot be null");
         }
         byte[] data = seed.getData();
+        if (seed.getDeterministicStage() == null) {
+            seed.setDeterministicStage(new DeterministicStage(data));
+        }
+        if (seed.getInputToStateStage() == null) {
+            seed.setInputToStateStage(new InputToStateStage(data));
+        }
+        if (seeds.putIfAbsent(new SeedKey(data), seed) == null) {
+            queue.add(seed);
+        }
         seedSorter.addSeed(data);
         energyScheduler.assignEnergy(data);
     }
@@ -57,12 +82,58 @@ public class AFLScheduler implements SeedScheduler {
         }
 
         energyScheduler.consumeEnergy(data);
-        return new Seed(data);
+        Seed next = new Seed(data);
+        Seed registered = seeds.get(new SeedKey(data));
+        if (registered != null) {
+            next.setQueueId(registered.getQueueId());
+            next.setEdges(registered.getEdges());
+            next.setDeterministicStage(registered.getDeterministicStage());
+            next.setInputToStateStage(registered.getInputToStateStage());
+        }
+        return next;
+    }
+
+    @Override
+    public byte[] selectSplicePartner(byte[] data, SplittableRandom random) {
+        int size = queue.size();
+        if (size < 2) {
+            return null;
+        }
+        Seed current = seeds.get(new SeedKey(data));
+        EdgeSet currentEdges = current != null ? current.getEdges() : null;
+        byte[] fallback = null;
+        for (int i = 0; i < SPLICE_PARTNER_TRIES; i++) {
+            Seed candidate = queue.get(random.nextInt(size));
+            byte[] candidateData = candidate.getData();
+            if (candidate == current || Arrays.equals(candidateData, data)) {
+                continue;
+            }
+            if (coverageDiffers(currentEdges, candidate.getEdges())) {
+                return candidateData;
+            }
+            if (fallback == null) {
+                fallback = candidateData;
+            }
+        }
+        return fallback;
+    }
+
+    // 边集合未知时视为不同；大小相同时再比较交集，避免对大多数候选做集合运算
+    private static boolean coverageDiffers(EdgeSet a, EdgeSet b) {
+        if (a == null || b == null || a.size() != b.size()) {
+            return true;
+        }
+        return a != b && a.intersect(b).size() != a.size();
     }
 
     public void updatePerformance(byte[] data, long executionTime, int newBranches) {
-        seedSorter.updateSeedPerformance(data, executionTime, newBranches);
-        energyScheduler.updateEnergy(data, executionTime, newBranches);
+        updatePerformance(data, executionTime, newBranches, 0);
+    }
+
+    @Override
+    public void updatePerformance(byte[] data, long executionTime, int newEdges, int newBuckets) {
+        seedSorter.updateSeedPerformance(data, executionTime, newEdges, newBuckets);
+        energyScheduler.updateEnergy(data, executionTime, newEdges, newBuckets);
     }
 
     public int getQueueSize() {
@@ -2,6 +2,8 @@ package com.example.fuzzer.schedule.core;
 
 import com.example.fuzzer.schedule.model.Seed;
 
+import java.util.SplittableRandom;
+
 /**
  * 种子调度器接口
  */
@@ -29,6 +31,29 @@ public interface SeedScheduler {
      */
     void updatePerformance(byte[] data, long executionTime, int newBranches);
 
+    /**
+     * 更新种子的性能指标，分别给出新边和新命中次数桶的数量
+     *
+     * @param data          种子数据
+     * @param executionTime 执行时间
+     * @param newEdges      新发现的边数
+     * @param newBuckets    已知边上新出现的命中次数桶数
+     */
+    default void updatePerformance(byte[] data, long executionTime, int newEdges, int newBuckets) {
+        updatePerformance(data, executionTime, newEdges + newBuckets);
+    }
+
+    /**
+     * 为拼接变异随机选择另一个种子，优先选择覆盖的边和当前种子不同的
+     *
+     * @param data   当前种子数据
+     * @param random 调用方的随机数流
+     * @return 拼接对象的数据，没有其它种子时返回null
+     */
+    default byte[] selectSplicePartner(byte[] data, SplittableRandom random) {
+        return null;
+    }
+
     /**
      * 获取当前队列中种子的数量
      *
@@ -1,7 +1,9 @@
 package com.example.fuzzer.schedule.energy;
 
-import java.util.HashMap;
+import com.example.fuzzer.schedule.model.SeedKey;
+
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 基础能量调度器实现
@@ -11,40 +13,44 @@ public class BasicEnergyScheduler implements EnergyScheduler {
     private static final int INITIAL_ENERGY = 10;
     private static final double ENERGY_LIMIT_FACTOR = 2.0;
 
-    private final Map<byte[], Integer> energyMap;
-    private final Map<byte[], Integer> remainingEnergyMap;
+    private final Map<SeedKey, Integer> energyMap;
+    private final Map<SeedKey, Integer> remainingEnergyMap;
 
     public BasicEnergyScheduler() {
-        this.energyMap = new HashMap<>();
-        this.remainingEnergyMap = new HashMap<>();
+        this.energyMap = new ConcurrentHashMap<>();
+        this.remainingEnergyMap = new ConcurrentHashMap<>();
     }
 
     @Override
     public void assignEnergy(byte[] data) {
-        if (!energyMap.containsKey(data)) {
-            energyMap.put(data, INITIAL_ENERGY);
-            remainingEnergyMap.put(data, INITIAL_ENERGY);
+        SeedKey key = new SeedKey(data);
+        if (!energyMap.containsKey(key)) {
+            energyMap.put(key, INITIAL_ENERGY);
+            remainingEnergyMap.put(key, INITIAL_ENERGY);
         }
     }
 
     @Override
     public boolean hasEnergy(byte[] data) {
-        Integer remainingEnergy = remainingEnergyMap.get(data);
+        SeedKey key = new SeedKey(data);
+        Integer remainingEnergy = remainingEnergyMap.get(key);
         return remainingEnergy != null && remainingEnergy > 0;
     }
 
     @Override
     public void consumeEnergy(byte[] data) {
-        if (remainingEnergyMap.containsKey(data)) {
-            int remaining = remainingEnergyMap.get(data);
+        SeedKey key = new SeedKey(data);
+        if (remainingEnergyMap.containsKey(key)) {
+            int remaining = remainingEnergyMap.get(key);
             if (remaining > 0) {
-                remainingEnergyMap.put(data, remaining - 1);
+                remainingEnergyMap.put(key, remaining - 1);
             }
         }
     }
 
     public void updateEnergy(byte[] data, long executionTime, int newBranches) {
-        if (!energyMap.containsKey(data)) {
+        SeedKey key = new SeedKey(data);
+        if (!energyMap.containsKey(key)) {
             return;
         }
 
@@ -59,14 +65,15 @@ public class BasicEnergyScheduler implements EnergyScheduler {
         energy = Math.max(MIN_ENERGY, Math.min(energy, (int) (INITIAL_ENERGY * ENERGY_LIMIT_FACTOR)));
 
         // 更新能量值
-        energyMap.put(data, energy);
-        remainingEnergyMap.put(data, energy);
+        energyMap.put(key, energy);
+        remainingEnergyMap.put(key, energy);
     }
 
     public void resetEnergy(byte[] data) {
-        if (energyMap.containsKey(data)) {
-            int energy = energyMap.get(data);
-            remainingEnergyMap.put(data, energy);
+        SeedKey key = new SeedKey(data);
+        if (energyMap.containsKey(key)) {
+            int energy = energyMap.get(key);
+            remainingEnergyMap.put(key, energy);
         }
     }
 }
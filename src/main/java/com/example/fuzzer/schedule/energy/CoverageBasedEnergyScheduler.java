@@ -1,7 +1,9 @@
 package com.example.fuzzer.schedule.energy;
 
-import java.util.HashMap;
+import com.example.fuzzer.schedule.model.SeedKey;
+
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 基于覆盖率的能量调度器实现
@@ -13,60 +15,73 @@ public class CoverageBasedEnergyScheduler implements EnergyScheduler {
     private static final double ENERGY_LIMIT_FACTOR = 3.0; // 允许更高的能量上限
     private static final double COVERAGE_WEIGHT = 2.0; // 覆盖率权重
     private static final double TIME_WEIGHT = 0.5; // 时间权重
+    private static final double BUCKET_WEIGHT = 0.5; // 新命中次数桶相对于新边的权重
 
-    private final Map<byte[], Integer> energyMap;
-    private final Map<byte[], Integer> remainingEnergyMap;
-    private final Map<byte[], Integer> totalNewEdgesMap; // 记录每个种子累计发现的新边
+    private final Map<SeedKey, Integer> energyMap;
+    private final Map<SeedKey, Integer> remainingEnergyMap;
+    private final Map<SeedKey, Integer> totalNewEdgesMap; // 记录每个种子累计发现的新边
+    private final Map<SeedKey, Integer> totalNewBucketsMap; // 记录每个种子累计发现的新命中次数桶
 
     public CoverageBasedEnergyScheduler() {
-        this.energyMap = new HashMap<>();
-        this.remainingEnergyMap = new HashMap<>();
-        this.totalNewEdgesMap = new HashMap<>();
+        this.energyMap = new ConcurrentHashMap<>();
+        this.remainingEnergyMap = new ConcurrentHashMap<>();
+        this.totalNewEdgesMap = new ConcurrentHashMap<>();
+        this.totalNewBucketsMap = new ConcurrentHashMap<>();
     }
 
     @Override
     public void assignEnergy(byte[] data) {
-        if (!energyMap.containsKey(data)) {
-            energyMap.put(data, INITIAL_ENERGY);
-            remainingEnergyMap.put(data, INITIAL_ENERGY);
-            totalNewEdgesMap.put(data, 0);
+        SeedKey key = new SeedKey(data);
+        if (!energyMap.containsKey(key)) {
+            energyMap.put(key, INITIAL_ENERGY);
+            remainingEnergyMap.put(key, INITIAL_ENERGY);
+            totalNewEdgesMap.put(key, 0);
+            totalNewBucketsMap.put(key, 0);
         }
     }
 
     @Override
     public boolean hasEnergy(byte[] data) {
-        Integer remainingEnergy = remainingEnergyMap.get(data);
+        SeedKey key = new SeedKey(data);
+        Integer remainingEnergy = remainingEnergyMap.get(key);
         return remainingEnergy != null && remainingEnergy > 0;
     }
 
     @Override
     public void consumeEnergy(byte[] data) {
-        if (remainingEnergyMap.containsKey(data)) {
-            int remaining = remainingEnergyMap.get(data);
+        SeedKey key = new SeedKey(data);
+        if (remainingEnergyMap.containsKey(key)) {
+            int remaining = remainingEnergyMap.get(key);
             if (remaining > 0) {
-                remainingEnergyMap.put(data, remaining - 1);
+                remainingEnergyMap.put(key, remaining - 1);
             }
         }
     }
 
     @Override
     public void updateEnergy(byte[] data, long executionTime, int newBranches) {
-        if (!energyMap.containsKey(data)) {
+        updateEnergy(data, executionTime, newBranches, 0);
+    }
+
+    @Override
+    public void updateEnergy(byte[] data, long executionTime, int newEdges, int newBuckets) {
+        SeedKey key = new SeedKey(data);
+        if (!energyMap.containsKey(key)) {
             return;
         }
 
-        // 更新累计发现的新边数量
-        int totalNewEdges = totalNewEdgesMap.getOrDefault(data, 0) + newBranches;
-        totalNewEdgesMap.put(data, totalNewEdges);
+        // 更新累计发现的新边和新命中次数桶数量
+        int totalNewEdges = totalNewEdgesMap.merge(key, newEdges, Integer::sum);
+        int totalNewBuckets = totalNewBucketsMap.merge(key, newBuckets, Integer::sum);
 
-        // 计算覆盖率分数
-        double coverageScore = Math.log1p(totalNewEdges) * COVERAGE_WEIGHT;
+        // 计算覆盖率分数，命中次数桶的变化按半条边计
+        double coverageScore = Math.log1p(totalNewEdges + totalNewBuckets * BUCKET_WEIGHT) * COVERAGE_WEIGHT;
 
         // 计算时间效率分数
         double timeScore = 1.0 / Math.max(1, Math.sqrt(executionTime)) * TIME_WEIGHT;
 
-        // 如果这次执行发现了新边，给予额外奖励
-        double newEdgeBonus = newBranches > 0 ? 2.0 : 1.0;
+        // 这次执行发现了新边时给予额外奖励，只发现新命中次数桶时奖励减半
+        double newEdgeBonus = newEdges > 0 ? 2.0 : newBuckets > 0 ? 1.5 : 1.0;
 
         // 综合评分计算新的能量值
         int energy = (int) (INITIAL_ENERGY * (coverageScore + timeScore) * newEdgeBonus);
@@ -75,14 +90,15 @@ public class CoverageBasedEnergyScheduler implements EnergyScheduler {
         energy = Math.max(MIN_ENERGY, Math.min(energy, (int) (INITIAL_ENERGY * ENERGY_LIMIT_FACTOR)));
 
         // 更新能量值
-        energyMap.put(data, energy);
-        remainingEnergyMap.put(data, energy);
+        energyMap.put(key, energy);
+        remainingEnergyMap.put(key, energy);
     }
 
     public void resetEnergy(byte[] data) {
-        if (energyMap.containsKey(data)) {
-            int energy = energyMap.get(data);
-            remainingEnergyMap.put(data, energy);
+        SeedKey key = new SeedKey(data);
+        if (energyMap.containsKey(key)) {
+            int energy = energyMap.get(key);
+            remainingEnergyMap.put(key, energy);
         }
     }
 }
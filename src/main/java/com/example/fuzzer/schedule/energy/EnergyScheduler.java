@@ -42,6 +42,19 @@ public interface EnergyScheduler {
      */
     void updateEnergy(byte[] data, long executionTime, int newBranches);
 
+    /**
+     * 根据执行结果更新种子的能量，分别给出新边和新命中次数桶的数量
+     * 默认把两者之和作为新发现的分支数
+     *
+     * @param data          种子数据
+     * @param executionTime 执行时间
+     * @param newEdges      新发现的边数
+     * @param newBuckets    已知边上新出现的命中次数桶数
+     */
+    default void updateEnergy(byte[] data, long executionTime, int newEdges, int newBuckets) {
+        updateEnergy(data, executionTime, newEdges + newBuckets);
+    }
+
     enum Type {
         BASIC, // 基础能量调度器
         COVERAGE_BASED // 基于覆盖率的能量调度器
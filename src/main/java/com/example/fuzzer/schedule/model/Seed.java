@@ -1,11 +1,19 @@
 package com.example.fuzzer.schedule.model;
 
+import com.example.fuzzer.monitor.EdgeSet;
+import com.example.fuzzer.mutation.DeterministicStage;
+import com.example.fuzzer.mutation.InputToStateStage;
+
 /**
  * 表示一个模糊测试的输入种子
  */
 public class Seed {
     private final byte[] data;
     private int energy;
+    private int queueId;
+    private EdgeSet edges;
+    private DeterministicStage deterministicStage;
+    private InputToStateStage inputToStateStage;
 
     public Seed(byte[] data) {
         this.data = data.clone();
@@ -33,4 +41,48 @@ public class Seed {
     public void setEnergy(int energy) {
         this.energy = energy;
     }
+
+    /**
+     * 队列编号，初始种子为 0
+     */
+    public int getQueueId() {
+        return queueId;
+    }
+
+    public void setQueueId(int queueId) {
+        this.queueId = queueId;
+    }
+
+    /**
+     * 种子进入队列时覆盖的边，未执行过的种子为 null
+     */
+    public EdgeSet getEdges() {
+        return edges;
+    }
+
+    public void setEdges(EdgeSet edges) {
+        this.edges = edges;
+    }
+
+    /**
+     * 种子的确定性变异进度，同一个种子的所有副本共享同一个对象
+     */
+    public DeterministicStage getDeterministicStage() {
+        return deterministicStage;
+    }
+
+    public void setDeterministicStage(DeterministicStage deterministicStage) {
+        this.deterministicStage = deterministicStage;
+    }
+
+    /**
+     * 种子的输入到状态阶段，同一个种子的所有副本共享同一个对象
+     */
+    public InputToStateStage getInputToStateStage() {
+        return inputToStateStage;
+    }
+
+    public void setInputToStateStage(InputToStateStage inputToStateStage) {
+        this.inputToStateStage = inputToStateStage;
+    }
 }
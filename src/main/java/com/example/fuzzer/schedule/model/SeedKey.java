@@ -0,0 +1,39 @@
+package com.example.fuzzer.schedule.model;
+
+import java.util.Arrays;
+
+/**
+ * 按内容比较的种子键
+ * 种子数据在 {@link Seed} 中会被复制，同一个种子在不同地方是不同的数组，
+ * 因此调度相关的映射不能以 byte[] 的引用为键。哈希值在构造时计算一次。
+ */
+public final class SeedKey {
+    private final byte[] data;
+    private final int hash;
+
+    public SeedKey(byte[] data) {
+        this.data = data;
+        this.hash = Arrays.hashCode(data);
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SeedKey)) {
+            return false;
+        }
+        SeedKey other = (SeedKey) o;
+        return hash == other.hash && Arrays.equals(data, other.data);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
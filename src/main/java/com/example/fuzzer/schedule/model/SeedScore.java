@@ -7,6 +7,7 @@ public class SeedScore {
     private final byte[] data;
     private long executionTime;
     private int newBranches;
+    private int newBuckets;
     private float score;
     private int cycles;  // 执行次数
 
@@ -38,6 +39,21 @@ public class SeedScore {
         this.newBranches = newBranches;
     }
 
+    /**
+     * 已知边上新出现的命中次数桶的累计数量
+     */
+    public int getNewBuckets() {
+        return newBuckets;
+    }
+
+    /**
+     * 累计一次执行带来的新边和新命中次数桶
+     */
+    public void addCoverageGain(int newEdges, int newBuckets) {
+        this.newBranches += newEdges;
+        this.newBuckets += newBuckets;
+    }
+
     public float getScore() {
         return score;
     }
@@ -1,5 +1,6 @@
 package com.example.fuzzer.schedule.sort;
 
+import com.example.fuzzer.schedule.model.SeedKey;
 import com.example.fuzzer.schedule.model.SeedScore;
 
 import java.util.*;
@@ -11,7 +12,7 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 public abstract class AbstractSeedSorter implements SeedSorter {
     protected final Queue<SeedScore> queue;
-    protected final Map<String, SeedScore> seedMap;
+    protected final Map<SeedKey, SeedScore> seedMap;
     protected final ReentrantLock lock;
 
     protected AbstractSeedSorter(Comparator<SeedScore> comparator) {
@@ -20,15 +21,15 @@ public abstract class AbstractSeedSorter implements SeedSorter {
         this.lock = new ReentrantLock();
     }
 
-    protected String getDataKey(byte[] data) {
-        return Arrays.toString(data);
+    protected SeedKey getDataKey(byte[] data) {
+        return new SeedKey(data);
     }
 
     @Override
     public void addSeed(byte[] data) {
         if (data == null) return;
 
-        String key = getDataKey(data);
+        SeedKey key = getDataKey(data);
         lock.lock();
         try {
             if (!seedMap.containsKey(key)) {
@@ -65,16 +66,24 @@ public abstract class AbstractSeedSorter implements SeedSorter {
 
     @Override
     public void updateSeedPerformance(byte[] data, long executionTime, int newBranches) {
+        updateSeedPerformance(data, executionTime, newBranches, 0);
+    }
+
+    /**
+     * 新边和新命中次数桶在种子上累计，排序依据的是种子至今带来的全部发现
+     */
+    @Override
+    public void updateSeedPerformance(byte[] data, long executionTime, int newEdges, int newBuckets) {
         if (data == null) return;
 
-        String key = getDataKey(data);
+        SeedKey key = getDataKey(data);
         lock.lock();
         try {
             SeedScore seed = seedMap.get(key);
             if (seed != null) {
                 // 更新种子的性能信息
                 seed.setExecutionTime(executionTime);
-                seed.setNewBranches(newBranches);
+                seed.addCoverageGain(newEdges, newBuckets);
 
                 // 如果使用优先队列，需要重新排序
                 if (queue instanceof PriorityQueue) {
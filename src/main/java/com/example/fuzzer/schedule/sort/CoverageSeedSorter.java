@@ -2,7 +2,9 @@ package com.example.fuzzer.schedule.sort;
 
 public class CoverageSeedSorter extends AbstractSeedSorter {
     public CoverageSeedSorter() {
-        super((s1, s2) -> Integer.compare(s2.getNewBranches(), s1.getNewBranches()));
+        super((s1, s2) -> s1.getNewBranches() != s2.getNewBranches()
+                ? Integer.compare(s2.getNewBranches(), s1.getNewBranches())
+                : Integer.compare(s2.getNewBuckets(), s1.getNewBuckets()));
     }
 
     @Override
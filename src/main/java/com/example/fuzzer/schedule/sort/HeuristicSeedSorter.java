@@ -23,10 +23,10 @@ public class HeuristicSeedSorter extends AbstractSeedSorter {
         if (seed.getExecutionTime() <= 0) return 0;
 
         // AFL启发式算法：
-        // 1. 新分支数越多，分数越高
+        // 1. 新分支数越多，分数越高（新命中次数桶按半条边计）
         // 2. 执行时间越短，分数越高
         // 3. 已经执行过多次的种子，分数会降低
-        float baseScore = (float) seed.getNewBranches() / seed.getExecutionTime();
+        float baseScore = (seed.getNewBranches() + 0.5f * seed.getNewBuckets()) / seed.getExecutionTime();
         float cyclesPenalty = (float) Math.pow(0.95, seed.getCycles());
         return baseScore * cyclesPenalty;
     }
@@ -27,6 +27,19 @@ public interface SeedSorter {
      */
     void updateSeedPerformance(byte[] data, long executionTime, int newBranches);
 
+    /**
+     * 更新种子的性能信息，分别给出新边和新命中次数桶的数量
+     * 默认把两者之和作为新发现的分支数
+     *
+     * @param data          种子数据
+     * @param executionTime 执行时间
+     * @param newEdges      新发现的边数
+     * @param newBuckets    已知边上新出现的命中次数桶数
+     */
+    default void updateSeedPerformance(byte[] data, long executionTime, int newEdges, int newBuckets) {
+        updateSeedPerformance(data, executionTime, newEdges + newBuckets);
+    }
+
     /**
      * 获取种子数量
      *
@@ -1,11 +1,14 @@
 package com.example.fuzzer.sharedmemory;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 public class SharedMemoryManager {
     private Shm shm;
     private int shmId;
     private int size;
+    private ByteBuffer map;
 
     public SharedMemoryManager(int size) throws IOException {
         this.size = size;
@@ -14,17 +17,58 @@ public class SharedMemoryManager {
         if (shmId < 0) {
             throw new IOException("Failed to create shared memory");
         }
+
+        // 只连接一次，之后的每次执行都直接访问映射的内存
+        try {
+            map = shm.attachSharedMemory(shmId, size);
+        } catch (UnsatisfiedLinkError e) {
+            shm.destroySharedMemory(shmId);
+            throw new IOException("libshm 版本过旧，缺少 attachSharedMemory，请按 shm.c 开头的命令重新编译", e);
+        }
+        if (map == null) {
+            shm.destroySharedMemory(shmId);
+            throw new IOException("Failed to attach shared memory");
+        }
+        map.order(ByteOrder.nativeOrder());
     }
 
     public int getShmId() {
         return shmId;
     }
 
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * 获取映射共享内存的直接缓冲区，内容会随目标程序的执行而变化
+     * 调用方应使用绝对下标访问，不要修改缓冲区的 position/limit
+     */
+    public ByteBuffer getCoverageMap() {
+        return map;
+    }
+
+    /**
+     * 在每次执行前清零覆盖率表
+     */
+    public void reset() {
+        shm.resetSharedMemory(map);
+    }
+
+    /**
+     * 复制一份覆盖率数据，只在确实需要保留快照时使用
+     */
     public byte[] readSharedMemory() {
-        return shm.readSharedMemory(shmId, size);
+        byte[] data = new byte[size];
+        map.duplicate().get(data);
+        return data;
     }
 
     public void destroySharedMemory() {
+        if (map != null) {
+            shm.detachSharedMemory(map);
+            map = null;
+        }
         shm.destroySharedMemory(shmId);
     }
 }
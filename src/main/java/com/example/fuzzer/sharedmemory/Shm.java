@@ -1,5 +1,7 @@
 package com.example.fuzzer.sharedmemory;
 
+import java.nio.ByteBuffer;
+
 public class Shm {
     static {
         System.loadLibrary("shm");
@@ -11,6 +13,19 @@ public class Shm {
     // 本地方法：读取共享内存数据
     public native byte[] readSharedMemory(int shmId, int size);
 
+    // 本地方法：连接共享内存，返回直接映射这块内存的 ByteBuffer
+    public native ByteBuffer attachSharedMemory(int shmId, int size);
+
+    // 本地方法：断开 attachSharedMemory 建立的映射
+    public native void detachSharedMemory(ByteBuffer buffer);
+
+    // 本地方法：原地清零共享内存
+    public native void resetSharedMemory(ByteBuffer buffer);
+
+    // 本地方法：对覆盖率表分桶并与 virgin 表比较合并，没有新覆盖时清零覆盖率表
+    // 返回新增覆盖的字节数，out 中写入摘要和新覆盖条目
+    public native int classifyAndDiff(ByteBuffer trace, ByteBuffer virgin, int size, int[] out);
+
     // 本地方法：销毁共享内存
     public native void destroySharedMemory(int shmId);
 }
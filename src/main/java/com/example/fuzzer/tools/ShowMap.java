@@ -0,0 +1,362 @@
+package com.example.fuzzer.tools;
+
+import com.example.fuzzer.execution.ExecutionResult;
+import com.example.fuzzer.execution.ExecutorConfig;
+import com.example.fuzzer.execution.MapSizeDetector;
+import com.example.fuzzer.execution.ProcessExecutor;
+import com.example.fuzzer.monitor.CoverageClassifier;
+import com.example.fuzzer.sharedmemory.SharedMemoryManager;
+import org.apache.commons.cli.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 只读的批量覆盖率工具，相当于 afl-showmap -C
+ * <ul>
+ *     <li>运行模式：用所有核心把一个目录下的输入逐个交给目标程序执行，
+ *     在 traces/ 下为每个输入写出命中的边（每行 "下标:分桶后的命中次数"），
+ *     并把所有输入的覆盖合并成 fuzz_bitmap 格式的位图</li>
+ *     <li>位图运算：对多个输出目录中的 fuzz_bitmap 求并集、交集或差集（第一个减去其余），
+ *     不需要启动完整的模糊测试</li>
+ * </ul>
+ * 用法：java -jar fuzzer.jar showmap -p ./target -i corpus -o showmap_out -c @@
+ * <br>
+ * 或：java -jar fuzzer.jar showmap --union out1 out2 -o merged_bitmap
+ */
+public class ShowMap {
+    private static final String FUZZ_BITMAP = "fuzz_bitmap";
+    private static final String TRACES_DIR = "traces";
+    private static final String WORK_DIR = ".cur_input";
+
+    private ShowMap() {
+    }
+
+    /**
+     * 位图运算的类型
+     */
+    public enum BitmapOp {
+        UNION,      // 任意一个位图命中的边
+        INTERSECT,  // 所有位图都命中的边
+        DIFF        // 第一个位图命中、其余位图都未命中的边
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options();
+
+        options.addOption(Option.builder("p")
+                .longOpt("program")
+                .desc("目标程序路径（运行模式）")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("i")
+                .longOpt("input-dir")
+                .desc("输入目录（运行模式）")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("o")
+                .longOpt("output")
+                .desc("运行模式的输出目录，或位图运算结果的输出文件")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("c")
+                .longOpt("target-cmdline")
+                .desc("目标程序的完整命令行，使用@@作为输入文件占位符")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("j")
+                .longOpt("threads")
+                .desc("线程数量，默认为CPU核心数")
+                .hasArg()
+                .type(Number.class)
+                .build());
+
+        options.addOption(Option.builder("to")
+                .longOpt("timeout")
+                .desc("单个输入的超时时间(秒)，默认为1秒")
+                .hasArg()
+                .type(Number.class)
+                .build());
+
+        options.addOption(Option.builder("ms")
+                .longOpt("map-size")
+                .desc("覆盖率表大小（字节），默认从目标程序自动检测")
+                .hasArg()
+                .type(Number.class)
+                .build());
+
+        options.addOption(Option.builder("U")
+                .longOpt("union")
+                .desc("求多个 fuzz_bitmap（文件或输出目录）的并集")
+                .build());
+
+        options.addOption(Option.builder("I")
+                .longOpt("intersect")
+                .desc("求多个 fuzz_bitmap（文件或输出目录）的交集")
+                .build());
+
+        options.addOption(Option.builder("D")
+                .longOpt("diff")
+                .desc("求第一个 fuzz_bitmap 命中而其余都未命中的边")
+                .build());
+
+        options.addOption(Option.builder("e")
+                .longOpt("list-edges")
+                .desc("位图运算时在标准输出列出结果中的每条边")
+                .build());
+
+        CommandLineParser parser = new DefaultParser();
+        HelpFormatter formatter = new HelpFormatter();
+
+        try {
+            CommandLine cmd = parser.parse(options, args);
+
+            BitmapOp op = cmd.hasOption("union") ? BitmapOp.UNION
+                    : cmd.hasOption("intersect") ? BitmapOp.INTERSECT
+                    : cmd.hasOption("diff") ? BitmapOp.DIFF
+                    : null;
+            if (op != null) {
+                List<Path> bitmaps = new ArrayList<>();
+                for (String arg : cmd.getArgList()) {
+                    bitmaps.add(resolveBitmap(Paths.get(arg)));
+                }
+                byte[] result = combine(op, bitmaps);
+                printBitmapSummary(op, bitmaps, result, cmd.hasOption("list-edges"));
+                if (cmd.hasOption("output")) {
+                    Files.write(Paths.get(cmd.getOptionValue("output")), result);
+                }
+                return;
+            }
+
+            if (!cmd.hasOption("program") || !cmd.hasOption("input-dir") || !cmd.hasOption("output")) {
+                throw new ParseException("运行模式需要 -p、-i 和 -o");
+            }
+            String targetCmdline = cmd.getOptionValue("target-cmdline", "").trim();
+            String[] programArgs = targetCmdline.isEmpty() ? new String[0] : targetCmdline.split("\\s+");
+            int threads = cmd.hasOption("threads")
+                    ? ((Number) cmd.getParsedOptionValue("threads")).intValue()
+                    : Runtime.getRuntime().availableProcessors();
+            int timeout = cmd.hasOption("timeout")
+                    ? ((Number) cmd.getParsedOptionValue("timeout")).intValue()
+                    : 1;
+            String program = cmd.getOptionValue("program");
+            int mapSize = cmd.hasOption("map-size")
+                    ? MapSizeDetector.align(((Number) cmd.getParsedOptionValue("map-size")).intValue())
+                    : MapSizeDetector.detect(Paths.get(program));
+
+            run(program, programArgs, Paths.get(cmd.getOptionValue("input-dir")),
+                    Paths.get(cmd.getOptionValue("output")), mapSize, threads, timeout);
+        } catch (ParseException e) {
+            System.out.println(e.getMessage());
+            formatter.printHelp("Fuzzer showmap", options);
+            System.exit(1);
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 并行执行输入目录中的所有文件，写出每个输入的边列表和合并后的位图
+     */
+    public static void run(String program, String[] programArgs, Path inputDir, Path outputDir,
+                           int mapSize, int threads, int timeout) throws IOException, InterruptedException {
+        ConcurrentLinkedQueue<Path> inputs = new ConcurrentLinkedQueue<>();
+        try (Stream<Path> files = Files.list(inputDir)) {
+            files.filter(Files::isRegularFile).sorted().forEach(inputs::add);
+        }
+        Path tracesDir = outputDir.resolve(TRACES_DIR);
+        Path workDir = outputDir.resolve(WORK_DIR);
+        Files.createDirectories(tracesDir);
+        Files.createDirectories(workDir);
+
+        int total = inputs.size();
+        AtomicInteger crashes = new AtomicInteger();
+        AtomicInteger timeouts = new AtomicInteger();
+        long start = System.currentTimeMillis();
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<Future<byte[]>> workers = new ArrayList<>();
+        for (int t = 0; t < Math.max(1, threads); t++) {
+            workers.add(pool.submit(() -> runWorker(program, programArgs, inputs, tracesDir, workDir,
+                    mapSize, timeout, crashes, timeouts)));
+        }
+        pool.shutdown();
+
+        // 合并各线程的覆盖，输出与 fuzz_bitmap 相同的格式（0xFF 表示从未命中）
+        byte[] covered = new byte[mapSize];
+        try {
+            for (Future<byte[]> worker : workers) {
+                byte[] part = worker.get();
+                for (int i = 0; i < mapSize; i++) {
+                    covered[i] |= part[i];
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("执行输入失败: " + e.getCause().getMessage(), e.getCause());
+        }
+        byte[] bitmap = new byte[mapSize];
+        int edges = 0;
+        for (int i = 0; i < mapSize; i++) {
+            bitmap[i] = (byte) ~covered[i];
+            if (covered[i] != 0) {
+                edges++;
+            }
+        }
+        Files.write(outputDir.resolve(FUZZ_BITMAP), bitmap);
+        Files.deleteIfExists(workDir);
+
+        System.out.printf("执行了 %d 个输入（崩溃 %d，超时 %d），用时 %.1f 秒%n",
+                total, crashes.get(), timeouts.get(), (System.currentTimeMillis() - start) / 1000.0);
+        System.out.printf("合并覆盖: %d 条边 (%.2f%%)，位图写入 %s%n",
+                edges, edges * 100.0 / mapSize, outputDir.resolve(FUZZ_BITMAP));
+    }
+
+    private static byte[] runWorker(String program, String[] programArgs, ConcurrentLinkedQueue<Path> inputs,
+                                    Path tracesDir, Path workDir, int mapSize, int timeout,
+                                    AtomicInteger crashes, AtomicInteger timeouts) throws IOException {
+        byte[] covered = new byte[mapSize];
+        SharedMemoryManager shmManager = new SharedMemoryManager(mapSize);
+        try {
+            ExecutorConfig config = new ExecutorConfig.Builder()
+                    .timeout(timeout)
+                    .maxRetries(0)
+                    .redirectOutput(true)
+                    .outputDir(workDir.toString())
+                    .commandArgs(programArgs)
+                    .build();
+            ProcessExecutor executor = new ProcessExecutor(program, shmManager, config);
+
+            Path input;
+            while ((input = inputs.poll()) != null) {
+                ExecutionResult result = executor.execute(Files.readAllBytes(input));
+                if (result.isTimeout()) {
+                    timeouts.incrementAndGet();
+                } else if (result.getExitCode() != 0) {
+                    crashes.incrementAndGet();
+                }
+                ByteBuffer trace = result.getCoverageMap();
+                if (trace != null) {
+                    // 执行器下一次执行前会清零共享内存，这里可以原地分桶
+                    CoverageClassifier.classify(trace, mapSize);
+                    writeTrace(tracesDir.resolve(input.getFileName().toString()), trace, mapSize, covered);
+                }
+            }
+        } finally {
+            shmManager.destroySharedMemory();
+        }
+        return covered;
+    }
+
+    private static void writeTrace(Path tracePath, ByteBuffer trace, int mapSize, byte[] covered)
+            throws IOException {
+        ByteBuffer view = trace.order() == ByteOrder.nativeOrder()
+                ? trace
+                : trace.duplicate().order(ByteOrder.nativeOrder());
+        int limit = Math.min(mapSize, view.capacity());
+        try (BufferedWriter writer = Files.newBufferedWriter(tracePath, StandardCharsets.UTF_8)) {
+            for (int i = 0; i + Long.BYTES <= limit; i += Long.BYTES) {
+                if (view.getLong(i) == 0) {
+                    continue;
+                }
+                for (int edge = i; edge < i + Long.BYTES; edge++) {
+                    int bucket = view.get(edge) & 0xFF;
+                    if (bucket != 0) {
+                        covered[edge] |= (byte) bucket;
+                        writer.write(String.format("%06d:%d%n", edge, bucket));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 参数是输出目录时使用其中的 fuzz_bitmap
+     */
+    private static Path resolveBitmap(Path path) {
+        return Files.isDirectory(path) ? path.resolve(FUZZ_BITMAP) : path;
+    }
+
+    /**
+     * 对 fuzz_bitmap 格式的位图做运算，结果同样是 fuzz_bitmap 格式
+     * 按边判断是否命中；保留下来的边合并所有输入中出现过的命中次数桶
+     */
+    public static byte[] combine(BitmapOp op, List<Path> bitmaps) throws IOException {
+        if (bitmaps.isEmpty() || (op == BitmapOp.DIFF && bitmaps.size() < 2)) {
+            throw new IllegalArgumentException("位图数量不足");
+        }
+        List<byte[]> covered = new ArrayList<>();
+        for (Path path : bitmaps) {
+            byte[] virgin = Files.readAllBytes(path);
+            if (!covered.isEmpty() && virgin.length != covered.get(0).length) {
+                throw new IllegalArgumentException("位图大小不一致: " + path + " (" + virgin.length
+                        + " 字节，应为 " + covered.get(0).length + ")");
+            }
+            for (int i = 0; i < virgin.length; i++) {
+                virgin[i] = (byte) ~virgin[i];
+            }
+            covered.add(virgin);
+        }
+
+        int size = covered.get(0).length;
+        byte[] result = new byte[size];
+        for (int i = 0; i < size; i++) {
+            int merged = 0;
+            int hits = 0;
+            for (byte[] map : covered) {
+                merged |= map[i];
+                if (map[i] != 0) {
+                    hits++;
+                }
+            }
+            boolean keep;
+            switch (op) {
+                case UNION:
+                    keep = hits > 0;
+                    break;
+                case INTERSECT:
+                    keep = hits == covered.size();
+                    break;
+                default:
+                    keep = covered.get(0)[i] != 0 && hits == 1;
+                    merged = covered.get(0)[i];
+                    break;
+            }
+            result[i] = (byte) ~(keep ? merged : 0);
+        }
+        return result;
+    }
+
+    private static void printBitmapSummary(BitmapOp op, List<Path> bitmaps, byte[] result, boolean listEdges) {
+        int edges = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (result[i] != (byte) 0xFF) {
+                edges++;
+                if (listEdges) {
+                    System.out.printf("%06d:%d%n", i, ~result[i] & 0xFF);
+                }
+            }
+        }
+        System.err.printf("%s (%d 个位图): %d 条边%n", op, bitmaps.size(), edges);
+    }
+}
@@ -23,6 +23,38 @@ JNIEXPORT jint JNICALL Java_com_example_fuzzer_sharedmemory_Shm_createSharedMemo
 JNIEXPORT jbyteArray JNICALL Java_com_example_fuzzer_sharedmemory_Shm_readSharedMemory
   (JNIEnv *, jobject, jint, jint);
 
+/*
+ * Class:     com_example_fuzzer_sharedmemory_Shm
+ * Method:    attachSharedMemory
+ * Signature: (II)Ljava/nio/ByteBuffer;
+ */
+JNIEXPORT jobject JNICALL Java_com_example_fuzzer_sharedmemory_Shm_attachSharedMemory
+  (JNIEnv *, jobject, jint, jint);
+
+/*
+ * Class:     com_example_fuzzer_sharedmemory_Shm
+ * Method:    detachSharedMemory
+ * Signature: (Ljava/nio/ByteBuffer;)V
+ */
+JNIEXPORT void JNICALL Java_com_example_fuzzer_sharedmemory_Shm_detachSharedMemory
+  (JNIEnv *, jobject, jobject);
+
+/*
+ * Class:     com_example_fuzzer_sharedmemory_Shm
+ * Method:    resetSharedMemory
+ * Signature: (Ljava/nio/ByteBuffer;)V
+ */
+JNIEXPORT void JNICALL Java_com_example_fuzzer_sharedmemory_Shm_resetSharedMemory
+  (JNIEnv *, jobject, jobject);
+
+/*
+ * Class:     com_example_fuzzer_sharedmemory_Shm
+ * Method:    classifyAndDiff
+ * Signature: (Ljava/nio/ByteBuffer;Ljava/nio/ByteBuffer;I[I)I
+ */
+JNIEXPORT jint JNICALL Java_com_example_fuzzer_sharedmemory_Shm_classifyAndDiff
+  (JNIEnv *, jobject, jobject, jobject, jint, jintArray);
+
 /*
  * Class:     com_example_fuzzer_sharedmemory_Shm
  * Method:    destroySharedMemory
@@ -0,0 +1,98 @@
+/*
+ * cgf-rss: 记录目标程序峰值内存（RSS）的启动器
+ *
+ * 用法: cgf-rss <target> [args...]
+ *
+ * 启动器 fork 并执行目标程序（标准输入输出和环境变量原样继承），
+ * 用 wait4 取得目标进程的 ru_maxrss（KB），写入 __CGF_RSS_SHM_ID 指向的共享内存的前 8 字节。
+ * 进程刚退出时 /proc/<pid>/status 已经不可读，而 wait4 的 rusage 对很短的执行也准确。
+ * 退出码与目标程序一致，目标被信号终止时返回 128 + 信号值。
+ * 启动器收到 SIGTERM/SIGINT 时转发给目标；被强制杀死时目标通过 PR_SET_PDEATHSIG 一同退出。
+ *
+ * 仅支持 Linux。编译：
+ *   gcc -O2 -o cgf-rss src/main/native/rss.c
+ */
+#define _GNU_SOURCE
+#include <errno.h>
+#include <signal.h>
+#include <stdint.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <sys/prctl.h>
+#include <sys/resource.h>
+#include <sys/shm.h>
+#include <sys/types.h>
+#include <sys/wait.h>
+#include <unistd.h>
+
+static volatile pid_t child_pid = -1;
+
+static void forward_signal(int sig) {
+    if (child_pid > 0) {
+        kill(child_pid, sig);
+    }
+}
+
+static volatile uint64_t *attach_rss_slot(void) {
+    const char *id = getenv("__CGF_RSS_SHM_ID");
+    if (!id) {
+        return NULL;
+    }
+    void *mem = shmat(atoi(id), NULL, 0);
+    return mem == (void *) -1 ? NULL : (volatile uint64_t *) mem;
+}
+
+int main(int argc, char **argv) {
+    if (argc < 2) {
+        fprintf(stderr, "用法: %s <target> [args...]\n", argv[0]);
+        return 2;
+    }
+
+    volatile uint64_t *rss_slot = attach_rss_slot();
+    pid_t parent = getpid();
+
+    struct sigaction sa;
+    memset(&sa, 0, sizeof(sa));
+    sa.sa_handler = forward_signal;
+    sigaction(SIGTERM, &sa, NULL);
+    sigaction(SIGINT, &sa, NULL);
+
+    child_pid = fork();
+    if (child_pid < 0) {
+        perror("fork");
+        return 2;
+    }
+    if (child_pid == 0) {
+        prctl(PR_SET_PDEATHSIG, SIGKILL);
+        // 父进程在 prctl 之前已经退出时不再执行目标
+        if (getppid() != parent) {
+            _exit(2);
+        }
+        if (rss_slot) {
+            shmdt((const void *) rss_slot);
+        }
+        execvp(argv[1], argv + 1);
+        perror("execvp");
+        _exit(127);
+    }
+
+    int status = 0;
+    struct rusage usage;
+    pid_t waited;
+    do {
+        waited = wait4(child_pid, &status, 0, &usage);
+    } while (waited < 0 && errno == EINTR);
+
+    if (waited < 0) {
+        return 2;
+    }
+    if (rss_slot) {
+        *rss_slot = (uint64_t) usage.ru_maxrss;
+        shmdt((const void *) rss_slot);
+    }
+    if (WIFSIGNALED(status)) {
+        return 128 + WTERMSIG(status);
+    }
+    return WEXITSTATUS(status);
+}
@@ -0,0 +1,357 @@
+/*
+ * SanitizerCoverage 运行时：让直接用 clang -fsanitize-coverage=... 编译的目标程序
+ * 无需 afl-cc 即可把边覆盖写入 SharedMemoryManager 读取的共享内存表。
+ *
+ * 支持两种插桩方式：
+ *   trace-pc-guard       每个 guard 在初始化时分配一个唯一的表下标，命中时直接在共享内存中计数
+ *   inline-8bit-counters 编译器把计数器内联在模块自己的数组里（clang 提供的最快插桩），
+ *                        初始化时为每个计数器分配连续的表下标，进程退出或崩溃时一次性合并进共享内存
+ * 下标按顺序分配，在 AFL_MAP_SIZE（默认 65536）范围内不会发生冲突，超出时回绕并打印一次警告。
+ * 以 AFL_DUMP_MAP_SIZE=1 运行时只打印所需的表大小。
+ *
+ * 8 位计数在 255 之后回绕（NeverZero），PERF 反馈需要真实的循环次数：设置了 __CGF_HITCOUNT_SHM_ID 时
+ * trace-pc-guard 另外在这块共享内存中为每条边维护一个 32 位饱和计数（uint32_t[map_size]）。
+ * inline-8bit-counters 的计数由编译器内联递增，无法加宽，只能原样写入。
+ *
+ * 另外实现 CmpLog：用 trace-cmp 插桩时，整数比较和 switch 的两个操作数写入 __AFL_CMPLOG_SHM_ID
+ * 指向的第二块共享内存（布局见 cmplog_map_t，与 CmpLogMap.java 一致），供输入到状态阶段使用。
+ * 在 ASan 等带拦截器的构建中 memcmp/strcmp 系列的弱钩子也会记录前 32 字节。未设置该变量时钩子直接返回。
+ *
+ * 编译目标程序：
+ *   clang -c -O2 src/main/native/sancov_rt.c -o sancov_rt.o
+ *   clang -fsanitize-coverage=trace-pc-guard target.c sancov_rt.o -o target
+ *   clang -fsanitize-coverage=inline-8bit-counters target.c sancov_rt.o -o target
+ *   clang -fsanitize-coverage=trace-pc-guard,trace-cmp target.c sancov_rt.o -o target.cmplog
+ */
+#include <signal.h>
+#include <stdint.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <sys/shm.h>
+#include <unistd.h>
+
+#define DEFAULT_MAP_SIZE 65536
+#define MAX_COUNTER_REGIONS 256
+
+#define CMPLOG_MAX_ENTRIES 4096
+#define CMPLOG_OPERAND_SIZE 32
+#define CMPLOG_TYPE_INS 0  /* 整数比较，操作数按本机字节序保存在前 8 字节 */
+#define CMPLOG_TYPE_RTN 1  /* memcmp/strcmp 等按内存比较，保存前 size 个字节 */
+/* 同一个比较点最多记录的次数，避免循环里的比较占满整张表 */
+#define CMPLOG_SITE_SLOTS 4096
+#define CMPLOG_SITE_HITS 8
+
+/* 整数比较的 size 是操作数宽度；内存比较的两边长度可能不同（字符串），len0/len1 分别记录 */
+typedef struct {
+    uint8_t type;
+    uint8_t size;
+    uint8_t len0;
+    uint8_t len1;
+    uint32_t site;
+    uint8_t v0[CMPLOG_OPERAND_SIZE];
+    uint8_t v1[CMPLOG_OPERAND_SIZE];
+} cmplog_entry_t;
+
+typedef struct {
+    uint32_t count;
+    uint32_t reserved;
+    cmplog_entry_t entries[CMPLOG_MAX_ENTRIES];
+} cmplog_map_t;
+
+typedef struct {
+    uint8_t *start;
+    uint8_t *stop;
+    uint32_t base;
+} counter_region_t;
+
+static uint8_t dummy_map[DEFAULT_MAP_SIZE];
+static uint8_t *area_ptr = dummy_map;
+static uint32_t map_size = DEFAULT_MAP_SIZE;
+static uint32_t next_id = 1;  /* 0 号 guard 表示禁用，下标从 1 开始分配 */
+static int map_ready;
+static int overflow_warned;
+
+static counter_region_t regions[MAX_COUNTER_REGIONS];
+static int region_count;
+
+static cmplog_map_t *cmplog_map;
+static uint32_t *hit_counts;
+static uint8_t cmplog_site_hits[CMPLOG_SITE_SLOTS];
+
+static void flush_counters(void);
+
+static void fatal_signal_handler(int sig) {
+    flush_counters();
+    signal(sig, SIG_DFL);
+    raise(sig);
+}
+
+static void setup_map(void) {
+    if (map_ready) {
+        return;
+    }
+    map_ready = 1;
+
+    const char *size_env = getenv("AFL_MAP_SIZE");
+    if (size_env) {
+        long size = strtol(size_env, NULL, 10);
+        if (size > 0) {
+            map_size = (uint32_t) size;
+        }
+    }
+
+    const char *id = getenv("__AFL_SHM_ID");
+    if (id) {
+        void *shm = shmat(atoi(id), NULL, 0);
+        if (shm != (void *) -1) {
+            area_ptr = (uint8_t *) shm;
+        }
+    }
+    const char *cmplog_id = getenv("__AFL_CMPLOG_SHM_ID");
+    if (cmplog_id) {
+        void *shm = shmat(atoi(cmplog_id), NULL, 0);
+        if (shm != (void *) -1) {
+            cmplog_map = (cmplog_map_t *) shm;
+        }
+    }
+    const char *hit_count_id = getenv("__CGF_HITCOUNT_SHM_ID");
+    if (hit_count_id) {
+        void *shm = shmat(atoi(hit_count_id), NULL, 0);
+        if (shm != (void *) -1) {
+            hit_counts = (uint32_t *) shm;
+        }
+    }
+    /* 未在模糊测试中运行时写入本地缓冲区，程序可以独立运行 */
+    if (area_ptr == dummy_map && map_size > DEFAULT_MAP_SIZE) {
+        map_size = DEFAULT_MAP_SIZE;
+    }
+
+    static const int fatal_signals[] = {SIGSEGV, SIGBUS, SIGABRT, SIGILL, SIGFPE};
+    for (size_t i = 0; i < sizeof(fatal_signals) / sizeof(fatal_signals[0]); i++) {
+        signal(fatal_signals[i], fatal_signal_handler);
+    }
+    atexit(flush_counters);
+}
+
+static uint32_t allocate_ids(uint32_t count) {
+    uint32_t base = next_id;
+    if ((uint64_t) next_id + count > map_size) {
+        /* 检测表大小时超出是预期的，不打印警告 */
+        if (!overflow_warned && !getenv("AFL_DUMP_MAP_SIZE")) {
+            overflow_warned = 1;
+            fprintf(stderr, "[sancov_rt] 边数量超过覆盖率表大小 %u，下标将回绕并可能冲突，请增大 AFL_MAP_SIZE\n", map_size);
+        }
+        base = 1 + (next_id - 1) % (map_size - 1);
+    }
+    next_id += count;
+    return base;
+}
+
+__attribute__((constructor(101))) static void sancov_rt_init(void) {
+    setup_map();
+}
+
+/*
+ * AFL_DUMP_MAP_SIZE=1 时打印需要的覆盖率表大小后退出，供 MapSizeDetector 自动检测。
+ * 默认优先级的构造函数在编译器生成的 sancov 模块构造函数（优先级 2）之后运行，此时下标已全部分配。
+ */
+__attribute__((constructor)) static void sancov_rt_dump_map_size(void) {
+    if (getenv("AFL_DUMP_MAP_SIZE")) {
+        printf("%u\n", next_id);
+        fflush(stdout);
+        _exit(0);
+    }
+}
+
+__attribute__((destructor)) static void sancov_rt_fini(void) {
+    flush_counters();
+}
+
+void __sanitizer_cov_trace_pc_guard_init(uint32_t *start, uint32_t *stop) {
+    setup_map();
+    if (start == stop || *start) {
+        return;
+    }
+    uint32_t count = (uint32_t) (stop - start);
+    uint32_t base = allocate_ids(count);
+    for (uint32_t i = 0; i < count; i++) {
+        start[i] = 1 + (base - 1 + i) % (map_size - 1);
+    }
+}
+
+void __sanitizer_cov_trace_pc_guard(uint32_t *guard) {
+    /* AFL++ 的 NeverZero 计数：计数回绕时跳过 0，避免已命中的边看起来像未命中 */
+    uint8_t *slot = &area_ptr[*guard];
+    uint8_t value = (uint8_t) (*slot + 1);
+    *slot = value + (value == 0);
+    if (hit_counts) {
+        uint32_t *count = &hit_counts[*guard];
+        *count += *count != UINT32_MAX;
+    }
+}
+
+void __sanitizer_cov_8bit_counters_init(char *start, char *stop) {
+    setup_map();
+    if (start == stop || region_count >= MAX_COUNTER_REGIONS) {
+        return;
+    }
+    for (int i = 0; i < region_count; i++) {
+        if (regions[i].start == (uint8_t *) start) {
+            return;
+        }
+    }
+    regions[region_count].start = (uint8_t *) start;
+    regions[region_count].stop = (uint8_t *) stop;
+    regions[region_count].base = allocate_ids((uint32_t) (stop - start));
+    region_count++;
+}
+
+/* pc-table 只用于符号化，这里不需要 */
+void __sanitizer_cov_pcs_init(const uintptr_t *pcs_beg, const uintptr_t *pcs_end) {
+    (void) pcs_beg;
+    (void) pcs_end;
+}
+
+static void flush_counters(void) {
+    for (int r = 0; r < region_count; r++) {
+        const uint8_t *counter = regions[r].start;
+        uint32_t length = (uint32_t) (regions[r].stop - regions[r].start);
+        uint32_t base = regions[r].base;
+        for (uint32_t i = 0; i < length; i++) {
+            if (counter[i]) {
+                uint32_t index = 1 + (base - 1 + i) % (map_size - 1);
+                area_ptr[index] = counter[i];
+                if (hit_counts) {
+                    hit_counts[index] = counter[i];
+                }
+            }
+        }
+    }
+}
+
+static cmplog_entry_t *cmplog_append(uintptr_t pc, uint8_t type, uint8_t size) {
+    uint32_t site = (uint32_t) (pc ^ (pc >> 12));
+    uint8_t *hits = &cmplog_site_hits[site % CMPLOG_SITE_SLOTS];
+    if (*hits >= CMPLOG_SITE_HITS || cmplog_map->count >= CMPLOG_MAX_ENTRIES) {
+        return NULL;
+    }
+    (*hits)++;
+    cmplog_entry_t *entry = &cmplog_map->entries[cmplog_map->count++];
+    entry->type = type;
+    entry->size = size;
+    entry->len0 = size;
+    entry->len1 = size;
+    entry->site = site;
+    return entry;
+}
+
+/* 两边相等的比较已经满足，对求解没有帮助，不记录 */
+static void cmplog_ins(uintptr_t pc, uint64_t arg1, uint64_t arg2, uint8_t size) {
+    if (!cmplog_map || arg1 == arg2) {
+        return;
+    }
+    cmplog_entry_t *entry = cmplog_append(pc, CMPLOG_TYPE_INS, size);
+    if (entry) {
+        memcpy(entry->v0, &arg1, sizeof(arg1));
+        memcpy(entry->v1, &arg2, sizeof(arg2));
+    }
+}
+
+static void cmplog_rtn(uintptr_t pc, const void *s1, size_t len1, const void *s2, size_t len2) {
+    if (!cmplog_map) {
+        return;
+    }
+    len1 = len1 < CMPLOG_OPERAND_SIZE ? len1 : CMPLOG_OPERAND_SIZE;
+    len2 = len2 < CMPLOG_OPERAND_SIZE ? len2 : CMPLOG_OPERAND_SIZE;
+    if (len1 == 0 && len2 == 0) {
+        return;
+    }
+    cmplog_entry_t *entry = cmplog_append(pc, CMPLOG_TYPE_RTN, (uint8_t) (len1 > len2 ? len1 : len2));
+    if (entry) {
+        entry->len0 = (uint8_t) len1;
+        entry->len1 = (uint8_t) len2;
+        memcpy(entry->v0, s1, len1);
+        memcpy(entry->v1, s2, len2);
+    }
+}
+
+#define CMPLOG_PC() ((uintptr_t) __builtin_return_address(0))
+
+void __sanitizer_cov_trace_cmp1(uint8_t arg1, uint8_t arg2) {
+    cmplog_ins(CMPLOG_PC(), arg1, arg2, 1);
+}
+
+void __sanitizer_cov_trace_cmp2(uint16_t arg1, uint16_t arg2) {
+    cmplog_ins(CMPLOG_PC(), arg1, arg2, 2);
+}
+
+void __sanitizer_cov_trace_cmp4(uint32_t arg1, uint32_t arg2) {
+    cmplog_ins(CMPLOG_PC(), arg1, arg2, 4);
+}
+
+void __sanitizer_cov_trace_cmp8(uint64_t arg1, uint64_t arg2) {
+    cmplog_ins(CMPLOG_PC(), arg1, arg2, 8);
+}
+
+void __sanitizer_cov_trace_const_cmp1(uint8_t arg1, uint8_t arg2) {
+    cmplog_ins(CMPLOG_PC(), arg1, arg2, 1);
+}
+
+void __sanitizer_cov_trace_const_cmp2(uint16_t arg1, uint16_t arg2) {
+    cmplog_ins(CMPLOG_PC(), arg1, arg2, 2);
+}
+
+void __sanitizer_cov_trace_const_cmp4(uint32_t arg1, uint32_t arg2) {
+    cmplog_ins(CMPLOG_PC(), arg1, arg2, 4);
+}
+
+void __sanitizer_cov_trace_const_cmp8(uint64_t arg1, uint64_t arg2) {
+    cmplog_ins(CMPLOG_PC(), arg1, arg2, 8);
+}
+
+/* gcc 的 trace-cmp 还会插桩浮点比较，输入中很少以原样出现，只提供符号 */
+void __sanitizer_cov_trace_cmpf(float arg1, float arg2) {
+    (void) arg1;
+    (void) arg2;
+}
+
+void __sanitizer_cov_trace_cmpd(double arg1, double arg2) {
+    (void) arg1;
+    (void) arg2;
+}
+
+/* cases[0] 是 case 数量，cases[1] 是操作数位宽，之后是各 case 的值；每个 case 按独立的比较点计数 */
+void __sanitizer_cov_trace_switch(uint64_t val, uint64_t *cases) {
+    uintptr_t pc = CMPLOG_PC();
+    uint8_t size = (uint8_t) (cases[1] / 8);
+    for (uint64_t i = 0; i < cases[0]; i++) {
+        cmplog_ins(pc + i, val, cases[2 + i], size);
+    }
+}
+
+void __sanitizer_weak_hook_memcmp(void *caller_pc, const void *s1, const void *s2, size_t n, int result) {
+    if (result != 0) {
+        cmplog_rtn((uintptr_t) caller_pc, s1, n, s2, n);
+    }
+}
+
+/* 字符串只记录到结尾的 NUL 为止，不读越界 */
+void __sanitizer_weak_hook_strncmp(void *caller_pc, const char *s1, const char *s2, size_t n, int result) {
+    if (result != 0) {
+        size_t limit = n < CMPLOG_OPERAND_SIZE ? n : CMPLOG_OPERAND_SIZE;
+        cmplog_rtn((uintptr_t) caller_pc, s1, strnlen(s1, limit), s2, strnlen(s2, limit));
+    }
+}
+
+void __sanitizer_weak_hook_strcmp(void *caller_pc, const char *s1, const char *s2, int result) {
+    __sanitizer_weak_hook_strncmp(caller_pc, s1, s2, CMPLOG_OPERAND_SIZE, result);
+}
+
+void __sanitizer_weak_hook_strncasecmp(void *caller_pc, const char *s1, const char *s2, size_t n, int result) {
+    __sanitizer_weak_hook_strncmp(caller_pc, s1, s2, n, result);
+}
+
+void __sanitizer_weak_hook_strcasecmp(void *caller_pc, const char *s1, const char *s2, int result) {
+    __sanitizer_weak_hook_strncmp(caller_pc, s1, s2, CMPLOG_OPERAND_SIZE, result);
+}
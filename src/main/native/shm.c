@@ -1,11 +1,110 @@
+/*
+ * libshm: SharedMemoryManager 和 VirginMap 使用的 JNI 库（System.loadLibrary("shm")）
+ *
+ * 提供 System V 共享内存的创建、连接（映射为直接 ByteBuffer）、清零和销毁，
+ * 以及覆盖率表的分桶、与 virgin 表比较合并（classifyAndDiff）。
+ * Java 端修改 native 方法后必须同时重新编译这个库，旧库会在创建第一块共享内存时报错。
+ *
+ * 编译（输出目录与 java.library.path 对应）：
+ *   Linux:
+ *     gcc -O2 -shared -fPIC -I"$JAVA_HOME/include" -I"$JAVA_HOME/include/linux" \
+ *         -o src/main/native/linux/$(uname -m)/libshm.so src/main/native/shm.c
+ *   macOS:
+ *     clang -O2 -dynamiclib -I"$JAVA_HOME/include" -I"$JAVA_HOME/include/darwin" \
+ *         -o src/main/native/darwin/$(uname -m)/libshm.dylib src/main/native/shm.c
+ */
 #include <jni.h>
 #include "com_example_fuzzer_sharedmemory_Shm.h"
 #include <sys/ipc.h>
 #include <sys/shm.h>
 #include <sys/types.h>
+#include <stdint.h>
 #include <stdlib.h>
 #include <string.h>
 
+/* 与 CoverageClassifier 相同的 AFL 命中次数分桶表，16 位版本每次处理两个字节 */
+static uint8_t count_class_lookup8[256];
+static uint16_t count_class_lookup16[65536];
+
+/* classifyAndDiff 在 out 数组开头写入的摘要，之后是打包的新覆盖条目 */
+#define DIFF_NEW_EDGES 0
+#define DIFF_NEW_BUCKETS 1
+#define DIFF_HASH_LOW 2
+#define DIFF_HASH_HIGH 3
+#define DIFF_HEADER 4
+
+/* 路径哈希，与 TraceHash.java 相同：xxHash64 的轮函数，只混入非零字及其序号 */
+#define PRIME64_1 0x9E3779B185EBCA87ULL
+#define PRIME64_2 0xC2B2AE3D27D4EB4FULL
+#define PRIME64_3 0x165667B19E3779F9ULL
+#define PRIME64_4 0x85EBCA77C2B2AE63ULL
+#define PRIME64_5 0x27D4EB2F165667C5ULL
+#define DIFF_LOCAL_ENTRIES 1024
+
+JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *vm, void *reserved) {
+    for (int i = 0; i < 256; i++) {
+        uint8_t bucket;
+        if (i == 0) bucket = 0;
+        else if (i == 1) bucket = 1;
+        else if (i == 2) bucket = 2;
+        else if (i == 3) bucket = 4;
+        else if (i <= 7) bucket = 8;
+        else if (i <= 15) bucket = 16;
+        else if (i <= 31) bucket = 32;
+        else if (i <= 127) bucket = 64;
+        else bucket = 128;
+        count_class_lookup8[i] = bucket;
+    }
+    /* 按字节组合，结果与字节序无关 */
+    for (int i = 0; i < 65536; i++) {
+        uint16_t value;
+        uint8_t *bytes = (uint8_t *) &value;
+        uint16_t index = (uint16_t) i;
+        uint8_t *in = (uint8_t *) &index;
+        bytes[0] = count_class_lookup8[in[0]];
+        bytes[1] = count_class_lookup8[in[1]];
+        count_class_lookup16[i] = value;
+    }
+    return JNI_VERSION_1_6;
+}
+
+static inline uint64_t rotl64(uint64_t x, int r) {
+    return (x << r) | (x >> (64 - r));
+}
+
+static inline uint64_t hash_round(uint64_t input) {
+    return rotl64(input * PRIME64_2, 31) * PRIME64_1;
+}
+
+static inline uint64_t hash_update(uint64_t hash, uint32_t word_index, uint64_t word) {
+    hash ^= hash_round(word_index);
+    hash = rotl64(hash, 27) * PRIME64_1 + PRIME64_4;
+    hash ^= hash_round(word);
+    hash = rotl64(hash, 27) * PRIME64_1 + PRIME64_4;
+    return hash;
+}
+
+static inline uint64_t hash_finish(uint64_t hash) {
+    hash ^= hash >> 33;
+    hash *= PRIME64_2;
+    hash ^= hash >> 29;
+    hash *= PRIME64_3;
+    hash ^= hash >> 32;
+    return hash;
+}
+
+static inline uint64_t classify_word(uint64_t word) {
+    union {
+        uint64_t word;
+        uint16_t half[4];
+    } value = {word};
+    value.half[0] = count_class_lookup16[value.half[0]];
+    value.half[1] = count_class_lookup16[value.half[1]];
+    value.half[2] = count_class_lookup16[value.half[2]];
+    value.half[3] = count_class_lookup16[value.half[3]];
+    return value.word;
+}
+
 JNIEXPORT jint JNICALL Java_com_example_fuzzer_sharedmemory_Shm_createSharedMemory
   (JNIEnv *env, jobject obj, jint size) {
     int shmId = shmget(IPC_PRIVATE, size, IPC_CREAT | IPC_EXCL | 0600);
@@ -29,6 +128,130 @@ JNIEXPORT jbyteArray JNICALL Java_com_example_fuzzer_sharedmemory_Shm_readShared
     return result;
 }
 
+JNIEXPORT jobject JNICALL Java_com_example_fuzzer_sharedmemory_Shm_attachSharedMemory
+  (JNIEnv *env, jobject obj, jint shmId, jint size) {
+    // 连接一次并在执行器的整个生命周期内保持映射，Java 端直接读写这块内存
+    void *shmAddr = shmat(shmId, NULL, 0);
+    if (shmAddr == (void *) -1) {
+        return NULL;
+    }
+    return (*env)->NewDirectByteBuffer(env, shmAddr, (jlong) size);
+}
+
+JNIEXPORT void JNICALL Java_com_example_fuzzer_sharedmemory_Shm_detachSharedMemory
+  (JNIEnv *env, jobject obj, jobject buffer) {
+    void *shmAddr = (*env)->GetDirectBufferAddress(env, buffer);
+    if (shmAddr != NULL) {
+        shmdt(shmAddr);
+    }
+}
+
+JNIEXPORT void JNICALL Java_com_example_fuzzer_sharedmemory_Shm_resetSharedMemory
+  (JNIEnv *env, jobject obj, jobject buffer) {
+    // 原地清零，不产生系统调用和 Java 堆分配
+    void *shmAddr = (*env)->GetDirectBufferAddress(env, buffer);
+    jlong size = (*env)->GetDirectBufferCapacity(env, buffer);
+    if (shmAddr != NULL && size > 0) {
+        memset(shmAddr, 0, (size_t) size);
+    }
+}
+
+JNIEXPORT jint JNICALL Java_com_example_fuzzer_sharedmemory_Shm_classifyAndDiff
+  (JNIEnv *env, jobject obj, jobject trace, jobject virgin, jint size, jintArray out) {
+    /*
+     * 一次遍历完成分桶、与 virgin 表比较合并（无锁，可被多个线程同时调用）：
+     *   out 开头总是写入摘要（新边数、新桶数、路径哈希）；
+     *   没有新覆盖时原地清零覆盖率表中被写过的范围并返回 0，Java 端不需要读取任何覆盖率字节；
+     *   有新覆盖时覆盖率表保留分桶后的结果，摘要之后写入 (下标 << 9 | 新边标志 << 8 | 新增的桶) 条目。
+     */
+    uint64_t *current = (uint64_t *) (*env)->GetDirectBufferAddress(env, trace);
+    uint64_t *vir = (uint64_t *) (*env)->GetDirectBufferAddress(env, virgin);
+    if (current == NULL || vir == NULL || size <= 0 || (size & 7) != 0
+        || (*env)->GetDirectBufferCapacity(env, trace) < size
+        || (*env)->GetDirectBufferCapacity(env, virgin) < size) {
+        return -1;
+    }
+
+    jint entries[DIFF_LOCAL_ENTRIES];
+    jint total = 0;
+    jint new_edges = 0;
+    jint new_buckets = 0;
+    int32_t words = size >> 3;
+    int32_t first = -1;
+    int32_t last = -1;
+    uint64_t hash = PRIME64_5 + (uint64_t) size;
+
+    for (int32_t i = 0; i < words; i++) {
+        uint64_t word = current[i];
+        if (!word) {
+            continue;
+        }
+        if (first < 0) {
+            first = i;
+        }
+        last = i;
+
+        word = classify_word(word);
+        current[i] = word;
+        hash = hash_update(hash, (uint32_t) i, word);
+
+        /* 多个执行线程并发合并同一张 virgin 表，按 64 位字 CAS，只有成功清除比特的线程记录新覆盖 */
+        uint64_t v = __atomic_load_n(&vir[i], __ATOMIC_RELAXED);
+        while ((word & v) != 0
+               && !__atomic_compare_exchange_n(&vir[i], &v, v & ~word, 0, __ATOMIC_ACQ_REL, __ATOMIC_RELAXED)) {
+            /* CAS 失败时 v 已被更新为最新值，重新比较 */
+        }
+        if (!(word & v)) {
+            continue;
+        }
+
+        const uint8_t *cur_bytes = (const uint8_t *) &word;
+        const uint8_t *vir_bytes = (const uint8_t *) &v;
+        for (int b = 0; b < 8; b++) {
+            uint8_t fresh = cur_bytes[b] & vir_bytes[b];
+            if (!fresh) {
+                continue;
+            }
+            int edge = vir_bytes[b] == 0xFF;
+            if (edge) {
+                new_edges++;
+            } else {
+                new_buckets++;
+            }
+            if (total < DIFF_LOCAL_ENTRIES) {
+                entries[total] = (jint) (((i << 3) + b) << 9 | edge << 8 | fresh);
+            }
+            total++;
+        }
+    }
+
+    if (total == 0 && first >= 0) {
+        memset(&current[first], 0, (size_t) (last - first + 1) << 3);
+    }
+
+    if (out != NULL) {
+        jint capacity = (*env)->GetArrayLength(env, out);
+        if (capacity >= DIFF_HEADER) {
+            hash = hash_finish(hash);
+            jint header[DIFF_HEADER];
+            header[DIFF_NEW_EDGES] = new_edges;
+            header[DIFF_NEW_BUCKETS] = new_buckets;
+            header[DIFF_HASH_LOW] = (jint) (uint32_t) hash;
+            header[DIFF_HASH_HIGH] = (jint) (uint32_t) (hash >> 32);
+            (*env)->SetIntArrayRegion(env, out, 0, DIFF_HEADER, header);
+
+            jint count = total < DIFF_LOCAL_ENTRIES ? total : DIFF_LOCAL_ENTRIES;
+            if (count > capacity - DIFF_HEADER) {
+                count = capacity - DIFF_HEADER;
+            }
+            if (count > 0) {
+                (*env)->SetIntArrayRegion(env, out, DIFF_HEADER, count, entries);
+            }
+        }
+    }
+    return total;
+}
+
 JNIEXPORT void JNICALL Java_com_example_fuzzer_sharedmemory_Shm_destroySharedMemory
   (JNIEnv *env, jobject obj, jint shmId) {
     shmctl(shmId, IPC_RMID, NULL);
@@ -0,0 +1,352 @@
+/*
+ * cgf-untracer: 基于 ptrace 断点的二进制覆盖率追踪器（UnTracer 风格）
+ *
+ * 用法: cgf-untracer <blocks_file> <hits_file> -- <target> [args...]
+ *
+ * blocks_file 由 BreakpointExecutor 生成，格式为：
+ *   pie <0|1>
+ *   base <十六进制加载基址>
+ *   <十六进制虚拟地址> <覆盖率表下标>
+ *   ...
+ * 追踪器只在仍未命中过的基本块上放置 int3 断点，断点第一次命中后立即恢复原指令，
+ * 把命中写入 __AFL_SHM_ID 指向的覆盖率表，并把命中地址追加到 hits_file。
+ * Java 端据此把该块从断点列表中永久移除，因此随着覆盖率增长，追踪开销逐渐消失。
+ * 退出码与目标程序一致，目标被信号终止时返回 128 + 信号值。
+ * 目标创建的线程和子进程同样被追踪：它们共享或继承了带 int3 的代码，命中断点时在各自的地址空间中
+ * 恢复原指令，不会因为 SIGTRAP 被杀死；子进程 execve 其它程序后不再有断点，随即解除追踪。
+ *
+ * 仅支持 Linux x86_64。编译：
+ *   gcc -O2 -o cgf-untracer src/main/native/untracer.c
+ */
+#define _GNU_SOURCE
+#include <errno.h>
+#include <signal.h>
+#include <stdint.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <sys/ptrace.h>
+#include <sys/shm.h>
+#include <sys/types.h>
+#include <sys/user.h>
+#include <sys/wait.h>
+#include <unistd.h>
+
+#ifndef PTRACE_O_EXITKILL
+#define PTRACE_O_EXITKILL (1 << 20)
+#endif
+
+#define TRACE_OPTIONS (PTRACE_O_EXITKILL | PTRACE_O_TRACECLONE | PTRACE_O_TRACEFORK \
+                       | PTRACE_O_TRACEVFORK | PTRACE_O_TRACEEXEC)
+
+typedef struct {
+    uint64_t vaddr;     /* ELF 中的虚拟地址 */
+    uint64_t runtime;   /* 运行时地址 */
+    uint32_t index;     /* 覆盖率表下标 */
+    uint8_t original;   /* 被 int3 覆盖前的原始字节 */
+    uint8_t placed;     /* 启动时放置过 int3，fork 出的子进程中可能仍然存在 */
+    uint8_t armed;      /* 还没有被任何线程或进程命中过 */
+} block_t;
+
+static block_t *blocks;
+static size_t block_count;
+static int pie;
+static uint64_t load_base;
+
+/* 已经见过的被追踪者，新线程和子进程第一次停止时收到的 SIGSTOP 不转发 */
+static pid_t *tracees;
+static size_t tracee_count;
+static size_t tracee_capacity;
+
+static int compare_runtime(const void *a, const void *b) {
+    uint64_t x = ((const block_t *) a)->runtime;
+    uint64_t y = ((const block_t *) b)->runtime;
+    return x < y ? -1 : (x > y ? 1 : 0);
+}
+
+static int load_blocks(const char *path) {
+    FILE *f = fopen(path, "r");
+    if (!f) {
+        return -1;
+    }
+
+    size_t capacity = 1024;
+    blocks = malloc(capacity * sizeof(block_t));
+    char line[256];
+    while (fgets(line, sizeof(line), f)) {
+        unsigned long long value;
+        unsigned int index;
+        if (sscanf(line, "pie %d", &pie) == 1) {
+            continue;
+        }
+        if (sscanf(line, "base %llx", &value) == 1) {
+            load_base = value;
+            continue;
+        }
+        if (sscanf(line, "%llx %u", &value, &index) != 2) {
+            continue;
+        }
+        if (block_count == capacity) {
+            capacity *= 2;
+            blocks = realloc(blocks, capacity * sizeof(block_t));
+        }
+        blocks[block_count].vaddr = value;
+        blocks[block_count].index = index;
+        blocks[block_count].placed = 0;
+        blocks[block_count].armed = 0;
+        block_count++;
+    }
+    fclose(f);
+    return 0;
+}
+
+/* 在 /proc/<pid>/maps 中找到主程序文件偏移 0 处的映射地址 */
+static uint64_t find_map_base(pid_t pid) {
+    char path[64];
+    char exe[4096];
+    snprintf(path, sizeof(path), "/proc/%d/exe", pid);
+    ssize_t n = readlink(path, exe, sizeof(exe) - 1);
+    if (n <= 0) {
+        return 0;
+    }
+    exe[n] = '\0';
+
+    snprintf(path, sizeof(path), "/proc/%d/maps", pid);
+    FILE *f = fopen(path, "r");
+    if (!f) {
+        return 0;
+    }
+    char line[4352];
+    uint64_t base = 0;
+    while (fgets(line, sizeof(line), f)) {
+        unsigned long long start, offset;
+        char name[4096] = {0};
+        if (sscanf(line, "%llx-%*x %*s %llx %*s %*s %4095s", &start, &offset, name) >= 2
+            && offset == 0 && strcmp(name, exe) == 0) {
+            base = start;
+            break;
+        }
+    }
+    fclose(f);
+    return base;
+}
+
+static int peek_byte(pid_t pid, uint64_t addr, uint8_t *value) {
+    uint64_t aligned = addr & ~(uint64_t) 7;
+    errno = 0;
+    long word = ptrace(PTRACE_PEEKTEXT, pid, (void *) aligned, NULL);
+    if (errno != 0) {
+        return -1;
+    }
+    *value = (uint8_t) ((unsigned long) word >> ((addr - aligned) * 8));
+    return 0;
+}
+
+static int poke_byte(pid_t pid, uint64_t addr, uint8_t value, uint8_t *old) {
+    uint64_t aligned = addr & ~(uint64_t) 7;
+    int shift = (int) (addr - aligned) * 8;
+    errno = 0;
+    long word = ptrace(PTRACE_PEEKTEXT, pid, (void *) aligned, NULL);
+    if (errno != 0) {
+        return -1;
+    }
+    if (old) {
+        *old = (uint8_t) ((unsigned long) word >> shift);
+    }
+    unsigned long patched = ((unsigned long) word & ~(0xFFUL << shift)) | ((unsigned long) value << shift);
+    return (int) ptrace(PTRACE_POKETEXT, pid, (void *) aligned, (void *) patched);
+}
+
+static block_t *find_block(uint64_t runtime) {
+    size_t lo = 0, hi = block_count;
+    while (lo < hi) {
+        size_t mid = (lo + hi) / 2;
+        if (blocks[mid].runtime < runtime) {
+            lo = mid + 1;
+        } else {
+            hi = mid;
+        }
+    }
+    return (lo < block_count && blocks[lo].runtime == runtime) ? &blocks[lo] : NULL;
+}
+
+/* 第一次见到 pid 时记录下来并返回 1 */
+static int first_stop(pid_t pid) {
+    for (size_t i = 0; i < tracee_count; i++) {
+        if (tracees[i] == pid) {
+            return 0;
+        }
+    }
+    if (tracee_count == tracee_capacity) {
+        tracee_capacity = tracee_capacity ? tracee_capacity * 2 : 16;
+        tracees = realloc(tracees, tracee_capacity * sizeof(pid_t));
+    }
+    tracees[tracee_count++] = pid;
+    return 1;
+}
+
+/*
+ * 处理 int3 引起的 SIGTRAP：在 pid 的地址空间中恢复原指令并回退 rip。
+ * 线程共享代码，另一个线程可能已经恢复过同一个断点；fork 出的子进程有自己的副本，需要单独恢复。
+ * 返回命中的块，SIGTRAP 不是断点引起的时返回 NULL
+ */
+static block_t *handle_breakpoint(pid_t pid) {
+    siginfo_t info;
+    struct user_regs_struct regs;
+    if (ptrace(PTRACE_GETSIGINFO, pid, NULL, &info) < 0 || info.si_code != SI_KERNEL
+        || ptrace(PTRACE_GETREGS, pid, NULL, &regs) < 0) {
+        return NULL;
+    }
+    block_t *block = find_block(regs.rip - 1);
+    if (!block || !block->placed) {
+        return NULL;
+    }
+    uint8_t current;
+    if (peek_byte(pid, block->runtime, &current) == 0 && current == 0xCC) {
+        poke_byte(pid, block->runtime, block->original, NULL);
+    }
+    regs.rip -= 1;
+    ptrace(PTRACE_SETREGS, pid, NULL, &regs);
+    return block;
+}
+
+static uint8_t *attach_map(void) {
+    const char *id = getenv("__AFL_SHM_ID");
+    if (!id) {
+        return NULL;
+    }
+    void *map = shmat(atoi(id), NULL, 0);
+    return map == (void *) -1 ? NULL : (uint8_t *) map;
+}
+
+int main(int argc, char **argv) {
+    if (argc < 5 || strcmp(argv[3], "--") != 0) {
+        fprintf(stderr, "usage: %s <blocks_file> <hits_file> -- <target> [args...]\n", argv[0]);
+        return 2;
+    }
+    const char *hits_path = argv[2];
+    char **target_argv = &argv[4];
+
+    if (load_blocks(argv[1]) != 0) {
+        perror("cgf-untracer: blocks file");
+        return 2;
+    }
+
+    /* 没有剩余断点时直接替换为目标程序，以原生速度运行 */
+    if (block_count == 0) {
+        execv(target_argv[0], target_argv);
+        perror("cgf-untracer: execv");
+        return 2;
+    }
+
+    pid_t child = fork();
+    if (child < 0) {
+        perror("cgf-untracer: fork");
+        return 2;
+    }
+    if (child == 0) {
+        ptrace(PTRACE_TRACEME, 0, NULL, NULL);
+        execv(target_argv[0], target_argv);
+        _exit(127);
+    }
+
+    int status;
+    if (waitpid(child, &status, 0) < 0 || !WIFSTOPPED(status)) {
+        return WIFEXITED(status) ? WEXITSTATUS(status) : 2;
+    }
+    ptrace(PTRACE_SETOPTIONS, child, NULL, (void *) (long) TRACE_OPTIONS);
+    first_stop(child);
+
+    /* execve 停止时主程序已被内核映射，计算运行时地址并放置断点 */
+    uint64_t slide = pie ? find_map_base(child) - load_base : 0;
+    for (size_t i = 0; i < block_count; i++) {
+        blocks[i].runtime = blocks[i].vaddr + slide;
+    }
+    qsort(blocks, block_count, sizeof(block_t), compare_runtime);
+    for (size_t i = 0; i < block_count; i++) {
+        if (i > 0 && blocks[i].runtime == blocks[i - 1].runtime) {
+            continue;
+        }
+        /* 原本就是 int3 的位置不放置断点，那里的 SIGTRAP 属于目标程序自己 */
+        if (poke_byte(child, blocks[i].runtime, 0xCC, &blocks[i].original) == 0 && blocks[i].original != 0xCC) {
+            blocks[i].placed = 1;
+            blocks[i].armed = 1;
+        }
+    }
+
+    uint8_t *map = attach_map();
+    FILE *hits = fopen(hits_path, "w");
+    int exit_code = 0;
+    pid_t pid = child;
+    int signal_to_deliver = 0;
+
+    for (;;) {
+        if (pid > 0) {
+            ptrace(PTRACE_CONT, pid, NULL, (void *) (long) signal_to_deliver);
+        }
+        signal_to_deliver = 0;
+        pid = waitpid(-1, &status, __WALL);
+        if (pid < 0) {
+            exit_code = 2;
+            break;
+        }
+        /* 只有主进程的退出决定结果，残留的线程和子进程在追踪器退出时被 EXITKILL 杀死 */
+        if (WIFEXITED(status) || WIFSIGNALED(status)) {
+            if (pid == child) {
+                exit_code = WIFEXITED(status) ? WEXITSTATUS(status) : 128 + WTERMSIG(status);
+                break;
+            }
+            pid = -1;
+            continue;
+        }
+        if (!WIFSTOPPED(status)) {
+            continue;
+        }
+
+        int sig = WSTOPSIG(status);
+        int event = status >> 16;
+        if (event == PTRACE_EVENT_EXEC) {
+            /* 换成了别的程序，没有断点可追踪 */
+            ptrace(PTRACE_DETACH, pid, NULL, NULL);
+            pid = -1;
+            continue;
+        }
+        if (event != 0) {
+            /* clone/fork/vfork 事件，新的被追踪者会单独报告一次 SIGSTOP */
+            continue;
+        }
+        if (first_stop(pid) && sig == SIGSTOP) {
+            continue;
+        }
+        if (sig != SIGTRAP) {
+            signal_to_deliver = sig;
+            continue;
+        }
+
+        block_t *block = handle_breakpoint(pid);
+        if (!block) {
+            signal_to_deliver = sig;
+            continue;
+        }
+        if (!block->armed) {
+            continue;
+        }
+        block->armed = 0;
+        if (map) {
+            map[block->index] = 1;
+        }
+        if (hits) {
+            fprintf(hits, "%llx\n", (unsigned long long) block->vaddr);
+        }
+    }
+
+    if (hits) {
+        fclose(hits);
+    }
+    if (map) {
+        shmdt(map);
+    }
+    free(blocks);
+    free(tracees);
+    return exit_code;
+}